@@ -31,6 +31,7 @@ class MessageService with WidgetsBindingObserver {
 
   // WebSocket 消息订阅
   StreamSubscription<WebSocketMessage>? _wsSubscription;
+  StreamSubscription<void>? _reconnectSubscription;
 
   // 应用状态
   AppLifecycleState _appState = AppLifecycleState.resumed;
@@ -59,6 +60,9 @@ class MessageService with WidgetsBindingObserver {
   /// 用户资料更新流（头像/昵称变化）
   Stream<UserProfileUpdateEvent> get userProfileUpdateStream => _userProfileUpdateController.stream;
 
+  /// 重连成功流 - 打开的聊天据此补拉断线期间的消息
+  Stream<void> get reconnectedStream => _wsService.reconnectedStream;
+
   /// WebSocket 连接状态
   ValueListenable<WebSocketConnectionState> get connectionState =>
       _wsService.connectionState;
@@ -92,6 +96,12 @@ class MessageService with WidgetsBindingObserver {
     _wsSubscription?.cancel();
     _wsSubscription = _wsService.messageStream.listen(_handleWebSocketMessage);
 
+    // 重连后刷新聊天列表（最后一条消息和未读数）
+    _reconnectSubscription?.cancel();
+    _reconnectSubscription = _wsService.reconnectedStream.listen((_) {
+      _chatUpdateController.add(0);
+    });
+
     debugPrint('📨 MessageService: WebSocket 已连接');
   }
 
@@ -99,6 +109,8 @@ class MessageService with WidgetsBindingObserver {
   Future<void> disconnect() async {
     _wsSubscription?.cancel();
     _wsSubscription = null;
+    _reconnectSubscription?.cancel();
+    _reconnectSubscription = null;
     await _wsService.disconnect();
     _currentUserId = null;
     debugPrint('📨 MessageService: WebSocket 已断开');
@@ -360,6 +372,7 @@ class MessageService with WidgetsBindingObserver {
   void dispose() {
     WidgetsBinding.instance.removeObserver(this);
     _wsSubscription?.cancel();
+    _reconnectSubscription?.cancel();
     _messageUpdateController.close();
     _chatUpdateController.close();
     _typingController.close();
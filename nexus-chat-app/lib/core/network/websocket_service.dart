@@ -46,6 +46,9 @@ class WebSocketService {
   int? _currentUserId;
   String? _currentToken;
 
+  // 上一次连接成功的用户，再次连接成功即为重连
+  int? _lastConnectedUserId;
+
   // 定时器
   Timer? _heartbeatTimer;
   Timer? _reconnectTimer;
@@ -63,9 +66,15 @@ class WebSocketService {
   // 消息流控制器
   final _messageController = StreamController<WebSocketMessage>.broadcast();
 
+  // 重连成功通知（共享主题不缓存断线期间的消息，需要按序列号补拉）
+  final _reconnectedController = StreamController<void>.broadcast();
+
   // 订阅管理
   final Map<String, StompUnsubscribe> _subscriptions = {};
 
+  // 已知的群聊 ID，重连后重新订阅其共享主题
+  final Set<int> _groupChatIds = {};
+
   /// 获取连接状态
   ValueListenable<WebSocketConnectionState> get connectionState =>
       _connectionState;
@@ -73,6 +82,9 @@ class WebSocketService {
   /// 获取消息流
   Stream<WebSocketMessage> get messageStream => _messageController.stream;
 
+  /// 重连成功流
+  Stream<void> get reconnectedStream => _reconnectedController.stream;
+
   /// 是否已连接
   bool get isConnected =>
       _stompClient != null && _stompClient!.connected;
@@ -91,10 +103,12 @@ class WebSocketService {
       return;
     }
 
-    // 断开现有连接
+    // 断开现有连接（同一用户重连时保留已知群聊，连接后重新订阅）
+    final groupChatIds = _currentUserId == userId ? {..._groupChatIds} : <int>{};
     if (_stompClient != null) {
       await disconnect();
     }
+    _groupChatIds.addAll(groupChatIds);
 
     _currentUserId = userId;
     _currentToken = token;
@@ -138,11 +152,21 @@ class WebSocketService {
     // 订阅用户消息频道
     _subscribeToUserMessages();
 
+    // 重新订阅群聊共享主题
+    for (final chatId in _groupChatIds) {
+      _subscribeToGroup(chatId);
+    }
+
     // 启动心跳
     _startHeartbeat();
 
     // 通知上线
     _sendUserStatus(true);
+
+    if (_lastConnectedUserId == _currentUserId) {
+      _reconnectedController.add(null);
+    }
+    _lastConnectedUserId = _currentUserId;
   }
 
   /// 订阅用户消息频道
@@ -162,6 +186,58 @@ class WebSocketService {
     }
   }
 
+  /// 订阅群聊共享主题（群消息每个实例只投递一次，不再复制到每个成员的频道）
+  void subscribeToGroups(Iterable<int> chatIds) {
+    _groupChatIds.addAll(chatIds);
+    if (!isConnected) return;
+    for (final chatId in chatIds) {
+      _subscribeToGroup(chatId);
+    }
+  }
+
+  /// 取消订阅群聊共享主题（退出或解散群聊时）
+  void unsubscribeFromGroup(int chatId) {
+    _groupChatIds.remove(chatId);
+    final unsubscribe = _subscriptions.remove('/topic/group/$chatId');
+    if (unsubscribe != null) {
+      try {
+        unsubscribe();
+      } catch (_) {}
+    }
+  }
+
+  void _subscribeToGroup(int chatId) {
+    final destination = '/topic/group/$chatId';
+    if (_subscriptions.containsKey(destination)) return;
+    debugPrint('🔌 WebSocket: 订阅 $destination');
+
+    final unsubscribe = _stompClient?.subscribe(
+      destination: destination,
+      callback: _onGroupMessage,
+    );
+
+    if (unsubscribe != null) {
+      _subscriptions[destination] = unsubscribe;
+    }
+  }
+
+  /// 群主题回调：过滤自己发出的输入状态和已读回执
+  void _onGroupMessage(StompFrame frame) {
+    if (frame.body == null) return;
+
+    try {
+      final json = jsonDecode(frame.body!) as Map<String, dynamic>;
+      final message = WebSocketMessage.fromJson(json);
+      final isOwnSignal = (message.type == WebSocketMessageType.typing ||
+              message.type == WebSocketMessageType.messageRead) &&
+          message.payload['userId'] == _currentUserId;
+      if (isOwnSignal) return;
+      _messageController.add(message);
+    } catch (e) {
+      debugPrint('📨 WebSocket: 消息解析失败 $e');
+    }
+  }
+
   /// 收到消息回调
   void _onMessage(StompFrame frame) {
     if (frame.body == null) return;
@@ -321,6 +397,7 @@ class WebSocketService {
     _stompClient = null;
 
     // 清理用户信息
+    _groupChatIds.clear();
     _currentUserId = null;
     _currentToken = null;
     _reconnectAttempts = 0;
@@ -340,6 +417,7 @@ class WebSocketService {
   void dispose() {
     disconnect();
     _messageController.close();
+    _reconnectedController.close();
     _connectionState.dispose();
   }
 }
@@ -120,6 +120,31 @@ class ChatApiService {
     }
   }
 
+  /// 按序列号拉取消息（重连后补齐断线期间的消息）
+  Future<List<MessageModel>> getMessagesAfter(int chatId, int userId, int afterSeq, {int limit = 100}) async {
+    try {
+      debugPrint('💬 补拉消息: chatId=$chatId, afterSeq=$afterSeq');
+      final response = await _dioClient.get(
+        '/api/messages/chat/$chatId/after',
+        queryParameters: {
+          'userId': userId,
+          'afterSeq': afterSeq,
+          'limit': limit,
+        },
+      );
+
+      if (response.data is List) {
+        return (response.data as List)
+            .map((e) => MessageModel.fromJson(e as Map<String, dynamic>))
+            .toList();
+      }
+      return [];
+    } on DioException catch (e) {
+      debugPrint('💬 补拉消息失败: ${e.message}');
+      throw _handleError(e);
+    }
+  }
+
   /// 发送消息
   Future<MessageModel> sendMessage({
     required int chatId,
@@ -41,7 +41,7 @@ class ChatModel {
     final typeStr = (json['type'] as String?)?.toLowerCase();
     return ChatModel(
       id: json['id'] ?? 0,
-      type: typeStr == 'group' ? ChatType.group : ChatType.direct,
+      type: (typeStr == 'group' || typeStr == 'channel') ? ChatType.group : ChatType.direct,
       name: json['name'],
       description: json['description'],
       avatar: json['avatar'],
@@ -159,6 +159,7 @@ class MessageModel {
   final String? fileUrl;
   final DateTime? createdAt;
   final bool isRead;
+  final int sequenceNumber;
 
   MessageModel({
     required this.id,
@@ -171,6 +172,7 @@ class MessageModel {
     this.fileUrl,
     this.createdAt,
     this.isRead = false,
+    this.sequenceNumber = 0,
   });
 
   factory MessageModel.fromJson(Map<String, dynamic> json) {
@@ -187,6 +189,7 @@ class MessageModel {
           ? DateTime.tryParse(json['createdAt'])
           : null,
       isRead: json['isRead'] ?? false,
+      sequenceNumber: json['sequenceNumber'] ?? 0,
     );
   }
 
@@ -44,6 +44,11 @@ class ChatRepository {
     return await _chatApi.getChatMessages(chatId, userId, page: page, size: size);
   }
 
+  /// 按序列号拉取消息
+  Future<List<MessageModel>> getMessagesAfter(int chatId, int userId, int afterSeq, {int limit = 100}) async {
+    return await _chatApi.getMessagesAfter(chatId, userId, afterSeq, limit: limit);
+  }
+
   /// 发送消息
   Future<MessageModel> sendMessage({
     required int chatId,
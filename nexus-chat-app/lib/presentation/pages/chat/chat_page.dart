@@ -1,4 +1,5 @@
 import 'dart:async';
+import 'dart:math';
 import 'dart:ui';
 import 'package:flutter/material.dart';
 import 'package:cached_network_image/cached_network_image.dart';
@@ -22,6 +23,9 @@ class ChatPage extends StatefulWidget {
 }
 
 class _ChatPageState extends State<ChatPage> {
+  // 重连补拉的每页条数（后端上限 200）
+  static const int _syncPageSize = 100;
+
   final AuthRepository _authRepository = AuthRepository();
   final ChatRepository _chatRepository = ChatRepository();
   final TextEditingController _messageController = TextEditingController();
@@ -34,6 +38,7 @@ class _ChatPageState extends State<ChatPage> {
   int? _currentUserId;
 
   StreamSubscription<int>? _messageSubscription;
+  StreamSubscription<void>? _reconnectSubscription;
 
   // 判断是否为群聊
   bool get _isGroup => widget.chat.isGroup;
@@ -54,6 +59,7 @@ class _ChatPageState extends State<ChatPage> {
     _messageController.dispose();
     _scrollController.dispose();
     _messageSubscription?.cancel();
+    _reconnectSubscription?.cancel();
     super.dispose();
   }
 
@@ -64,6 +70,46 @@ class _ChatPageState extends State<ChatPage> {
         _loadNewMessages();
       }
     });
+    _reconnectSubscription = _messageService.reconnectedStream.listen((_) {
+      debugPrint('📨 ChatPage: 重连成功，补拉断线期间的消息');
+      _syncMissedMessages();
+    });
+  }
+
+  /// 按最后的序列号补拉断线期间的消息（最新一页可能覆盖不全）
+  Future<void> _syncMissedMessages() async {
+    if (_currentUserId == null) return;
+
+    var afterSeq = _messages.fold<int>(0, (seq, m) => max(seq, m.sequenceNumber));
+    if (afterSeq == 0) {
+      await _loadNewMessages();
+      return;
+    }
+
+    try {
+      final missed = <MessageModel>[];
+      while (true) {
+        final page = await _chatRepository.getMessagesAfter(
+          widget.chat.id,
+          _currentUserId!,
+          afterSeq,
+          limit: _syncPageSize,
+        );
+        missed.addAll(page.where((msg) => !_messages.any((m) => m.id == msg.id)));
+        if (page.length < _syncPageSize) break;
+        afterSeq = page.last.sequenceNumber;
+      }
+
+      if (missed.isNotEmpty && mounted) {
+        setState(() => _messages.addAll(missed));
+        WidgetsBinding.instance.addPostFrameCallback((_) {
+          _scrollToBottom();
+        });
+        await _chatRepository.markChatMessagesAsRead(widget.chat.id, _currentUserId!);
+      }
+    } catch (e) {
+      debugPrint('📨 ChatPage: 补拉消息失败 $e');
+    }
   }
 
   /// 加载新消息（WebSocket 触发）
@@ -5,6 +5,7 @@ import 'package:cached_network_image/cached_network_image.dart';
 import '../../../core/config/api_config.dart';
 import '../../../core/config/theme_config.dart';
 import '../../../core/network/message_service.dart';
+import '../../../core/network/websocket_service.dart';
 import '../../../data/repositories/auth_repository.dart';
 import '../../../data/repositories/chat_repository.dart';
 import '../../../data/models/auth/auth_models.dart';
@@ -92,6 +93,10 @@ class _MessagesPageState extends State<MessagesPage> with WidgetsBindingObserver
 
     try {
       final chats = await _chatRepository.getUserChats(_currentUser!.id);
+      // 群聊消息走共享主题 /topic/group/{id}
+      WebSocketService().subscribeToGroups(
+        chats.where((chat) => chat.isGroup).map((chat) => chat.id),
+      );
       if (mounted) {
         setState(() {
           _chats = chats;
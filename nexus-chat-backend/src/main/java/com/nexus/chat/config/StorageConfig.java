@@ -0,0 +1,91 @@
+package com.nexus.chat.config;
+
+import com.nexus.chat.service.FileStorageService;
+import com.nexus.chat.storage.BlobStore;
+import com.nexus.chat.storage.LocalBlobStore;
+import com.nexus.chat.storage.S3BlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+/**
+ * 文件存储后端配置
+ * storage.type=local（默认）：uploads/ 目录，多实例需共享该目录；
+ * storage.type=s3：S3 兼容对象存储，下载和直传使用预签名 URL。
+ * storage.s3.public-endpoint 为客户端访问存储的地址（后端经内网地址访问时设置，默认与 endpoint 相同）。
+ */
+@Slf4j
+@Configuration
+public class StorageConfig {
+
+    @Value("${storage.type:local}")
+    private String storageType;
+
+    @Value("${storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${storage.s3.public-endpoint:}")
+    private String publicEndpoint;
+
+    @Value("${storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${storage.s3.bucket:nexus-uploads}")
+    private String bucket;
+
+    @Value("${storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${storage.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${storage.s3.path-style-access:true}")
+    private boolean pathStyleAccess;
+
+    @Bean
+    public BlobStore blobStore() {
+        if (!"s3".equalsIgnoreCase(storageType)) {
+            return new LocalBlobStore(Paths.get(FileStorageService.UPLOAD_DIR).normalize());
+        }
+
+        AwsCredentialsProvider credentials = accessKey.isEmpty()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration s3Configuration = S3Configuration.builder()
+                .pathStyleAccessEnabled(pathStyleAccess)
+                .build();
+
+        S3ClientBuilder clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Configuration);
+        if (!endpoint.isEmpty()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+        }
+
+        S3Presigner.Builder presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Configuration);
+        String presignEndpoint = !publicEndpoint.isEmpty() ? publicEndpoint : endpoint;
+        if (!presignEndpoint.isEmpty()) {
+            presignerBuilder.endpointOverride(URI.create(presignEndpoint));
+        }
+
+        log.info("文件存储: S3 bucket={}, endpoint={}", bucket, endpoint.isEmpty() ? "(default)" : endpoint);
+        return new S3BlobStore(clientBuilder.build(), presignerBuilder.build(), bucket);
+    }
+}
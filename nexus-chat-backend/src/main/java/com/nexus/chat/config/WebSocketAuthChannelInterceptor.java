@@ -1,5 +1,6 @@
 package com.nexus.chat.config;
 
+import com.nexus.chat.repository.ChatMemberRepository;
 import com.nexus.chat.security.JwtTokenProvider;
 import com.nexus.chat.service.PresenceService;
 import com.nexus.chat.service.WebSocketSessionRegistry;
@@ -18,16 +19,20 @@ import java.security.Principal;
 
 /**
  * WebSocket Channel Interceptor for JWT-based user authentication.
- * Also handles distributed session registration on CONNECT/DISCONNECT.
+ * Also handles distributed session registration on CONNECT/DISCONNECT,
+ * and membership checks on SUBSCRIBE to shared group/channel topics.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
 
+    private static final String GROUP_TOPIC_PREFIX = "/topic/group/";
+
     private final JwtTokenProvider jwtTokenProvider;
     private final WebSocketSessionRegistry sessionRegistry;
     private final PresenceService presenceService;
+    private final ChatMemberRepository chatMemberRepository;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -38,6 +43,8 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
             handleConnect(accessor);
         } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
             handleDisconnect(accessor);
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            handleSubscribe(accessor);
         }
 
         return message;
@@ -92,6 +99,35 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
         }
     }
 
+    /**
+     * Shared group topics carry chat content, so only members may subscribe.
+     */
+    private void handleSubscribe(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(GROUP_TOPIC_PREFIX)) {
+            return;
+        }
+
+        Principal user = accessor.getUser();
+        if (user == null) {
+            throw new MessageDeliveryException("Unauthenticated subscription: " + destination);
+        }
+
+        Long chatId;
+        Long userId;
+        try {
+            chatId = Long.parseLong(destination.substring(GROUP_TOPIC_PREFIX.length()));
+            userId = Long.parseLong(user.getName());
+        } catch (NumberFormatException e) {
+            throw new MessageDeliveryException("Invalid group topic: " + destination);
+        }
+
+        if (!chatMemberRepository.existsByChatIdAndUserId(chatId, userId)) {
+            log.warn("拒绝非成员订阅群组主题: userId={}, chatId={}", userId, chatId);
+            throw new MessageDeliveryException("Not a member of chat " + chatId);
+        }
+    }
+
     /**
      * Simple Principal implementation for WebSocket users
      */
@@ -0,0 +1,50 @@
+package com.nexus.chat.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+/**
+ * STOMP broker infrastructure (replaces @EnableWebSocketMessageBroker).
+ *
+ * Extends the delegating configuration so the inbound channel executor bean can be replaced:
+ * ChannelRegistration only accepts a ThreadPoolTaskExecutor, which would pool virtual threads.
+ * With websocket.executor.mode=virtual on JDK 21+ the inbound channel instead runs each message
+ * on a new virtual thread, and websocket.executor.virtual.max-concurrency caps how many run at
+ * once (callers block at the limit). Otherwise the pool registered in WebSocketConfig is used.
+ */
+@Slf4j
+@Configuration
+public class WebSocketBrokerConfiguration extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Value("${websocket.executor.mode:pool}")
+    private String executorMode;
+
+    @Value("${websocket.executor.virtual.max-concurrency:512}")
+    private int virtualMaxConcurrency;
+
+    @Bean
+    @Override
+    public TaskExecutor clientInboundChannelExecutor() {
+        if (!useVirtualThreads(executorMode)) {
+            return super.clientInboundChannelExecutor();
+        }
+        log.info("WebSocket 入站通道使用虚拟线程, 最大并发: {}", virtualMaxConcurrency);
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ws-inbound-vt-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(virtualMaxConcurrency);
+        return executor;
+    }
+
+    /**
+     * Whether the inbound channel runs on virtual threads (requested and JDK 21+)
+     */
+    static boolean useVirtualThreads(String executorMode) {
+        return WebSocketConfig.EXECUTOR_MODE_VIRTUAL.equalsIgnoreCase(executorMode)
+                && Runtime.version().feature() >= 21;
+    }
+}
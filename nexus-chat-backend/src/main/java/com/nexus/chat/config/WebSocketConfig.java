@@ -2,30 +2,119 @@ package com.nexus.chat.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * STOMP over WebSocket configuration.
+ *
+ * Broker modes (websocket.broker.mode):
+ * - simple: in-memory broker per instance; cross-instance delivery goes through RedisMessageRelay.
+ * - relay:  forwards /topic and /queue to an external STOMP broker (RabbitMQ with the STOMP
+ *           plugin, ActiveMQ Artemis). The broker owns subscriptions and fan-out, so instances
+ *           no longer rebroadcast messages through Redis.
+ *
+ * Channel executors (websocket.executor.*): inbound handlers block on JPA and Redis, so the
+ * inbound pool is sized separately from the outbound (socket write) pool. With
+ * websocket.executor.mode=virtual the inbound channel runs on virtual threads when the
+ * runtime is JDK 21+ (see WebSocketBrokerConfiguration), and on the platform pool otherwise.
+ */
 @Slf4j
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    public static final String BROKER_MODE_RELAY = "relay";
+    public static final String EXECUTOR_MODE_VIRTUAL = "virtual";
+
     @Autowired
     private WebSocketAuthChannelInterceptor webSocketAuthChannelInterceptor;
 
     @Autowired
     private MessageValidationInterceptor messageValidationInterceptor;
 
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @Value("${websocket.executor.mode:pool}")
+    private String executorMode;
+
+    @Value("${websocket.executor.inbound.core-pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.executor.inbound.max-pool-size:64}")
+    private int inboundMaxPoolSize;
+
+    @Value("${websocket.executor.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.executor.outbound.core-pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}")
+    private int outboundCorePoolSize;
+
+    @Value("${websocket.executor.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${websocket.executor.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Value("${websocket.heartbeat.pool-size:2}")
+    private int heartbeatPoolSize;
+
+    @Value("${websocket.transport.send-time-limit:15000}")
+    private int sendTimeLimit;
+
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.message-size-limit:131072}")
+    private int messageSizeLimit;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        log.info("配置 WebSocket 消息代理: /topic, /queue");
-        config.enableSimpleBroker("/topic", "/queue")
-                .setHeartbeatValue(new long[]{10000, 10000})  // 服务端心跳: 10秒发送, 10秒期望接收
-                .setTaskScheduler(heartbeatScheduler());
+        if (BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode)) {
+            log.info("配置 STOMP 代理中继: {}:{}, /topic, /queue", relayHost, relayPort);
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setSystemHeartbeatSendInterval(10000)
+                    .setSystemHeartbeatReceiveInterval(10000)
+                    // Share user sessions across instances so /user/queue/** resolves on any node
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isEmpty()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            log.info("配置 WebSocket 消息代理: /topic, /queue");
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[]{10000, 10000})  // 服务端心跳: 10秒发送, 10秒期望接收
+                    .setTaskScheduler(heartbeatScheduler());
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
@@ -34,7 +123,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler heartbeatScheduler() {
         org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler scheduler =
                 new org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(1);
+        scheduler.setPoolSize(heartbeatPoolSize);
         scheduler.setThreadNamePrefix("ws-heartbeat-");
         scheduler.initialize();
         return scheduler;
@@ -69,10 +158,49 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 );
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Slow consumers are disconnected instead of buffering without bound
+        registration.setSendTimeLimit(sendTimeLimit)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         log.debug("配置 WebSocket 入站通道拦截器");
         registration.interceptors(webSocketAuthChannelInterceptor, messageValidationInterceptor);
+        if (WebSocketBrokerConfiguration.useVirtualThreads(executorMode)) {
+            // WebSocketBrokerConfiguration supplies the virtual-thread executor
+            return;
+        }
+        if (EXECUTOR_MODE_VIRTUAL.equalsIgnoreCase(executorMode)) {
+            log.warn("虚拟线程需要 JDK 21+, 当前 JDK {}, 回退到平台线程池", Runtime.version().feature());
+        }
+        registration.taskExecutor(inboundExecutor());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ws-outbound-");
+        executor.setCorePoolSize(outboundCorePoolSize);
+        executor.setMaxPoolSize(Math.max(outboundCorePoolSize, outboundMaxPoolSize));
+        executor.setQueueCapacity(outboundQueueCapacity);
+        registration.taskExecutor(executor);
+    }
+
+    /**
+     * Platform-thread pool for @MessageMapping handlers. The broker configuration wraps it in
+     * the clientInboundChannelExecutor bean; this method itself is not a bean.
+     */
+    private ThreadPoolTaskExecutor inboundExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ws-inbound-");
+        executor.setCorePoolSize(inboundCorePoolSize);
+        executor.setMaxPoolSize(Math.max(inboundCorePoolSize, inboundMaxPoolSize));
+        executor.setQueueCapacity(inboundQueueCapacity);
+        return executor;
     }
 
 }
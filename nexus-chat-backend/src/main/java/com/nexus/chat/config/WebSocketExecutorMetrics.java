@@ -0,0 +1,50 @@
+package com.nexus.chat.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the STOMP channel executors as Micrometer metrics
+ * (executor.queued, executor.active, executor.pool.size, ... tagged name=ws.inbound / ws.outbound),
+ * readable at /actuator/metrics/executor.queued?tag=name:ws.inbound.
+ * The broker configuration declares the executor beans as TaskExecutor; only thread pools are
+ * bound (the virtual-thread inbound executor has no pool to report).
+ */
+@Slf4j
+@Component
+public class WebSocketExecutorMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final TaskExecutor inboundExecutor;
+    private final TaskExecutor outboundExecutor;
+
+    public WebSocketExecutorMetrics(MeterRegistry meterRegistry,
+                                    @Qualifier("clientInboundChannelExecutor") TaskExecutor inboundExecutor,
+                                    @Qualifier("clientOutboundChannelExecutor") TaskExecutor outboundExecutor) {
+        this.meterRegistry = meterRegistry;
+        this.inboundExecutor = inboundExecutor;
+        this.outboundExecutor = outboundExecutor;
+    }
+
+    @PostConstruct
+    public void bindMetrics() {
+        bind(inboundExecutor, "ws.inbound");
+        bind(outboundExecutor, "ws.outbound");
+    }
+
+    private void bind(TaskExecutor executor, String name) {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            new ExecutorServiceMetrics(pool.getThreadPoolExecutor(), name, Tags.empty()).bindTo(meterRegistry);
+            log.info("WebSocket 通道线程池指标已注册: {}", name);
+        } else {
+            log.info("WebSocket 通道 {} 不是线程池 ({}), 不注册线程池指标", name, executor.getClass().getSimpleName());
+        }
+    }
+}
@@ -48,6 +48,35 @@ public class ChatController {
         }
     }
 
+    @PostMapping("/channel")
+    public ResponseEntity<ChatDTO> createChannel(
+            @RequestParam Long userId,
+            @RequestBody CreateGroupRequest request) {
+        log.debug("创建频道: userId={}, name={}", userId, request.getName());
+        try {
+            ChatDTO chat = chatService.createChannel(userId, request);
+            log.info("频道创建成功: chatId={}, name={}", chat.getId(), chat.getName());
+            return ResponseEntity.ok(chat);
+        } catch (RuntimeException e) {
+            log.warn("创建频道失败: userId={}, reason={}", userId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{chatId}/join")
+    public ResponseEntity<ChatDTO> joinChannel(
+            @PathVariable Long chatId,
+            @RequestParam Long userId) {
+        log.debug("加入频道: chatId={}, userId={}", chatId, userId);
+        try {
+            ChatDTO chat = chatService.joinChannel(chatId, userId);
+            return ResponseEntity.ok(chat);
+        } catch (RuntimeException e) {
+            log.warn("加入频道失败: chatId={}, userId={}, reason={}", chatId, userId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<ChatDTO>> getUserChats(@PathVariable Long userId) {
         log.debug("获取用户聊天列表: userId={}", userId);
@@ -0,0 +1,175 @@
+package com.nexus.chat.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 文件响应输出
+ * 支持 ETag / Last-Modified 条件请求（304）、单段和多段 Range（206），
+ * 文件内容经 FileChannel.transferTo 输出；Tomcat 支持 sendfile 时单段响应交给容器直接从文件发送。
+ */
+final class FileStreamer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 文件内容不会变化（按 fileId 不可变），允许客户端缓存，过期后凭 ETag 重新验证
+    private static final String CACHE_CONTROL = "private, max-age=86400";
+
+    private FileStreamer() {
+    }
+
+    /**
+     * 输出文件；etag 为不含引号的内容标识（如内容哈希）
+     */
+    static void serve(HttpServletRequest request, HttpServletResponse response, Path path,
+                      String contentType, String contentDisposition, String etag) throws IOException {
+        long length = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String quotedEtag = "\"" + etag + "\"";
+
+        // 设置 ETag、Last-Modified，命中 If-None-Match / If-Modified-Since 时返回 304
+        if (new ServletWebRequest(request, response).checkNotModified(quotedEtag, lastModified)) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+
+        List<HttpRange> ranges;
+        try {
+            ranges = rangesApply(request, quotedEtag, lastModified)
+                    ? HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE))
+                    : List.of();
+            long requested = 0;
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                // 起始位置超出文件长度（HttpRange 不校验）
+                if (start > end) {
+                    throw new IllegalArgumentException("range start exceeds content length");
+                }
+                requested += end - start + 1;
+            }
+            // 重叠的多段请求总长度不得超过文件本身
+            if (ranges.size() > 1 && requested > length) {
+                throw new IllegalArgumentException("ranges exceed content length");
+            }
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                send(request, response, path, 0, length);
+            }
+        } else if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                send(request, response, path, start, end + 1);
+            }
+        } else {
+            String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType("multipart/byteranges; boundary=" + boundary);
+            if (!head) {
+                sendMultipart(response, path, ranges, length, contentType, boundary);
+            }
+        }
+    }
+
+    /**
+     * Range 是否生效：没有 If-Range，或 If-Range 与当前 ETag / 修改时间一致
+     */
+    private static boolean rangesApply(HttpServletRequest request, String quotedEtag, long lastModified) {
+        if (request.getHeader(HttpHeaders.RANGE) == null) {
+            return false;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(quotedEtag);
+        }
+        long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+        return ifRangeDate != -1 && lastModified / 1000 <= ifRangeDate / 1000;
+    }
+
+    /**
+     * 输出 [start, end) 区间
+     */
+    private static void send(HttpServletRequest request, HttpServletResponse response, Path path,
+                             long start, long end) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(channel, start, end, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void sendMultipart(HttpServletResponse response, Path path, List<HttpRange> ranges,
+                                      long length, String contentType, String boundary) throws IOException {
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n";
+                out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                transfer(channel, start, end + 1, target);
+            }
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void transfer(FileChannel channel, long start, long end, WritableByteChannel target)
+            throws IOException {
+        long position = start;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new EOFException("文件内容不完整");
+            }
+            position += transferred;
+        }
+    }
+}
@@ -2,28 +2,32 @@ package com.nexus.chat.controller;
 
 import com.nexus.chat.model.FileUpload;
 import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.service.ChunkedUploadService;
+import com.nexus.chat.service.DirectUploadService;
+import com.nexus.chat.service.FileStorageService;
+import com.nexus.chat.service.MediaPipelineService;
+import com.nexus.chat.storage.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.time.LocalDate;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -35,11 +39,18 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class FileUploadController {
 
-    private static final String UPLOAD_DIR = "uploads/";
     private static final long MAX_FILE_SIZE = 100 * 1024 * 1024; // 100MB
     private static final int EXPIRY_DAYS = 30;
 
     private final FileUploadRepository fileUploadRepository;
+    private final FileStorageService fileStorageService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final MediaPipelineService mediaPipelineService;
+    private final DirectUploadService directUploadService;
+    private final BlobStore blobStore;
+
+    @Value("${storage.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
 
     /**
      * 单文件上传（小于5MB）
@@ -60,56 +71,48 @@ public class FileUploadController {
                         "maxSize", MAX_FILE_SIZE));
             }
 
-            // 计算MD5
-            String md5Hash = calculateMD5(file.getBytes());
-
-            // 检查是否已存在相同文件（秒传）
-            Optional<FileUpload> existing = fileUploadRepository.findByMd5Hash(md5Hash);
-            if (existing.isPresent() && existing.get().getUploadComplete()) {
-                FileUpload existingFile = existing.get();
-                log.info("文件秒传: md5={}, fileId={}", md5Hash, existingFile.getFileId());
-                return ResponseEntity.ok(buildResponse(existingFile));
+            // 流式写入临时文件，同时计算SHA-256
+            FileStorageService.TempFile temp;
+            try (InputStream input = file.getInputStream()) {
+                temp = fileStorageService.writeTemp(input);
             }
 
-            // 创建按日期分类的目录
-            String dateDir = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-            File uploadDir = new File(UPLOAD_DIR + dateDir);
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
-            }
+            try {
+                // 按内容存储，相同内容只存一份（秒传）
+                String originalFilename = file.getOriginalFilename();
+                String extension = FileStorageService.extensionOf(originalFilename);
+                String fileId = UUID.randomUUID().toString();
+                String storedName = fileId + extension;
+                FileStorageService.StoredFile stored = fileStorageService.store(temp, storedName);
+                if (stored.deduplicated()) {
+                    log.info("文件秒传: sha256={}, fileId={}", stored.contentHash(), fileId);
+                }
+
+                // 保存到数据库
+                FileUpload fileUpload = new FileUpload();
+                fileUpload.setFileId(fileId);
+                fileUpload.setFilename(originalFilename);
+                fileUpload.setOriginalName(originalFilename);
+                fileUpload.setStoredName(storedName);
+                fileUpload.setFileSize(temp.size());
+                fileUpload.setMimeType(file.getContentType());
+                fileUpload.setContentHash(stored.contentHash());
+                fileUpload.setUploaderId(uploaderId);
+                fileUpload.setFilePath(stored.filePath());
+                fileUpload.setChunkCount(1);
+                fileUpload.setUploadComplete(true);
+                fileUpload.setExpiresAt(LocalDateTime.now().plusDays(EXPIRY_DAYS));
+
+                FileUpload savedFile = fileUploadRepository.save(fileUpload);
+                mediaPipelineService.submit(savedFile);
 
-            // 生成唯一文件名
-            String originalFilename = file.getOriginalFilename();
-            String extension = getExtension(originalFilename);
-            String fileId = UUID.randomUUID().toString();
-            String storedName = fileId + extension;
-            String filePath = dateDir + "/" + storedName;
-
-            // 保存文件
-            Path targetPath = Paths.get(UPLOAD_DIR + filePath);
-            Files.write(targetPath, file.getBytes());
-
-            // 保存到数据库
-            FileUpload fileUpload = new FileUpload();
-            fileUpload.setFileId(fileId);
-            fileUpload.setFilename(originalFilename);
-            fileUpload.setOriginalName(originalFilename);
-            fileUpload.setStoredName(storedName);
-            fileUpload.setFileSize(file.getSize());
-            fileUpload.setMimeType(file.getContentType());
-            fileUpload.setMd5Hash(md5Hash);
-            fileUpload.setUploaderId(uploaderId);
-            fileUpload.setFilePath(filePath);
-            fileUpload.setChunkCount(1);
-            fileUpload.setUploadComplete(true);
-            fileUpload.setExpiresAt(LocalDateTime.now().plusDays(EXPIRY_DAYS));
-
-            FileUpload savedFile = fileUploadRepository.save(fileUpload);
-
-            log.info("文件上传成功: fileId={}, filename={}, size={}",
-                    fileId, originalFilename, file.getSize());
-
-            return ResponseEntity.ok(buildResponse(savedFile));
+                log.info("文件上传成功: fileId={}, filename={}, size={}",
+                        fileId, originalFilename, temp.size());
+
+                return ResponseEntity.ok(buildResponse(savedFile));
+            } finally {
+                fileStorageService.discard(temp);
+            }
 
         } catch (IOException e) {
             log.error("文件上传失败: filename={}", file.getOriginalFilename(), e);
@@ -118,7 +121,7 @@ public class FileUploadController {
     }
 
     /**
-     * 分片上传
+     * 分片上传（支持乱序和断点续传，分片到齐后自动完成）
      */
     @PostMapping("/upload/chunk")
     public ResponseEntity<Map<String, Object>> uploadChunk(
@@ -128,74 +131,118 @@ public class FileUploadController {
             @RequestParam("fileId") String fileId,
             @RequestParam(value = "filename", required = false) String filename,
             @RequestParam(value = "totalSize", required = false) Long totalSize,
+            @RequestParam(value = "chunkSize", required = false) Long chunkSize,
             @RequestParam(value = "uploaderId", required = false) Long uploaderId) {
 
         log.debug("分片上传请求: fileId={}, chunkIndex={}/{}", fileId, chunkIndex, totalChunks);
 
-        try {
-            // 创建临时分片目录
-            File chunksDir = new File(UPLOAD_DIR + "chunks/" + fileId);
-            if (!chunksDir.exists()) {
-                chunksDir.mkdirs();
-            }
+        if (totalSize != null && totalSize > MAX_FILE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "文件大小超过限制",
+                    "maxSize", MAX_FILE_SIZE));
+        }
 
-            // 保存分片
-            Path chunkPath = Paths.get(chunksDir.getPath() + "/chunk_" + chunkIndex);
-            Files.write(chunkPath, chunk.getBytes());
+        try {
+            ChunkedUploadService.ChunkResult result = chunkedUploadService.writeChunk(
+                    fileId, chunkIndex, totalChunks, chunkSize, totalSize, filename, uploaderId, chunk);
 
             Map<String, Object> response = new HashMap<>();
             response.put("chunkIndex", chunkIndex);
             response.put("uploaded", true);
+            response.put("complete", result.complete());
+            if (result.complete()) {
+                response.putAll(buildResponse(result.upload()));
+            }
+            return ResponseEntity.ok(response);
 
-            // 如果是最后一个分片，合并文件
-            if (chunkIndex == totalChunks - 1) {
-                String dateDir = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-                File uploadDir = new File(UPLOAD_DIR + dateDir);
-                if (!uploadDir.exists()) {
-                    uploadDir.mkdirs();
-                }
-
-                String extension = getExtension(filename);
-                String storedName = fileId + extension;
-                String filePath = dateDir + "/" + storedName;
-
-                // 合并分片
-                mergeChunks(fileId, totalChunks, UPLOAD_DIR + filePath);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ChunkedUploadService.MissingChunksException e) {
+            // 分片写在其他实例上，按 missingChunks 重传
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", e.getMessage(),
+                    "complete", false,
+                    "missingChunks", e.getMissingChunks()));
+        } catch (IOException | RuntimeException e) {
+            log.error("分片上传失败: fileId={}, chunkIndex={}", fileId, chunkIndex, e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "分片上传失败"));
+        }
+    }
 
-                // 计算合并后文件的MD5
-                byte[] fileBytes = Files.readAllBytes(Paths.get(UPLOAD_DIR + filePath));
-                String md5Hash = calculateMD5(fileBytes);
+    /**
+     * 查询分片上传状态（断点续传时只需补传缺失的分片）
+     */
+    @GetMapping("/upload/chunk/{fileId}")
+    public ResponseEntity<Map<String, Object>> getChunkStatus(@PathVariable String fileId) {
+        Optional<ChunkedUploadService.UploadStatus> statusOpt = chunkedUploadService.getStatus(fileId);
+        if (statusOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
 
-                // 保存到数据库
-                FileUpload fileUpload = new FileUpload();
-                fileUpload.setFileId(fileId);
-                fileUpload.setFilename(filename);
-                fileUpload.setOriginalName(filename);
-                fileUpload.setStoredName(storedName);
-                fileUpload.setFileSize(totalSize != null ? totalSize : fileBytes.length);
-                fileUpload.setMimeType(getMimeType(filename));
-                fileUpload.setMd5Hash(md5Hash);
-                fileUpload.setUploaderId(uploaderId);
-                fileUpload.setFilePath(filePath);
-                fileUpload.setChunkCount(totalChunks);
-                fileUpload.setUploadComplete(true);
-                fileUpload.setExpiresAt(LocalDateTime.now().plusDays(EXPIRY_DAYS));
+        FileUpload upload = statusOpt.get().upload();
+        Map<String, Object> response = new HashMap<>();
+        response.put("fileId", fileId);
+        response.put("totalChunks", upload.getChunkCount());
+        response.put("chunkSize", upload.getChunkSize());
+        response.put("receivedChunks", statusOpt.get().receivedChunks());
+        response.put("complete", Boolean.TRUE.equals(upload.getUploadComplete()));
+        if (Boolean.TRUE.equals(upload.getUploadComplete())) {
+            response.putAll(buildResponse(upload));
+        }
+        return ResponseEntity.ok(response);
+    }
 
-                FileUpload savedFile = fileUploadRepository.save(fileUpload);
+    /**
+     * 申请直传地址（存储后端支持预签名时）：客户端用返回的 uploadUrl 和 headers 以 PUT 上传文件，
+     * 再调用 /upload/direct/{fileId}/complete；不支持时返回 501，客户端改用普通上传或分片上传
+     */
+    @PostMapping("/upload/direct")
+    public ResponseEntity<Map<String, Object>> initiateDirectUpload(
+            @RequestParam("filename") String filename,
+            @RequestParam("size") long size,
+            @RequestParam("sha256") String sha256,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestParam(value = "uploaderId", required = false) Long uploaderId) {
 
-                response.put("complete", true);
-                response.putAll(buildResponse(savedFile));
+        if (size > MAX_FILE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "文件大小超过限制",
+                    "maxSize", MAX_FILE_SIZE));
+        }
 
-                log.info("分片上传完成: fileId={}, filename={}", fileId, filename);
-            } else {
-                response.put("complete", false);
+        try {
+            Optional<DirectUploadService.DirectUpload> directOpt =
+                    directUploadService.initiate(filename, size, sha256, contentType, uploaderId);
+            if (directOpt.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(Map.of("error", "当前存储不支持直传"));
             }
 
+            DirectUploadService.DirectUpload direct = directOpt.get();
+            Map<String, Object> response = new HashMap<>();
+            response.put("fileId", direct.fileId());
+            response.put("uploadUrl", direct.upload().url().toString());
+            response.put("method", "PUT");
+            response.put("headers", direct.upload().headers());
+            response.put("expiresAt", direct.expiresAt());
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 直传完成
+     */
+    @PostMapping("/upload/direct/{fileId}/complete")
+    public ResponseEntity<Map<String, Object>> completeDirectUpload(@PathVariable String fileId) {
+        try {
+            return ResponseEntity.ok(buildResponse(directUploadService.complete(fileId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
-            log.error("分片上传失败: fileId={}, chunkIndex={}", fileId, chunkIndex, e);
-            return ResponseEntity.internalServerError().body(Map.of("error", "分片上传失败"));
+            log.error("直传完成失败: fileId={}", fileId, e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "文件上传失败"));
         }
     }
 
@@ -205,96 +252,124 @@ public class FileUploadController {
     @GetMapping("/{fileId}/info")
     public ResponseEntity<Map<String, Object>> getFileInfo(@PathVariable String fileId) {
         Optional<FileUpload> fileOpt = fileUploadRepository.findByFileId(fileId);
-        if (fileOpt.isEmpty()) {
+        if (fileOpt.isEmpty() || !Boolean.TRUE.equals(fileOpt.get().getUploadComplete())) {
             return ResponseEntity.notFound().build();
         }
         return ResponseEntity.ok(buildResponse(fileOpt.get()));
     }
 
     /**
-     * 下载文件
+     * 下载文件（支持 Range 断点续传和条件请求）
      */
     @GetMapping("/download/{fileId}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileId) {
-
-        Optional<FileUpload> fileOpt = fileUploadRepository.findByFileId(fileId);
+    public void downloadFile(@PathVariable String fileId,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        Optional<FileUpload> fileOpt = findServableFile(fileId, response);
         if (fileOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+            return;
         }
 
         FileUpload file = fileOpt.get();
+        String encodedFilename = URLEncoder.encode(file.getOriginalName(), StandardCharsets.UTF_8)
+                .replace("+", "%20");
+        serveFile(file, "attachment; filename*=UTF-8''" + encodedFilename, request, response);
+    }
 
-        // 检查文件是否过期
-        if (file.getExpiresAt() != null && file.getExpiresAt().isBefore(LocalDateTime.now())) {
-            return ResponseEntity.status(410).build(); // Gone
+    /**
+     * 在线预览文件（支持 Range 拖动播放和条件请求）
+     * 图片可通过 w 指定显示宽度，返回不小于该宽度的缩略图；没有合适的缩略图时返回原图
+     */
+    @GetMapping("/preview/{fileId}")
+    public void previewFile(@PathVariable String fileId,
+                            @RequestParam(value = "w", required = false) Integer width,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        Optional<FileUpload> fileOpt = findServableFile(fileId, response);
+        if (fileOpt.isEmpty()) {
+            return;
         }
 
-        try {
-            Path filePath = Paths.get(UPLOAD_DIR + file.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (!resource.exists()) {
-                return ResponseEntity.notFound().build();
+        FileUpload file = fileOpt.get();
+        if (width != null && width > 0) {
+            Optional<String> variant = mediaPipelineService.findVariant(file, width);
+            if (variant.isPresent() && blobStore.exists(variant.get())) {
+                String variantName = variant.get().substring(variant.get().lastIndexOf('/') + 1);
+                serveFile(file, variant.get(), FileStorageService.mimeTypeOf(variantName),
+                        etagOf(file) + "-" + variantName, "inline", request, response);
+                return;
             }
-
-            String encodedFilename = URLEncoder.encode(file.getOriginalName(), StandardCharsets.UTF_8)
-                    .replace("+", "%20");
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(file.getMimeType() != null
-                            ? file.getMimeType()
-                            : "application/octet-stream"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename*=UTF-8''" + encodedFilename)
-                    .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(file.getFileSize()))
-                    .body(resource);
-
-        } catch (Exception e) {
-            log.error("文件下载失败: fileId={}", fileId, e);
-            return ResponseEntity.internalServerError().build();
+            // 尚未处理的图片（上传时队列已满、处理流程上线前的旧文件）补处理，本次返回原图
+            mediaPipelineService.submit(file);
         }
+        serveFile(file, "inline", request, response);
     }
 
+    // ==================== 辅助方法 ====================
+
     /**
-     * 在线预览文件
+     * 查找可下载的文件，不存在或未完成时返回 404，已过期时返回 410
      */
-    @GetMapping("/preview/{fileId}")
-    public ResponseEntity<Resource> previewFile(@PathVariable String fileId) {
-
+    private Optional<FileUpload> findServableFile(String fileId, HttpServletResponse response) {
         Optional<FileUpload> fileOpt = fileUploadRepository.findByFileId(fileId);
-        if (fileOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+        if (fileOpt.isEmpty() || !Boolean.TRUE.equals(fileOpt.get().getUploadComplete())) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return Optional.empty();
         }
 
-        FileUpload file = fileOpt.get();
-
         // 检查文件是否过期
+        FileUpload file = fileOpt.get();
         if (file.getExpiresAt() != null && file.getExpiresAt().isBefore(LocalDateTime.now())) {
-            return ResponseEntity.status(410).build(); // Gone
+            response.setStatus(HttpStatus.GONE.value());
+            return Optional.empty();
         }
+        return fileOpt;
+    }
 
-        try {
-            Path filePath = Paths.get(UPLOAD_DIR + file.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
+    private void serveFile(FileUpload file, String contentDisposition,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String contentType = file.getMimeType() != null ? file.getMimeType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        serveFile(file, FileStorageService.contentKey(file), contentType, etagOf(file), contentDisposition,
+                request, response);
+    }
 
-            if (!resource.exists()) {
-                return ResponseEntity.notFound().build();
-            }
+    /**
+     * 对象存储时重定向到预签名地址（Range、条件请求由存储端处理），本地存储时由 FileStreamer 返回
+     */
+    private void serveFile(FileUpload file, String key, String contentType, String etag,
+                           String contentDisposition,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Duration ttl = Duration.ofSeconds(presignTtlSeconds);
+        Optional<URI> presigned = blobStore.presignDownload(key, contentType, contentDisposition, ttl);
+        if (presigned.isPresent()) {
+            // 重定向可在预签名有效期内缓存
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + ttl.toSeconds() / 2);
+            response.sendRedirect(presigned.get().toString());
+            return;
+        }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(file.getMimeType() != null
-                            ? file.getMimeType()
-                            : "application/octet-stream"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                    .body(resource);
+        Optional<Path> localPath = blobStore.localPath(key);
+        if (localPath.isEmpty() || !Files.isRegularFile(localPath.get())) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
 
-        } catch (Exception e) {
-            log.error("文件预览失败: fileId={}", fileId, e);
-            return ResponseEntity.internalServerError().build();
+        try {
+            FileStreamer.serve(request, response, localPath.get(), contentType, contentDisposition, etag);
+        } catch (IOException e) {
+            // 客户端中断（拖动进度条、取消下载）时连接被关闭，属正常情况
+            log.debug("文件传输中断: fileId={}, error={}", file.getFileId(), e.getMessage());
         }
     }
 
-    // ==================== 辅助方法 ====================
+    /**
+     * 强 ETag 取内容哈希，旧记录没有哈希时用 fileId 和大小（文件按 fileId 不可变）
+     */
+    private String etagOf(FileUpload file) {
+        return file.getContentHash() != null ? file.getContentHash()
+                : file.getMd5Hash() != null ? file.getMd5Hash()
+                : file.getFileId() + "-" + file.getFileSize();
+    }
 
     private Map<String, Object> buildResponse(FileUpload file) {
         Map<String, Object> response = new HashMap<>();
@@ -307,84 +382,11 @@ public class FileUploadController {
         response.put("size", file.getFileSize());
         response.put("mimeType", file.getMimeType());
         response.put("expiresAt", file.getExpiresAt());
-        return response;
-    }
-
-    private String getExtension(String filename) {
-        if (filename == null || !filename.contains(".")) {
-            return "";
-        }
-        return filename.substring(filename.lastIndexOf("."));
-    }
-
-    private String getMimeType(String filename) {
-        if (filename == null) return "application/octet-stream";
-        String ext = getExtension(filename).toLowerCase();
-        return switch (ext) {
-            case ".jpg", ".jpeg" -> "image/jpeg";
-            case ".png" -> "image/png";
-            case ".gif" -> "image/gif";
-            case ".webp" -> "image/webp";
-            case ".pdf" -> "application/pdf";
-            case ".doc" -> "application/msword";
-            case ".docx" -> "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
-            case ".xls" -> "application/vnd.ms-excel";
-            case ".xlsx" -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
-            case ".ppt" -> "application/vnd.ms-powerpoint";
-            case ".pptx" -> "application/vnd.openxmlformats-officedocument.presentationml.presentation";
-            case ".mp4" -> "video/mp4";
-            case ".webm" -> "video/webm";
-            case ".mp3" -> "audio/mpeg";
-            case ".wav" -> "audio/wav";
-            case ".zip" -> "application/zip";
-            case ".rar" -> "application/x-rar-compressed";
-            case ".txt" -> "text/plain";
-            default -> "application/octet-stream";
-        };
-    }
-
-    private String calculateMD5(byte[] data) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(data);
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            return UUID.randomUUID().toString().replace("-", "");
-        }
-    }
-
-    private void mergeChunks(String fileId, int totalChunks, String targetPath) throws IOException {
-        Path mergedPath = Paths.get(targetPath);
-
-        for (int i = 0; i < totalChunks; i++) {
-            Path chunkPath = Paths.get(UPLOAD_DIR + "chunks/" + fileId + "/chunk_" + i);
-            byte[] chunkData = Files.readAllBytes(chunkPath);
-            Files.write(mergedPath, chunkData,
-                    java.nio.file.StandardOpenOption.CREATE,
-                    java.nio.file.StandardOpenOption.APPEND);
-        }
-
-        // 删除临时分片目录
-        deleteDirectory(new File(UPLOAD_DIR + "chunks/" + fileId));
-    }
-
-    private void deleteDirectory(File directory) {
-        if (directory.exists()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        deleteDirectory(file);
-                    } else {
-                        file.delete();
-                    }
-                }
-            }
-            directory.delete();
+        if (file.getWidth() != null) {
+            response.put("width", file.getWidth());
+            response.put("height", file.getHeight());
+            response.put("blurhash", file.getBlurhash());
         }
+        return response;
     }
 }
@@ -1,10 +1,15 @@
 package com.nexus.chat.controller;
 
+import com.nexus.chat.dto.ChatMediaPageDTO;
 import com.nexus.chat.dto.MessageDTO;
 import com.nexus.chat.dto.WebSocketMessage;
+import com.nexus.chat.model.Chat;
+import com.nexus.chat.model.ChatMedia;
 import com.nexus.chat.model.ChatMember;
 import com.nexus.chat.model.Message;
 import com.nexus.chat.repository.ChatMemberRepository;
+import com.nexus.chat.service.ChatMediaService;
+import com.nexus.chat.service.GroupMessageDeliveryService;
 import com.nexus.chat.service.MessageService;
 import com.nexus.chat.service.PresenceService;
 import com.nexus.chat.service.RedisCacheService;
@@ -16,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @RestController
@@ -24,10 +30,12 @@ import java.util.Map;
 public class MessageController {
 
     private final MessageService messageService;
+    private final ChatMediaService chatMediaService;
     private final ChatMemberRepository chatMemberRepository;
     private final PresenceService presenceService;
     private final RedisCacheService redisCacheService;
     private final RedisMessageRelay redisMessageRelay;
+    private final GroupMessageDeliveryService groupMessageDeliveryService;
 
     @PostMapping
     public ResponseEntity<MessageDTO> sendMessage(@RequestBody Map<String, Object> request) {
@@ -37,7 +45,7 @@ public class MessageController {
             String content = (String) request.get("content");
             String messageTypeStr = (String) request.get("messageType");
             String fileUrl = (String) request.get("fileUrl");
-            String clientMsgId = (String) request.get("clientMsgId");
+            String clientMsgId = Objects.toString(request.get("clientMsgId"), null);
 
             Message.MessageType messageType = messageTypeStr != null
                     ? Message.MessageType.valueOf(messageTypeStr)
@@ -74,6 +82,12 @@ public class MessageController {
                             "sequenceNumber", message.getSequenceNumber() != null ? message.getSequenceNumber() : 0L));
             sendToUserChannel(senderId, ackMessage);
 
+            // 群聊/频道: 只发布一次到共享主题 /topic/group/{id}
+            if (message.getChatType() != Chat.ChatType.direct) {
+                groupMessageDeliveryService.deliver(chatId, senderId, message.getChatType(), wsMessage);
+                return;
+            }
+
             // 通知所有成员（除发送者外）
             List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
             for (ChatMember member : members) {
@@ -113,6 +127,40 @@ public class MessageController {
         }
     }
 
+    /**
+     * 按序列号拉取消息 (频道成员重连后补齐离线期间的消息)
+     */
+    @GetMapping("/chat/{chatId}/after")
+    public ResponseEntity<List<MessageDTO>> getMessagesAfterSequence(
+            @PathVariable Long chatId,
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "0") long afterSeq,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            List<MessageDTO> messages = messageService.getMessagesAfterSequence(chatId, userId, afterSeq, limit);
+            return ResponseEntity.ok(messages);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 共享媒体 (按类型分页, before 传上一页返回的 nextBefore)
+     */
+    @GetMapping("/chat/{chatId}/media")
+    public ResponseEntity<ChatMediaPageDTO> getChatMedia(
+            @PathVariable Long chatId,
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "image") ChatMedia.MediaType type,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(chatMediaService.getMedia(chatId, userId, type, before, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{messageId}/read")
     public ResponseEntity<Void> markMessageAsRead(
             @PathVariable Long messageId,
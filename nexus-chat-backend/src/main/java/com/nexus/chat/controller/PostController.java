@@ -249,6 +249,24 @@ public class PostController {
         }
     }
 
+    /**
+     * 获取评论树（顶级评论及每楼前几条回复）
+     * GET /api/posts/{postId}/comments/tree?beforeId={lastId}&size=20&replies=3&userId={userId}
+     */
+    @GetMapping("/{postId}/comments/tree")
+    public ResponseEntity<?> getCommentTree(
+            @PathVariable Long postId,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "3") int replies,
+            @RequestParam(required = false) Long userId) {
+        try {
+            return ResponseEntity.ok(postService.getCommentTree(postId, beforeId, size, replies, userId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(errorResponse(e.getMessage()));
+        }
+    }
+
     /**
      * 删除评论
      */
@@ -282,12 +300,19 @@ public class PostController {
     /**
      * 获取评论的回复列表
      * GET /api/posts/comments/{commentId}/replies?userId={userId}
+     * 传 afterId 或 size 时按键集分页：afterId 为上一页最后一条回复的 id
      */
     @GetMapping("/comments/{commentId}/replies")
     public ResponseEntity<?> getCommentReplies(
             @PathVariable Long commentId,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer size,
             @RequestParam(required = false) Long userId) {
         try {
+            if (afterId != null || size != null) {
+                return ResponseEntity.ok(postService.getCommentReplies(commentId, afterId,
+                        size != null ? size : 20, userId));
+            }
             return ResponseEntity.ok(postService.getCommentReplies(commentId, userId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(errorResponse(e.getMessage()));
@@ -11,6 +11,8 @@ import com.nexus.chat.repository.MessageRepository;
 import com.nexus.chat.repository.UserRepository;
 import com.nexus.chat.model.ChatMember;
 import com.nexus.chat.model.User;
+import com.nexus.chat.service.ChatService;
+import com.nexus.chat.service.MessageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -158,6 +160,7 @@ public class SyncController {
         dto.setCreatedAt(msg.getCreatedAt());
         dto.setSequenceNumber(msg.getSequenceNumber());
         dto.setClientMsgId(msg.getClientMessageId());
+        MessageService.applyAttachment(dto, msg);
         return dto;
     }
 
@@ -192,8 +195,13 @@ public class SyncController {
         dto.setCreatedAt(chat.getCreatedAt());
         dto.setLastMessageAt(chat.getLastMessageAt());
 
-        // Load members
-        List<ChatMember> members = chatMemberRepository.findByChatId(chat.getId());
+        // Load members (channels: only the current user's row, the full list is unbounded)
+        boolean isChannel = chat.getType() == Chat.ChatType.channel;
+        List<ChatMember> members = isChannel
+                ? chatMemberRepository.findByChatIdAndUserId(chat.getId(), currentUserId)
+                        .map(List::of)
+                        .orElse(Collections.emptyList())
+                : chatMemberRepository.findByChatId(chat.getId());
         Set<Long> memberUserIds = members.stream().map(ChatMember::getUserId).collect(Collectors.toSet());
         List<User> users = userRepository.findAllByIdIn(memberUserIds);
         Map<Long, User> usersById = users.stream().collect(Collectors.toMap(User::getId, Function.identity()));
@@ -214,7 +222,7 @@ public class SyncController {
                 })
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
-        dto.setMembers(memberDTOs);
+        dto.setMembers(isChannel ? Collections.emptyList() : memberDTOs);
 
         // For direct chat, set name as the other user's nickname
         if (chat.getType() == Chat.ChatType.direct && dto.getName() == null) {
@@ -225,33 +233,35 @@ public class SyncController {
         }
 
         // Load last message
-        messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId())
-                .ifPresent(lastMsg -> {
-                    User sender = usersById.get(lastMsg.getSenderId());
-                    if (sender == null) {
-                        sender = userRepository.findById(lastMsg.getSenderId()).orElse(null);
-                    }
-                    if (sender != null) {
-                        MessageDTO msgDTO = new MessageDTO();
-                        msgDTO.setId(lastMsg.getId());
-                        msgDTO.setChatId(lastMsg.getChatId());
-                        msgDTO.setSenderId(lastMsg.getSenderId());
-                        msgDTO.setSenderNickname(sender.getNickname());
-                        msgDTO.setSenderAvatar(sender.getAvatarUrl());
-                        msgDTO.setContent(lastMsg.getContent());
-                        msgDTO.setMessageType(lastMsg.getMessageType());
-                        msgDTO.setFileUrl(lastMsg.getFileUrl());
-                        msgDTO.setCreatedAt(lastMsg.getCreatedAt());
-                        msgDTO.setSequenceNumber(lastMsg.getSequenceNumber());
-                        dto.setLastMessage(msgDTO);
-                    }
-                });
+        Optional<Message> lastMessage = messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId());
+        lastMessage.ifPresent(lastMsg -> {
+            User sender = usersById.get(lastMsg.getSenderId());
+            if (sender == null) {
+                sender = userRepository.findById(lastMsg.getSenderId()).orElse(null);
+            }
+            if (sender != null) {
+                MessageDTO msgDTO = new MessageDTO();
+                msgDTO.setId(lastMsg.getId());
+                msgDTO.setChatId(lastMsg.getChatId());
+                msgDTO.setSenderId(lastMsg.getSenderId());
+                msgDTO.setSenderNickname(sender.getNickname());
+                msgDTO.setSenderAvatar(sender.getAvatarUrl());
+                msgDTO.setContent(lastMsg.getContent());
+                msgDTO.setMessageType(lastMsg.getMessageType());
+                msgDTO.setFileUrl(lastMsg.getFileUrl());
+                msgDTO.setCreatedAt(lastMsg.getCreatedAt());
+                msgDTO.setSequenceNumber(lastMsg.getSequenceNumber());
+                dto.setLastMessage(msgDTO);
+            }
+        });
 
         // Set unread count for current user
         members.stream()
                 .filter(m -> m.getUserId().equals(currentUserId))
                 .findFirst()
-                .ifPresent(member -> dto.setUnreadCount(member.getUnreadCount()));
+                .ifPresent(member -> dto.setUnreadCount(isChannel
+                        ? ChatService.channelUnreadCount(member, lastMessage.orElse(null))
+                        : member.getUnreadCount()));
 
         return dto;
     }
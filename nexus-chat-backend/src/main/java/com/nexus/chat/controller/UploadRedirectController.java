@@ -0,0 +1,90 @@
+package com.nexus.chat.controller;
+
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.service.FileStorageService;
+import com.nexus.chat.storage.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 对象存储模式下的 /uploads/** 地址
+ * 文件不在本地，消息、帖子和头像中保存的 /uploads/... 地址重定向到对象的预签名地址：
+ * 上传文件地址 /uploads/yyyy/MM/dd/{fileId}.ext 按 fileId 找到内容，与下载接口一样未完成返回 404、已过期返回 410；
+ * 其余路径只开放头像和图片变体（缩略图），直接对应对象路径，原始内容（blobs/、incoming/ 等）不能绕过上传记录访问。
+ * 本地存储时不注册，由 WebMvcConfig（或 nginx）直接返回文件。
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.type", havingValue = "s3")
+public class UploadRedirectController {
+
+    private static final String PREFIX = "/uploads/";
+
+    private static final Pattern UPLOAD_PATH = Pattern.compile(
+            "\\d{4}/\\d{2}/\\d{2}/([0-9a-fA-F-]{36})(\\.[A-Za-z0-9]+)?");
+
+    private static final List<String> PUBLIC_PREFIXES = List.of("avatars/", "variants/");
+
+    private final FileUploadRepository fileUploadRepository;
+    private final BlobStore blobStore;
+
+    @Value("${storage.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
+
+    @GetMapping(PREFIX + "**")
+    public void redirect(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = request.getRequestURI().substring(request.getContextPath().length() + PREFIX.length());
+        if (key.isEmpty() || key.contains("..")) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        String contentType = FileStorageService.mimeTypeOf(key);
+        Matcher matcher = UPLOAD_PATH.matcher(key);
+        if (matcher.matches()) {
+            Optional<FileUpload> fileOpt = fileUploadRepository.findByFileId(matcher.group(1));
+            if (fileOpt.isEmpty() || !Boolean.TRUE.equals(fileOpt.get().getUploadComplete())) {
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            FileUpload file = fileOpt.get();
+            if (file.getExpiresAt() != null && file.getExpiresAt().isBefore(LocalDateTime.now())) {
+                response.setStatus(HttpStatus.GONE.value());
+                return;
+            }
+            key = FileStorageService.contentKey(file);
+            if (file.getMimeType() != null) {
+                contentType = file.getMimeType();
+            }
+        } else if (PUBLIC_PREFIXES.stream().noneMatch(key::startsWith)) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        Duration ttl = Duration.ofSeconds(presignTtlSeconds);
+        Optional<URI> presigned = blobStore.presignDownload(key, contentType, "inline", ttl);
+        if (presigned.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + ttl.toSeconds() / 2);
+        response.sendRedirect(presigned.get().toString());
+    }
+}
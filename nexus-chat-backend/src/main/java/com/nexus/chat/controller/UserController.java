@@ -71,12 +71,14 @@ public class UserController {
     }
 
     /**
-     * Search users by query (username, nickname, or email)
-     * GET /api/users/search?query={query}
+     * Search users by query (username or nickname fragment, or exact public email)
+     * GET /api/users/search?query={query}&limit={limit}
      */
     @GetMapping("/search")
-    public ResponseEntity<List<UserDTO>> searchUsers(@RequestParam String query) {
-        List<UserDTO> users = userService.searchUsers(query);
+    public ResponseEntity<List<UserDTO>> searchUsers(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<UserDTO> users = userService.searchUsers(query, limit);
         return ResponseEntity.ok(users);
     }
 
@@ -0,0 +1,30 @@
+package com.nexus.chat.dto;
+
+import com.nexus.chat.model.ChatMedia;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 共享媒体条目DTO（只含缩略图，原文件通过 previewUrl / downloadUrl 按需加载）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMediaDTO {
+    private Long messageId;
+    private Long sequenceNumber;
+    private Long senderId;
+    private ChatMedia.MediaType mediaType;
+    private String fileId;
+    private String fileName;
+    private Long fileSize;
+    private String mimeType;
+    // 缩略图地址（非图片文件没有缩略图时为空）
+    private String thumbnailUrl;
+    private String previewUrl;
+    private String downloadUrl;
+    private LocalDateTime createdAt;
+}
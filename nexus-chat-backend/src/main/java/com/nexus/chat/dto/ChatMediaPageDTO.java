@@ -0,0 +1,23 @@
+package com.nexus.chat.dto;
+
+import com.nexus.chat.model.ChatMedia;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 共享媒体分页结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMediaPageDTO {
+    private List<ChatMediaDTO> items;
+    // 下一页的 before 参数（没有更多时为空）
+    private Long nextBefore;
+    // 各类型的媒体总数
+    private Map<ChatMedia.MediaType, Long> counts;
+}
@@ -1,5 +1,6 @@
 package com.nexus.chat.dto;
 
+import com.nexus.chat.model.Chat;
 import com.nexus.chat.model.Message;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -26,6 +27,9 @@ public class MessageDTO {
     private Long sequenceNumber;
     private String clientMsgId;
 
+    // Set on send so delivery can pick the fan-out strategy
+    private Chat.ChatType chatType;
+
     // 文件消息扩展字段
     private String fileId;
     private String fileName;
@@ -33,4 +37,5 @@ public class MessageDTO {
     private String mimeType;
     private String downloadUrl;
     private String previewUrl;
+    private String thumbnailUrl;
 }
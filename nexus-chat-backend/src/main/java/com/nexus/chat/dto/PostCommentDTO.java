@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 帖子评论DTO
@@ -32,4 +33,8 @@ public class PostCommentDTO {
 
     // 时间
     private LocalDateTime createdAt;
+
+    // 楼层回复（仅评论树接口返回）
+    private Long replyCount;
+    private List<PostCommentDTO> replies;
 }
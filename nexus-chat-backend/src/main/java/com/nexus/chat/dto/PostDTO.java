@@ -26,6 +26,12 @@ public class PostDTO {
     private String title;
     private String content;
     private List<String> images;
+    // 图片尺寸、BlurHash 和缩略图，与 images 一一对应
+    private List<PostImageDTO> imageDetails;
+
+    // 搜索结果高亮（HTML 已转义，命中词以 <em> 包裹），仅搜索接口返回
+    private String titleHighlight;
+    private String contentHighlight;
 
     // 统计数据
     private Integer upvoteCount;
@@ -0,0 +1,21 @@
+package com.nexus.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 帖子图片DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostImageDTO {
+    // 原图地址
+    private String url;
+    // 列表缩略图地址（外部图片为原图地址）
+    private String thumbnailUrl;
+    private Integer width;
+    private Integer height;
+    private String blurhash;
+}
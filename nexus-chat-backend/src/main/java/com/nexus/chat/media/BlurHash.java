@@ -0,0 +1,107 @@
+package com.nexus.chat.media;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * BlurHash 编码（https://blurha.sh）
+ * 把图片压缩成二三十个字符的模糊占位图，客户端在原图加载完成前先绘制它。
+ * 调用方应传入已缩小的图片，编码耗时与像素数成正比。
+ */
+public final class BlurHash {
+
+    private static final String CHARS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    public static String encode(BufferedImage image, int componentsX, int componentsY) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = basis(pixels, width, height, i, j);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        double maxValue;
+        if (factors.length > 1) {
+            double actualMax = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double component : factors[k]) {
+                    actualMax = Math.max(actualMax, Math.abs(component));
+                }
+            }
+            int quantisedMax = (int) Math.max(0, Math.min(82, Math.floor(actualMax * 166 - 0.5)));
+            maxValue = (quantisedMax + 1) / 166.0;
+            encode83(hash, quantisedMax, 1);
+        } else {
+            maxValue = 1;
+            encode83(hash, 0, 1);
+        }
+
+        double[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            int r = quantiseAc(ac[0], maxValue);
+            int g = quantiseAc(ac[1], maxValue);
+            int b = quantiseAc(ac[2], maxValue);
+            encode83(hash, r * 19 * 19 + g * 19 + b, 2);
+        }
+        return hash.toString();
+    }
+
+    private static double[] basis(int[] pixels, int width, int height, int i, int j) {
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        double normalisation = (i == 0 && j == 0) ? 1 : 2;
+        for (int y = 0; y < height; y++) {
+            double cosY = Math.cos(Math.PI * j * y / height);
+            for (int x = 0; x < width; x++) {
+                double weight = normalisation * Math.cos(Math.PI * i * x / width) * cosY;
+                int rgb = pixels[y * width + x];
+                r += weight * srgbToLinear((rgb >> 16) & 0xff);
+                g += weight * srgbToLinear((rgb >> 8) & 0xff);
+                b += weight * srgbToLinear(rgb & 0xff);
+            }
+        }
+        double scale = 1.0 / (width * height);
+        return new double[]{r * scale, g * scale, b * scale};
+    }
+
+    private static int quantiseAc(double value, double maxValue) {
+        double quantised = Math.floor(signPow(value / maxValue, 0.5) * 9 + 9.5);
+        return (int) Math.max(0, Math.min(18, quantised));
+    }
+
+    private static double signPow(double value, double exp) {
+        return Math.copySign(Math.pow(Math.abs(value), exp), value);
+    }
+
+    private static double srgbToLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) (v * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / (int) Math.pow(83, length - i)) % 83;
+            out.append(CHARS.charAt(digit));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.nexus.chat.media;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 读取 JPEG 的 EXIF 方向（0x0112）
+ * 重新编码会丢弃 EXIF，手机拍摄的照片需要先按方向旋转，否则缩略图方向错误。
+ * 只扫描文件头部的 APP1 段，不依赖第三方库。
+ */
+public final class ExifOrientation {
+
+    public static final int NORMAL = 1;
+
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final int MAX_SCAN_BYTES = 256 * 1024;
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * 返回 1-8 的方向值，不是 JPEG 或没有方向信息时返回 NORMAL
+     */
+    public static int read(Path file) {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readUnsignedShort() != 0xFFD8) {
+                return NORMAL;
+            }
+            int scanned = 2;
+            while (scanned < MAX_SCAN_BYTES) {
+                int marker = in.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) {
+                    // 非法标记或已到图像数据
+                    return NORMAL;
+                }
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return NORMAL;
+                }
+                if (marker == 0xFFE1) {
+                    byte[] segment = in.readNBytes(length);
+                    int orientation = parseApp1(segment);
+                    if (orientation != 0) {
+                        return orientation;
+                    }
+                } else {
+                    skipFully(in, length);
+                }
+                scanned += 4 + length;
+            }
+        } catch (IOException | RuntimeException e) {
+            return NORMAL;
+        }
+        return NORMAL;
+    }
+
+    private static int parseApp1(byte[] segment) {
+        // "Exif\0\0" 之后是 TIFF 头
+        if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) == 'M' && tiff.get(1) == 'M') {
+            tiff.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return 0;
+        }
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return 0;
+        }
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                return 0;
+            }
+            if ((tiff.getShort(entry) & 0xFFFF) == ORIENTATION_TAG) {
+                int value = tiff.getShort(entry + 8) & 0xFFFF;
+                return value >= 1 && value <= 8 ? value : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static void skipFully(InputStream in, int length) throws IOException {
+        in.skipNBytes(length);
+    }
+}
@@ -0,0 +1,182 @@
+package com.nexus.chat.media;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * 图片解码、缩放与编码（纯 Java ImageIO）
+ * 解码时按目标最大宽度隔行采样，大图不会整张解码进内存；
+ * 输出不写入任何元数据（EXIF、GPS 等被去除），方向在缩放后按 EXIF 旋转。
+ */
+public final class ImageVariants {
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    // 采样后仍超过该像素数的图片不解码（细长图无法靠按宽度采样缩小）
+    private static final long MAX_DECODED_PIXELS = 40_000_000L;
+
+    private ImageVariants() {
+    }
+
+    /**
+     * 读取图片并按 EXIF 方向摆正，解码后的显示宽度不小于 minWidth（原图更小时按原尺寸解码）
+     */
+    public static Decoded decode(Path file, int minWidth) throws IOException {
+        return decode(file, minWidth, false);
+    }
+
+    /**
+     * 读取图片并按 EXIF 方向摆正，解码后的短边不小于 minSide（用于裁成正方形的头像，
+     * 横长图按宽度采样后高度即裁剪边长会小于目标尺寸）
+     */
+    public static Decoded decodeMinSide(Path file, int minSide) throws IOException {
+        return decode(file, minSide, true);
+    }
+
+    private static Decoded decode(Path file, int minSize, boolean shortSide) throws IOException {
+        int orientation = ExifOrientation.read(file);
+        boolean swap = orientation >= 5 && orientation <= 8;
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                throw new IOException("无法读取图片");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("不支持的图片格式");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int displayWidth = swap ? height : width;
+                int sampledSide = shortSide ? Math.min(width, height) : displayWidth;
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, sampledSide / Math.max(1, minSize));
+                param.setSourceSubsampling(step, step, 0, 0);
+                if ((long) (width / step) * (height / step) > MAX_DECODED_PIXELS) {
+                    throw new IOException("图片尺寸过大: " + width + "x" + height);
+                }
+                BufferedImage image = orient(reader.read(0, param), orientation);
+                return new Decoded(image, displayWidth, swap ? width : height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 逐级减半缩放到目标宽度，保持宽高比（不放大）
+     */
+    public static BufferedImage scaleToWidth(BufferedImage source, int targetWidth) {
+        if (source.getWidth() <= targetWidth) {
+            return source;
+        }
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            int nextWidth = Math.max(targetWidth, width / 2);
+            int nextHeight = Math.max(1, (int) Math.round((double) height * nextWidth / width));
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+            width = nextWidth;
+            height = nextHeight;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    /**
+     * 按 EXIF 方向（1-8）旋转/翻转
+     */
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= ExifOrientation.NORMAL || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+            default -> new AffineTransform(0, -1, 1, 0, 0, w);
+        };
+        boolean swap = orientation >= 5;
+        BufferedImage rotated = new BufferedImage(swap ? h : w, swap ? w : h,
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rotated.createGraphics();
+        try {
+            g.drawImage(image, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return rotated;
+    }
+
+    /**
+     * 编码输出：不透明图片为 JPEG，带透明通道的为 PNG（扩展名见 extensionFor）
+     */
+    public static void write(BufferedImage image, Path target) throws IOException {
+        boolean alpha = image.getColorModel().hasAlpha();
+        String format = alpha ? "png" : "jpeg";
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        Files.deleteIfExists(target);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!alpha) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * 居中裁剪为正方形（头像）
+     */
+    public static BufferedImage cropSquare(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        return image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+    }
+
+    public static String extensionFor(BufferedImage image) {
+        return image.getColorModel().hasAlpha() ? ".png" : ".jpg";
+    }
+
+    /**
+     * 解码结果；width/height 为按方向摆正后的原图尺寸，image 可能是采样后的小图
+     */
+    public record Decoded(BufferedImage image, int width, int height) {
+    }
+}
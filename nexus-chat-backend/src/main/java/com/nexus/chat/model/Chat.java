@@ -50,8 +50,13 @@ public class Chat {
     @Column(name = "last_message_at")
     private LocalDateTime lastMessageAt;
 
+    /**
+     * channel: broadcast chat for very large audiences. Messages are written once,
+     * members track a read cursor instead of per-message read rows, and delivery
+     * goes through the shared /topic/group/{id} destination.
+     */
     public enum ChatType {
-        direct, group
+        direct, group, channel
     }
 
 }
@@ -0,0 +1,88 @@
+package com.nexus.chat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 聊天媒体索引实体
+ * 每条带附件的消息一行，按 (chat_id, media_type, sequence_number) 建索引，
+ * 共享媒体页按序列号键集分页，不再扫描消息表或关联上传记录。
+ * 附件过期清理时删除对应的行。
+ */
+@Entity
+@Table(name = "chat_media", indexes = {
+    @Index(name = "idx_chat_media_gallery", columnList = "chat_id, media_type, sequence_number"),
+    @Index(name = "idx_chat_media_file_id", columnList = "file_id")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_chat_media_message", columnNames = "message_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMedia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId;
+
+    /**
+     * 消息在聊天中的序列号（分页键）
+     */
+    @Column(name = "sequence_number", nullable = false)
+    private Long sequenceNumber;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(name = "sender_id", nullable = false)
+    private Long senderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "media_type", nullable = false, length = 10)
+    private MediaType mediaType;
+
+    @Column(name = "file_id", nullable = false, length = 36)
+    private String fileId;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "mime_type", length = 100)
+    private String mimeType;
+
+    /**
+     * 缩略图路径（相对 uploads/），图片处理完成后写入
+     */
+    @Column(name = "thumbnail_path", length = 500)
+    private String thumbnailPath;
+
+    /**
+     * 消息发送时间
+     */
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public enum MediaType {
+        image, video, file;
+
+        public static MediaType of(String mimeType) {
+            if (mimeType != null && mimeType.startsWith("image/")) {
+                return image;
+            }
+            if (mimeType != null && mimeType.startsWith("video/")) {
+                return video;
+            }
+            return file;
+        }
+    }
+}
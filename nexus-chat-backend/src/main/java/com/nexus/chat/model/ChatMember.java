@@ -41,6 +41,12 @@ public class ChatMember {
     @Column(name = "unread_count")
     private Integer unreadCount = 0;
 
+    /**
+     * Highest message sequence number this member has read (channel chats only).
+     */
+    @Column(name = "last_read_seq")
+    private Long lastReadSequence = 0L;
+
     @CreationTimestamp
     @Column(name = "joined_at", updatable = false)
     private LocalDateTime joinedAt;
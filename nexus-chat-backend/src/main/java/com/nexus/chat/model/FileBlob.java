@@ -0,0 +1,46 @@
+package com.nexus.chat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 内容寻址的文件数据
+ * 相同内容（SHA-256）只存一份，refCount 为引用它的上传记录数，归零后由清理任务删除
+ */
+@Entity
+@Table(name = "file_blobs", indexes = {
+    @Index(name = "idx_file_blobs_ref_count", columnList = "ref_count")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private Long size;
+
+    /**
+     * 相对 uploads/ 的存储路径: blobs/ab/cd/{sha256}
+     */
+    @Column(name = "storage_path", nullable = false, length = 200)
+    private String storagePath;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -9,7 +9,11 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "file_uploads")
+@Table(name = "file_uploads", indexes = {
+    @Index(name = "idx_file_uploads_content_hash", columnList = "content_hash"),
+    @Index(name = "idx_file_uploads_expires_at", columnList = "expires_at"),
+    @Index(name = "idx_file_uploads_incomplete", columnList = "upload_complete, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -43,9 +47,28 @@ public class FileUpload {
     @Column(name = "md5_hash", length = 32)
     private String md5Hash;
 
+    /**
+     * 内容的 SHA-256，对应 file_blobs.sha256（旧记录为空，文件单独存放）
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * 最小尺寸的缩略图，其他宽度的变体在同一目录（见 MediaPipelineService）
+     */
     @Column(name = "thumbnail_path", length = 500)
     private String thumbnailPath;
 
+    /**
+     * 图片尺寸（按 EXIF 方向摆正后）和 BlurHash，媒体处理完成后写入
+     */
+    private Integer width;
+
+    private Integer height;
+
+    @Column(length = 64)
+    private String blurhash;
+
     @Column(name = "uploader_id")
     private Long uploaderId;
 
@@ -55,6 +78,12 @@ public class FileUpload {
     @Column(name = "chunk_count")
     private Integer chunkCount = 1;
 
+    /**
+     * 分片大小（最后一个分片可以更小），分片按 chunkIndex * chunkSize 写入
+     */
+    @Column(name = "chunk_size")
+    private Long chunkSize;
+
     @Column(name = "upload_complete")
     private Boolean uploadComplete = false;
 
@@ -0,0 +1,40 @@
+package com.nexus.chat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分片上传已接收的分片
+ * 每个分片写入预分配文件后记录一行，用于断点续传查询和判断上传是否完成
+ */
+@Entity
+@Table(name = "file_upload_chunks", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_file_upload_chunk", columnNames = {"file_id", "chunk_index"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileUploadChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_id", nullable = false, length = 36)
+    private String fileId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -9,7 +9,9 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    @Index(name = "idx_messages_file_id", columnList = "file_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,6 +37,28 @@ public class Message {
     @Column(name = "file_url", columnDefinition = "TEXT")
     private String fileUrl;
 
+    /**
+     * 附件的 fileId（对 file_uploads.file_id 的逻辑引用，上传文件会过期清理，不建外键）
+     */
+    @Column(name = "file_id", length = 36)
+    private String fileId;
+
+    // 附件摘要，发送时从上传记录复制，读取历史消息时不再关联查询
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "file_mime_type", length = 100)
+    private String fileMimeType;
+
+    /**
+     * 缩略图路径（相对 uploads/），图片处理完成后写入
+     */
+    @Column(name = "file_thumbnail", length = 500)
+    private String fileThumbnail;
+
     @Column(name = "sequence_number")
     private Long sequenceNumber;
 
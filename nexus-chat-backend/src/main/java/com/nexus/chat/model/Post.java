@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -13,9 +14,11 @@ import java.util.List;
 
 /**
  * 社区帖子实体
+ * 计数字段由仓库方法原子增减，实体保存时只更新变更的列，避免覆盖并发计数
  */
 @Entity
 @Table(name = "posts")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -46,6 +49,7 @@ public class Post {
 
     /**
      * 图片URL列表 (JSON格式存储)
+     * 已由 post_images 取代，仅保留未迁移的旧数据，迁移后置空
      */
     @Column(columnDefinition = "TEXT")
     private String images;
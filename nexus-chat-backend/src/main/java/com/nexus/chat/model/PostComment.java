@@ -5,15 +5,20 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
 /**
  * 帖子评论实体
+ * 计数字段由仓库方法原子增减，实体保存时只更新变更的列，避免覆盖并发计数
  */
 @Entity
-@Table(name = "post_comments")
+@Table(name = "post_comments", indexes = {
+        @Index(name = "idx_post_comments_parent", columnList = "parent_id, id")
+})
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
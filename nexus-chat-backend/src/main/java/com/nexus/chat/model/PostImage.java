@@ -0,0 +1,60 @@
+package com.nexus.chat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 帖子图片实体
+ * 每张图片一行，记录尺寸和 BlurHash，并关联到上传文件（file_uploads.file_id）
+ */
+@Entity
+@Table(name = "post_images", indexes = {
+    @Index(name = "idx_post_images_post", columnList = "post_id, position"),
+    @Index(name = "idx_post_images_file", columnList = "file_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostImage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    /**
+     * 图片在帖子中的顺序
+     */
+    @Column(nullable = false)
+    private Integer position;
+
+    /**
+     * 原图地址
+     */
+    @Column(nullable = false, length = 1000)
+    private String url;
+
+    /**
+     * 关联的上传文件ID（外部图片为空）
+     */
+    @Column(name = "file_id", length = 36)
+    private String fileId;
+
+    private Integer width;
+
+    private Integer height;
+
+    @Column(length = 64)
+    private String blurhash;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
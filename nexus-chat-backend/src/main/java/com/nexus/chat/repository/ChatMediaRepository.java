@@ -0,0 +1,51 @@
+package com.nexus.chat.repository;
+
+import com.nexus.chat.model.ChatMedia;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChatMediaRepository extends JpaRepository<ChatMedia, Long> {
+
+    /**
+     * Gallery page of one media type, newest first, before a sequence number (keyset)
+     */
+    List<ChatMedia> findByChatIdAndMediaTypeAndSequenceNumberLessThanOrderBySequenceNumberDesc(
+            Long chatId, ChatMedia.MediaType mediaType, Long sequenceNumber, Pageable pageable);
+
+    /**
+     * Media count of a chat per type, as [mediaType, count] rows
+     */
+    @Query("SELECT c.mediaType, COUNT(c) FROM ChatMedia c WHERE c.chatId = :chatId GROUP BY c.mediaType")
+    List<Object[]> countByMediaType(@Param("chatId") Long chatId);
+
+    List<ChatMedia> findByFileIdIn(Collection<String> fileIds);
+
+    /**
+     * Message ids among the given ones that are already indexed (backfill)
+     */
+    @Query("SELECT c.messageId FROM ChatMedia c WHERE c.messageId IN :messageIds")
+    List<Long> findIndexedMessageIds(@Param("messageIds") Collection<Long> messageIds);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatMedia c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Set the thumbnail on entries of a file once its image processing finishes
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatMedia c SET c.thumbnailPath = :thumbnailPath WHERE c.fileId = :fileId AND c.thumbnailPath IS NULL")
+    int updateThumbnail(@Param("fileId") String fileId, @Param("thumbnailPath") String thumbnailPath);
+
+}
@@ -57,6 +57,11 @@ public interface ChatMemberRepository extends JpaRepository<ChatMember, Long> {
      */
     List<ChatMember> findByChatIdIn(List<Long> chatIds);
 
+    /**
+     * Batch find one user's memberships in the given chats (channel rows without the full member list)
+     */
+    List<ChatMember> findByChatIdInAndUserId(List<Long> chatIds, Long userId);
+
     /**
      * Reset unread count for a user in a chat (single query instead of find+save)
      */
@@ -74,4 +79,14 @@ public interface ChatMemberRepository extends JpaRepository<ChatMember, Long> {
            "WHERE cm.chatId = :chatId AND cm.userId != :senderId")
     void incrementUnreadForOthers(@Param("chatId") Long chatId, @Param("senderId") Long senderId);
 
+    /**
+     * Move a member's channel read cursor forward (never backwards)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatMember cm SET cm.lastReadSequence = :seq " +
+           "WHERE cm.chatId = :chatId AND cm.userId = :userId " +
+           "AND (cm.lastReadSequence IS NULL OR cm.lastReadSequence < :seq)")
+    int advanceReadCursor(@Param("chatId") Long chatId, @Param("userId") Long userId, @Param("seq") Long seq);
+
 }
@@ -1,10 +1,13 @@
 package com.nexus.chat.repository;
 
 import com.nexus.chat.model.Chat;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -62,4 +65,26 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
      */
     List<Chat> findByIdIn(List<Long> ids);
 
+    /**
+     * Atomically adjust member count (channel joins without a COUNT over all members)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Chat c SET c.memberCount = c.memberCount + :delta WHERE c.id = :chatId")
+    void adjustMemberCount(@Param("chatId") Long chatId, @Param("delta") int delta);
+
+    /**
+     * Group chats whose avatar is still an inline data: URL (keyset-paged by id for the avatar migration)
+     */
+    @Query("SELECT c.id FROM Chat c WHERE c.id > :afterId AND c.avatarUrl LIKE 'data:%' ORDER BY c.id")
+    List<Long> findIdsWithInlineAvatar(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Replace an inline avatar with its stored URL; no-op if the avatar changed meanwhile
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Chat c SET c.avatarUrl = :avatarUrl WHERE c.id = :id AND c.avatarUrl LIKE 'data:%'")
+    int replaceInlineAvatar(@Param("id") Long id, @Param("avatarUrl") String avatarUrl);
+
 }
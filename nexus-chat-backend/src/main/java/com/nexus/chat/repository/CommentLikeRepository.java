@@ -2,19 +2,34 @@ package com.nexus.chat.repository;
 
 import com.nexus.chat.model.CommentLike;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * 评论点赞仓库
  */
 @Repository
-public interface CommentLikeRepository extends JpaRepository<CommentLike, Long> {
+public interface CommentLikeRepository extends JpaRepository<CommentLike, Long>, CommentLikeRepositoryCustom {
 
     Optional<CommentLike> findByCommentIdAndUserId(Long commentId, Long userId);
 
     boolean existsByCommentIdAndUserId(Long commentId, Long userId);
 
+    // 批量查询用户对一页评论的点赞
+    List<CommentLike> findByUserIdAndCommentIdIn(Long userId, Collection<Long> commentIds);
+
     void deleteByCommentId(Long commentId);
+
+    // 取消点赞；返回 1 表示本次删除生效
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CommentLike l WHERE l.comment.id = :commentId AND l.user.id = :userId")
+    int deleteLike(@Param("commentId") Long commentId, @Param("userId") Long userId);
 }
@@ -0,0 +1,12 @@
+package com.nexus.chat.repository;
+
+/**
+ * 评论点赞仓库的 JDBC 扩展
+ */
+public interface CommentLikeRepositoryCustom {
+
+    /**
+     * 点赞，已点赞时不插入；返回 1 表示本次插入生效
+     */
+    int insertIfAbsent(Long commentId, Long userId);
+}
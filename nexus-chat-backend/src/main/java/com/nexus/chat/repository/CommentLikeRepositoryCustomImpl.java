@@ -0,0 +1,24 @@
+package com.nexus.chat.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 点赞的 JDBC 实现，见 UniqueInserts
+ */
+@RequiredArgsConstructor
+public class CommentLikeRepositoryCustomImpl implements CommentLikeRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO comment_likes (comment_id, user_id, created_at) VALUES (?, ?, NOW())";
+    private static final String EXISTS_SQL =
+            "SELECT id FROM comment_likes WHERE comment_id = ? AND user_id = ? FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertIfAbsent(Long commentId, Long userId) {
+        return UniqueInserts.insertIfAbsent(jdbcTemplate, INSERT_SQL, new Object[]{commentId, userId},
+                EXISTS_SQL, new Object[]{commentId, userId});
+    }
+}
@@ -2,6 +2,8 @@ package com.nexus.chat.repository;
 
 import com.nexus.chat.model.Contact;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -24,4 +26,31 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
      */
     List<Contact> findByContactUserId(Long contactUserId);
 
+    /**
+     * IDs of users who have the given user as a contact (activity timeline fan-out targets)
+     */
+    @Query("SELECT c.userId FROM Contact c WHERE c.contactUserId = :contactUserId")
+    List<Long> findUserIdsByContactUserId(@Param("contactUserId") Long contactUserId);
+
+    /**
+     * Number of users who have the given user as a contact (decides fan-out before loading IDs)
+     */
+    long countByContactUserId(Long contactUserId);
+
+    /**
+     * Contact user IDs of the given user
+     */
+    @Query("SELECT c.contactUserId FROM Contact c WHERE c.userId = :userId")
+    List<Long> findContactUserIds(@Param("userId") Long userId);
+
+    /**
+     * Friends of friends with the number of mutual contacts: [candidateId, mutualCount].
+     * Used to build the recommendation candidate pool.
+     */
+    @Query(value = "SELECT c2.contact_user_id, COUNT(*) AS mutual FROM contacts c1 " +
+            "JOIN contacts c2 ON c2.user_id = c1.contact_user_id " +
+            "WHERE c1.user_id = :userId AND c2.contact_user_id <> :userId " +
+            "GROUP BY c2.contact_user_id ORDER BY mutual DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findFriendsOfFriends(@Param("userId") Long userId, @Param("limit") int limit);
+
 }
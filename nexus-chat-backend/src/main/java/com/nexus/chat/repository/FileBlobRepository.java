@@ -0,0 +1,49 @@
+package com.nexus.chat.repository;
+
+import com.nexus.chat.model.FileBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 文件数据仓库
+ */
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, Long> {
+
+    Optional<FileBlob> findBySha256(String sha256);
+
+    // 增加引用，内容不存在时插入新记录（引用数为 1）；持有行锁直到事务结束
+    @Modifying
+    @Query(value = "INSERT INTO file_blobs (sha256, size, storage_path, ref_count, created_at) " +
+                   "VALUES (:sha256, :size, :storagePath, 1, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1",
+           nativeQuery = true)
+    int upsertReference(@Param("sha256") String sha256,
+                        @Param("size") long size,
+                        @Param("storagePath") String storagePath);
+
+    // 释放引用；返回 1 表示本次释放生效
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - 1 WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int releaseReference(@Param("sha256") String sha256);
+
+    // 无引用的数据（按 ID 分批）
+    @Query("SELECT b.id FROM FileBlob b WHERE b.refCount = 0 AND b.id > :afterId ORDER BY b.id")
+    List<Long> findUnreferencedIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    // 锁定记录，与增加引用互斥
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM FileBlob b WHERE b.id = :id")
+    Optional<FileBlob> findByIdForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,46 @@
+package com.nexus.chat.repository;
+
+import com.nexus.chat.model.FileUploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 上传分片仓库
+ */
+@Repository
+public interface FileUploadChunkRepository extends JpaRepository<FileUploadChunk, Long> {
+
+    boolean existsByFileIdAndChunkIndex(String fileId, Integer chunkIndex);
+
+    long countByFileId(String fileId);
+
+    // 已接收的分片序号（断点续传查询）
+    @Query("SELECT c.chunkIndex FROM FileUploadChunk c WHERE c.fileId = :fileId ORDER BY c.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("fileId") String fileId);
+
+    // 记录分片，重复上传的分片不插入；返回 1 表示本次插入生效
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO file_upload_chunks (file_id, chunk_index, size, created_at) " +
+                   "VALUES (:fileId, :chunkIndex, :size, NOW())",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("fileId") String fileId, @Param("chunkIndex") int chunkIndex, @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    void deleteByFileId(String fileId);
+
+    // 删除指定分片的记录（分片不在本实例时让客户端重传）
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileUploadChunk c WHERE c.fileId = :fileId AND c.chunkIndex IN :chunkIndexes")
+    int deleteByFileIdAndChunkIndexIn(@Param("fileId") String fileId,
+                                      @Param("chunkIndexes") Collection<Integer> chunkIndexes);
+}
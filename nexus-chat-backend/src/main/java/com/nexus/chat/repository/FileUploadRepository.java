@@ -1,12 +1,18 @@
 package com.nexus.chat.repository;
 
 import com.nexus.chat.model.FileUpload;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,17 +23,83 @@ public interface FileUploadRepository extends JpaRepository<FileUpload, Long> {
 
     Optional<FileUpload> findByFileId(String fileId);
 
-    Optional<FileUpload> findByMd5Hash(String md5Hash);
+    List<FileUpload> findByFileIdIn(Collection<String> fileIds);
 
     List<FileUpload> findByUploaderId(Long uploaderId);
 
-    List<FileUpload> findByUploadCompleteAndCreatedAtBefore(Boolean uploadComplete, LocalDateTime before);
+    // 相同内容已处理过的图片（复用缩略图和尺寸）
+    Optional<FileUpload> findFirstByContentHashAndWidthIsNotNull(String contentHash);
 
-    // 查找过期文件（用于30天清理）
-    List<FileUpload> findByExpiresAtBefore(LocalDateTime dateTime);
+    // 过期文件（按 expires_at、id 键集分页，走 idx_file_uploads_expires_at）
+    @Query("SELECT f FROM FileUpload f WHERE f.expiresAt < :now AND (f.expiresAt > :afterExpiresAt " +
+           "OR (f.expiresAt = :afterExpiresAt AND f.id > :afterId)) ORDER BY f.expiresAt, f.id")
+    List<FileUpload> findExpiredAfter(@Param("now") LocalDateTime now,
+                                      @Param("afterExpiresAt") LocalDateTime afterExpiresAt,
+                                      @Param("afterId") Long afterId,
+                                      Pageable pageable);
 
-    // 查找用户在指定聊天中的文件（用于权限校验）
-    @Query("SELECT f FROM FileUpload f JOIN Message m ON f.messageId = m.id WHERE m.chatId = :chatId")
-    List<FileUpload> findByChatId(@Param("chatId") Long chatId);
+    long countByExpiresAtBefore(LocalDateTime now);
+
+    // 锁定批次中仍然过期的记录；并发清理同一批时后到者等待提交后读到已删除的结果
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FileUpload f WHERE f.id IN :ids AND f.expiresAt < :now")
+    List<FileUpload> findExpiredByIdInForUpdate(@Param("ids") Collection<Long> ids,
+                                                @Param("now") LocalDateTime now);
+
+    // 超时未完成的上传（按 created_at、id 键集分页，走 idx_file_uploads_incomplete）
+    @Query("SELECT f FROM FileUpload f WHERE f.uploadComplete = false AND f.createdAt < :before " +
+           "AND (f.createdAt > :afterCreatedAt OR (f.createdAt = :afterCreatedAt AND f.id > :afterId)) " +
+           "ORDER BY f.createdAt, f.id")
+    List<FileUpload> findIncompleteAfter(@Param("before") LocalDateTime before,
+                                         @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    long countByUploadCompleteFalseAndCreatedAtBefore(LocalDateTime before);
+
+    // 批量删除过期记录
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileUpload f WHERE f.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 删除未完成的上传，与完成上传并发时以先提交者为准；返回 1 表示已删除
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileUpload f WHERE f.id = :id AND f.uploadComplete = false")
+    int deleteIncomplete(@Param("id") Long id);
+
+    // 分片上传过程中补充文件名（客户端可能只在最后一个分片携带）
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.filename = :filename, f.originalName = :filename " +
+           "WHERE f.fileId = :fileId AND f.uploadComplete = false")
+    int updatePendingFilename(@Param("fileId") String fileId, @Param("filename") String filename);
+
+    // 分片上传完成，仅未完成的记录会被更新；返回 1 表示本次完成生效
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE FileUpload f SET f.uploadComplete = true, f.filename = :filename, f.originalName = :filename, " +
+           "f.storedName = :storedName, f.filePath = :filePath, f.fileSize = :fileSize, f.contentHash = :contentHash, " +
+           "f.mimeType = :mimeType, f.expiresAt = :expiresAt WHERE f.fileId = :fileId AND f.uploadComplete = false")
+    int completeUpload(@Param("fileId") String fileId,
+                       @Param("filename") String filename,
+                       @Param("storedName") String storedName,
+                       @Param("filePath") String filePath,
+                       @Param("fileSize") Long fileSize,
+                       @Param("contentHash") String contentHash,
+                       @Param("mimeType") String mimeType,
+                       @Param("expiresAt") LocalDateTime expiresAt);
+
+    // 写入图片处理结果
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.width = :width, f.height = :height, f.blurhash = :blurhash, " +
+           "f.thumbnailPath = :thumbnailPath WHERE f.fileId = :fileId")
+    int updateMediaInfo(@Param("fileId") String fileId,
+                        @Param("width") Integer width,
+                        @Param("height") Integer height,
+                        @Param("blurhash") String blurhash,
+                        @Param("thumbnailPath") String thumbnailPath);
 
 }
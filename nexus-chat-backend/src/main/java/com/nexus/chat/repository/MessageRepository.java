@@ -4,11 +4,14 @@ import com.nexus.chat.model.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +38,11 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      */
     Optional<Message> findFirstByChatIdOrderByCreatedAtDesc(Long chatId);
 
+    /**
+     * Get the highest-sequence message of a chat (channel read cursors)
+     */
+    Optional<Message> findFirstByChatIdOrderBySequenceNumberDesc(Long chatId);
+
     /**
      * Batch get last messages for multiple chats in one query
      * Eliminates N+1 when loading chat list
@@ -64,4 +72,49 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
             @Param("chatId") Long chatId,
             @Param("fromSeq") Long fromSeq);
 
+    /**
+     * Page of messages after a sequence number (channel pull on reconnect)
+     */
+    List<Message> findByChatIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+            Long chatId, Long sequenceNumber, Pageable pageable);
+
+    /**
+     * Attachment messages written before attachment summaries were stored (backfill, keyset by id)
+     */
+    @Query("SELECT m FROM Message m WHERE m.id > :afterId AND m.fileId IS NULL AND m.fileUrl IS NOT NULL " +
+           "AND m.messageType IN :types ORDER BY m.id ASC")
+    List<Message> findWithoutAttachmentSummary(@Param("afterId") Long afterId,
+                                               @Param("types") Collection<Message.MessageType> types,
+                                               Pageable pageable);
+
+    /**
+     * Messages with an attachment summary whose upload has not expired (media index backfill, keyset by id)
+     */
+    @Query("SELECT m FROM Message m WHERE m.id > :afterId AND m.fileName IS NOT NULL AND EXISTS " +
+           "(SELECT f.id FROM FileUpload f WHERE f.fileId = m.fileId AND (f.expiresAt IS NULL OR f.expiresAt > CURRENT_TIMESTAMP)) " +
+           "ORDER BY m.id ASC")
+    List<Message> findWithAttachmentSummary(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Store the attachment summary of a message (backfill; skipped if already set)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Message m SET m.fileId = :fileId, m.fileName = :fileName, m.fileSize = :fileSize, " +
+           "m.fileMimeType = :fileMimeType, m.fileThumbnail = :fileThumbnail WHERE m.id = :id AND m.fileId IS NULL")
+    int updateAttachmentSummary(@Param("id") Long id,
+                                @Param("fileId") String fileId,
+                                @Param("fileName") String fileName,
+                                @Param("fileSize") Long fileSize,
+                                @Param("fileMimeType") String fileMimeType,
+                                @Param("fileThumbnail") String fileThumbnail);
+
+    /**
+     * Set the thumbnail on messages referencing a file once its image processing finishes
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Message m SET m.fileThumbnail = :fileThumbnail WHERE m.fileId = :fileId AND m.fileThumbnail IS NULL")
+    int updateAttachmentThumbnail(@Param("fileId") String fileId, @Param("fileThumbnail") String fileThumbnail);
+
 }
@@ -3,9 +3,12 @@ package com.nexus.chat.repository;
 import com.nexus.chat.model.PostBookmark;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -23,7 +26,11 @@ public interface PostBookmarkRepository extends JpaRepository<PostBookmark, Long
     // 删除收藏
     void deleteByPostIdAndUserId(Long postId, Long userId);
 
-    // 获取用户的所有收藏
+    // 批量查询用户在一页帖子中的收藏
+    List<PostBookmark> findByUserIdAndPostIdIn(Long userId, Collection<Long> postIds);
+
+    // 获取用户的所有收藏（连同帖子和作者一次取出）
+    @EntityGraph(attributePaths = {"post", "post.author"})
     Page<PostBookmark> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
     // 统计帖子收藏数
@@ -3,9 +3,15 @@ package com.nexus.chat.repository;
 import com.nexus.chat.model.PostComment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -14,21 +20,52 @@ import java.util.List;
 @Repository
 public interface PostCommentRepository extends JpaRepository<PostComment, Long> {
 
-    // 获取帖子的顶级评论
+    // 获取帖子的顶级评论（作者一并取出）
+    @EntityGraph(attributePaths = "author")
     Page<PostComment> findByPostIdAndParentIdIsNullOrderByCreatedAtDesc(Long postId, Pageable pageable);
 
     // 获取帖子的所有评论
     Page<PostComment> findByPostIdOrderByCreatedAtDesc(Long postId, Pageable pageable);
 
-    // 获取评论的回复
+    // 获取评论的回复（作者一并取出）
+    @EntityGraph(attributePaths = "author")
     List<PostComment> findByParentIdOrderByCreatedAtAsc(Long parentId);
 
+    // 顶级评论键集分页：id 小于游标的下一页（id 与创建时间同序）
+    @EntityGraph(attributePaths = "author")
+    List<PostComment> findByPostIdAndParentIdIsNullAndIdLessThanOrderByIdDesc(Long postId, Long beforeId, Pageable pageable);
+
+    // 回复键集分页：id 大于游标的下一页
+    @EntityGraph(attributePaths = "author")
+    List<PostComment> findByParentIdAndIdGreaterThanOrderByIdAsc(Long parentId, Long afterId, Pageable pageable);
+
+    // 每个楼层的前 N 条回复ID（窗口函数一次取出）
+    @Query(value = "SELECT t.id FROM (" +
+                   "SELECT c.id, ROW_NUMBER() OVER (PARTITION BY c.parent_id ORDER BY c.id) AS rn " +
+                   "FROM post_comments c WHERE c.parent_id IN (:parentIds)) t " +
+                   "WHERE t.rn <= :perParent", nativeQuery = true)
+    List<Long> findFirstReplyIds(@Param("parentIds") Collection<Long> parentIds, @Param("perParent") int perParent);
+
+    // 按ID批量查询（作者一并取出）
+    @EntityGraph(attributePaths = "author")
+    List<PostComment> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // 各楼层回复数: [parentId, count]
+    @Query("SELECT c.parentId, COUNT(c) FROM PostComment c WHERE c.parentId IN :parentIds GROUP BY c.parentId")
+    List<Object[]> countRepliesByParentIds(@Param("parentIds") Collection<Long> parentIds);
+
     // 统计帖子评论数
     long countByPostId(Long postId);
 
     // 统计用户评论数
     long countByAuthorId(Long authorId);
 
+    // 点赞计数原子增减
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE PostComment c SET c.likeCount = c.likeCount + :delta WHERE c.id = :commentId")
+    int adjustLikeCount(@Param("commentId") Long commentId, @Param("delta") int delta);
+
     // 删除帖子的所有评论
     void deleteByPostId(Long postId);
 }
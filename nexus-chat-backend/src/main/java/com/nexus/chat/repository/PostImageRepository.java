@@ -0,0 +1,40 @@
+package com.nexus.chat.repository;
+
+import com.nexus.chat.model.PostImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 帖子图片仓库
+ */
+@Repository
+public interface PostImageRepository extends JpaRepository<PostImage, Long> {
+
+    // 批量查询一页帖子的图片
+    List<PostImage> findByPostIdInOrderByPostIdAscPositionAsc(Collection<Long> postIds);
+
+    // 帖子是否已有图片记录
+    boolean existsByPostId(Long postId);
+
+    // 图片处理完成后补写尺寸和 BlurHash（发帖时尚未处理的图片）
+    @Transactional
+    @Modifying
+    @Query("UPDATE PostImage i SET i.width = :width, i.height = :height, i.blurhash = :blurhash " +
+           "WHERE i.fileId = :fileId AND i.width IS NULL")
+    int fillMediaInfo(@Param("fileId") String fileId,
+                      @Param("width") Integer width,
+                      @Param("height") Integer height,
+                      @Param("blurhash") String blurhash);
+
+    // 删除帖子的所有图片记录
+    @Transactional
+    @Modifying
+    void deleteByPostId(Long postId);
+}
@@ -3,12 +3,16 @@ package com.nexus.chat.repository;
 import com.nexus.chat.model.Post;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,24 +21,72 @@ import java.util.List;
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
 
+    // 列表查询都通过 EntityGraph 连带取出作者，避免逐条懒加载
+
     // 按作者查询帖子
+    @EntityGraph(attributePaths = "author")
     Page<Post> findByAuthorIdOrderByCreatedAtDesc(Long authorId, Pageable pageable);
 
     // 最新帖子
+    @EntityGraph(attributePaths = "author")
     Page<Post> findAllByOrderByCreatedAtDesc(Pageable pageable);
 
     // 热门帖子（按综合得分：点赞数 - 踩数 + 评论数*2）
+    @EntityGraph(attributePaths = "author")
     @Query("SELECT p FROM Post p ORDER BY (p.upvoteCount - p.downvoteCount + p.commentCount * 2) DESC, p.createdAt DESC")
     Page<Post> findHotPosts(Pageable pageable);
 
     // 推荐帖子（按点赞数和时间综合排序）
+    @EntityGraph(attributePaths = "author")
     @Query("SELECT p FROM Post p ORDER BY p.upvoteCount DESC, p.createdAt DESC")
     Page<Post> findRecommendedPosts(Pageable pageable);
 
-    // 搜索帖子
+    // 搜索帖子（全文索引不可用时的回退）
+    @EntityGraph(attributePaths = "author")
     @Query("SELECT p FROM Post p WHERE p.title LIKE %:keyword% OR p.content LIKE %:keyword% ORDER BY p.createdAt DESC")
     Page<Post> searchPosts(@Param("keyword") String keyword, Pageable pageable);
 
+    // 全文检索（ngram FULLTEXT 索引，按相关度排序）
+    @Query(value = "SELECT p.id FROM posts p WHERE MATCH(p.title, p.content) AGAINST(:query IN BOOLEAN MODE) " +
+                   "ORDER BY MATCH(p.title, p.content) AGAINST(:query IN BOOLEAN MODE) DESC, p.created_at DESC",
+           countQuery = "SELECT COUNT(*) FROM posts p WHERE MATCH(p.title, p.content) AGAINST(:query IN BOOLEAN MODE)",
+           nativeQuery = true)
+    Page<Long> searchPostIds(@Param("query") String query, Pageable pageable);
+
+    // 按ID批量查询（排行分页后回表）
+    @EntityGraph(attributePaths = "author")
+    List<Post> findByIdIn(Collection<Long> ids);
+
+    // 投票计数原子增减（clear 保证随后读取到最新计数）
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET p.upvoteCount = p.upvoteCount + :upDelta, p.downvoteCount = p.downvoteCount + :downDelta WHERE p.id = :postId")
+    int adjustVoteCounts(@Param("postId") Long postId, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
+
+    // 评论计数原子增减
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Post p SET p.commentCount = p.commentCount + :delta WHERE p.id = :postId")
+    int adjustCommentCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    // 浏览量增量写入（由 PostViewCounter 批量合并后调用）
+    @Transactional
+    @Modifying
+    @Query("UPDATE Post p SET p.viewCount = p.viewCount + :delta WHERE p.id = :postId")
+    int incrementViewCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    // 按 id 键集分页遍历全部帖子（排行重建）
+    List<Post> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // 仍以 JSON 保存图片的旧帖子（按 id 分批迁移）
+    List<Post> findByImagesIsNotNullAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // 图片迁移完成后清空旧 JSON
+    @Transactional
+    @Modifying
+    @Query("UPDATE Post p SET p.images = NULL WHERE p.id = :postId")
+    int clearLegacyImages(@Param("postId") Long postId);
+
     // 统计用户帖子数
     long countByAuthorId(Long authorId);
 
@@ -2,19 +2,41 @@ package com.nexus.chat.repository;
 
 import com.nexus.chat.model.PostVote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * 帖子投票仓库
  */
 @Repository
-public interface PostVoteRepository extends JpaRepository<PostVote, Long> {
+public interface PostVoteRepository extends JpaRepository<PostVote, Long>, PostVoteRepositoryCustom {
 
     // 查询用户对帖子的投票
     Optional<PostVote> findByPostIdAndUserId(Long postId, Long userId);
 
+    // 批量查询用户对一页帖子的投票
+    List<PostVote> findByUserIdAndPostIdIn(Long userId, Collection<Long> postIds);
+
+    // 切换投票类型，仅当当前类型仍为 oldType 时生效
+    @Transactional
+    @Modifying
+    @Query("UPDATE PostVote v SET v.voteType = :newType WHERE v.post.id = :postId AND v.user.id = :userId AND v.voteType = :oldType")
+    int switchVoteType(@Param("postId") Long postId, @Param("userId") Long userId,
+                       @Param("oldType") int oldType, @Param("newType") int newType);
+
+    // 取消投票，仅当当前类型仍为 voteType 时生效
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PostVote v WHERE v.post.id = :postId AND v.user.id = :userId AND v.voteType = :voteType")
+    int deleteVote(@Param("postId") Long postId, @Param("userId") Long userId, @Param("voteType") int voteType);
+
     // 检查用户是否对帖子投票
     boolean existsByPostIdAndUserId(Long postId, Long userId);
 
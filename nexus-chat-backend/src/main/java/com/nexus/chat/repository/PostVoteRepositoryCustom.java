@@ -0,0 +1,12 @@
+package com.nexus.chat.repository;
+
+/**
+ * 帖子投票仓库的 JDBC 扩展
+ */
+public interface PostVoteRepositoryCustom {
+
+    /**
+     * 新增投票，(post_id, user_id) 已存在时不插入；返回 1 表示本次插入生效
+     */
+    int insertIfAbsent(Long postId, Long userId, int voteType);
+}
@@ -0,0 +1,24 @@
+package com.nexus.chat.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 新增投票的 JDBC 实现，见 UniqueInserts
+ */
+@RequiredArgsConstructor
+public class PostVoteRepositoryCustomImpl implements PostVoteRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO post_votes (post_id, user_id, vote_type, created_at) VALUES (?, ?, ?, NOW())";
+    private static final String EXISTS_SQL =
+            "SELECT id FROM post_votes WHERE post_id = ? AND user_id = ? FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertIfAbsent(Long postId, Long userId, int voteType) {
+        return UniqueInserts.insertIfAbsent(jdbcTemplate, INSERT_SQL, new Object[]{postId, userId, voteType},
+                EXISTS_SQL, new Object[]{postId, userId});
+    }
+}
@@ -0,0 +1,39 @@
+package com.nexus.chat.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 带唯一键的普通 INSERT：唯一键冲突且记录确实已存在时视为“已存在”
+ * 不用 INSERT IGNORE：它会把唯一键以外的错误（外键、截断等）也当作“已存在”吞掉。
+ * 经 JdbcTemplate 执行，冲突只回滚这一条语句，不会把外层 JPA 事务标记为只能回滚。
+ */
+final class UniqueInserts {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private UniqueInserts() {
+    }
+
+    /**
+     * 返回 1 表示本次插入生效，0 表示记录已存在
+     *
+     * @param existsSql 以加锁读确认记录是否存在（读最新提交的数据，不受事务快照影响）
+     */
+    static int insertIfAbsent(JdbcTemplate jdbcTemplate, String insertSql, Object[] insertArgs,
+                              String existsSql, Object[] existsArgs) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return jdbcTemplate.update(insertSql, insertArgs);
+            } catch (DuplicateKeyException e) {
+                if (!jdbcTemplate.queryForList(existsSql, Long.class, existsArgs).isEmpty()) {
+                    return 0;
+                }
+                // 冲突的不是业务唯一键（如主键生成冲突），重试
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
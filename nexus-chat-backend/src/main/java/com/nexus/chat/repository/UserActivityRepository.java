@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -32,6 +33,11 @@ public interface UserActivityRepository extends JpaRepository<UserActivity, Long
     @Query("SELECT ua FROM UserActivity ua WHERE ua.userId = :userId ORDER BY ua.createdAt DESC LIMIT :limit")
     List<UserActivity> findRecentByUserId(@Param("userId") Long userId, @Param("limit") int limit);
 
+    /**
+     * Recent activities of several users (timeline read path for high-degree contacts)
+     */
+    List<UserActivity> findByUserIdInOrderByCreatedAtDesc(Collection<Long> userIds, Pageable pageable);
+
     /**
      * Find activities by type
      */
@@ -45,6 +51,13 @@ public interface UserActivityRepository extends JpaRepository<UserActivity, Long
            "ORDER BY ua.createdAt DESC")
     List<UserActivity> findFriendActivities(@Param("userId") Long userId, Pageable pageable);
 
+    /**
+     * Last activity time per user since a point in time: [userId, lastActivityAt], most recent first
+     */
+    @Query("SELECT ua.userId, MAX(ua.createdAt) FROM UserActivity ua WHERE ua.createdAt >= :since " +
+           "GROUP BY ua.userId ORDER BY MAX(ua.createdAt) DESC")
+    List<Object[]> findLastActivitySince(@Param("since") LocalDateTime since, Pageable pageable);
+
     /**
      * Delete old activities
      */
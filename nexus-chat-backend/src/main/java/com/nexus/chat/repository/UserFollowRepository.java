@@ -4,8 +4,11 @@ import com.nexus.chat.model.UserFollow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -34,4 +37,11 @@ public interface UserFollowRepository extends JpaRepository<UserFollow, Long> {
 
     // 获取用户粉丝列表（分页）
     Page<UserFollow> findByFollowingIdOrderByCreatedAtDesc(Long followingId, Pageable pageable);
+
+    // 关注的人所关注的人及共同关注数: [候选ID, 次数]，用于用户推荐
+    @Query(value = "SELECT f2.following_id, COUNT(*) AS mutual FROM user_follows f1 " +
+            "JOIN user_follows f2 ON f2.follower_id = f1.following_id " +
+            "WHERE f1.follower_id = :userId AND f2.following_id <> :userId " +
+            "GROUP BY f2.following_id ORDER BY mutual DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findFollowsOfFollows(@Param("userId") Long userId, @Param("limit") int limit);
 }
@@ -1,11 +1,15 @@
 package com.nexus.chat.repository;
 
 import com.nexus.chat.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -24,19 +28,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
     /**
-     * Search users by username, nickname or email (case-insensitive)
+     * Search users by username or nickname (case-insensitive).
+     * Fallback scan used only when the full-text index is unavailable.
      */
     @Query("SELECT u FROM User u WHERE " +
             "LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.nickname) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<User> searchUsers(@Param("query") String query);
+            "LOWER(u.nickname) LIKE LOWER(CONCAT('%', :query, '%'))")
+    List<User> searchUsers(@Param("query") String query, Pageable pageable);
 
     /**
-     * Get recommended users (random selection excluding current user)
+     * Full-text search over username and nickname (ngram index), top results only.
+     * Exact username first, then username prefix, then relevance.
      */
-    @Query(value = "SELECT * FROM users WHERE id != :userId ORDER BY RAND() LIMIT :limit", nativeQuery = true)
-    List<User> findRecommendedUsers(@Param("userId") Long userId, @Param("limit") int limit);
+    @Query(value = "SELECT u.id FROM users u " +
+            "WHERE MATCH(u.username, u.nickname) AGAINST(:query IN BOOLEAN MODE) " +
+            "ORDER BY (u.username = :raw) DESC, " +
+            "(LEFT(u.username, CHAR_LENGTH(:raw)) = :raw) DESC, " +
+            "MATCH(u.username, u.nickname) AGAINST(:query IN BOOLEAN MODE) DESC, u.id " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Long> searchUserIds(@Param("query") String query, @Param("raw") String raw, @Param("limit") int limit);
+
+    /**
+     * Online or recently seen users: [id, lastSeen, isOnline], most recent first
+     * (refreshes the recommendation activity pool)
+     */
+    @Query("SELECT u.id, u.lastSeen, u.isOnline FROM User u " +
+            "WHERE u.isOnline = true OR u.lastSeen >= :since ORDER BY u.lastSeen DESC")
+    List<Object[]> findRecentlySeen(@Param("since") LocalDateTime since, Pageable pageable);
 
     /**
      * Find online users
@@ -53,4 +71,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     List<User> findAllByIdIn(Collection<Long> ids);
 
+    /**
+     * Users whose avatar is still an inline data: URL (keyset-paged by id for the avatar migration)
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND u.avatarUrl LIKE 'data:%' ORDER BY u.id")
+    List<Long> findIdsWithInlineAvatar(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Replace an inline avatar with its stored URL; no-op if the user changed avatar meanwhile
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.avatarUrl = :avatarUrl WHERE u.id = :id AND u.avatarUrl LIKE 'data:%'")
+    int replaceInlineAvatar(@Param("id") Long id, @Param("avatarUrl") String avatarUrl);
+
 }
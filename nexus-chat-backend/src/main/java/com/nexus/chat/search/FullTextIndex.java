@@ -0,0 +1,94 @@
+package com.nexus.chat.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 单个 MySQL FULLTEXT（ngram 分词）索引的检查、创建与重建
+ * 表由 Hibernate 建表，FULLTEXT 索引无法通过注解声明，由各搜索索引组件在启动时补建。
+ */
+@Slf4j
+class FullTextIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String name;
+    private final String columns;
+
+    // 索引不可用（非 MySQL 或建索引失败）时调用方回退到 LIKE
+    private volatile boolean available;
+
+    FullTextIndex(JdbcTemplate jdbcTemplate, String table, String name, String columns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.name = name;
+        this.columns = columns;
+    }
+
+    boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 检查索引，缺失时创建
+     */
+    void ensure() {
+        try {
+            if (!exists()) {
+                long start = System.currentTimeMillis();
+                create();
+                log.info("全文索引已创建: {}, 耗时 {}ms", name, System.currentTimeMillis() - start);
+            }
+            available = true;
+        } catch (Exception e) {
+            // 多实例同时启动时另一实例可能已建好索引（本实例的 CREATE 因重名失败）
+            if (existsQuietly()) {
+                available = true;
+                log.info("全文索引已由其他实例创建: {}", name);
+                return;
+            }
+            available = false;
+            log.warn("全文索引不可用, 搜索回退到 LIKE: {}, error={}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除并重新创建索引
+     */
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            if (exists()) {
+                // 删除后到重建完成前 MATCH 查询会失败，期间搜索回退到 LIKE
+                available = false;
+                jdbcTemplate.execute("ALTER TABLE " + table + " DROP INDEX " + name);
+            }
+            create();
+            available = true;
+            log.info("全文索引重建完成: {}, 耗时 {}ms", name, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("全文索引重建失败: {}", name, e);
+            ensure();
+        }
+    }
+
+    private boolean exists() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?",
+                Integer.class, table, name);
+        return count != null && count > 0;
+    }
+
+    private boolean existsQuietly() {
+        try {
+            return exists();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void create() {
+        jdbcTemplate.execute("CREATE FULLTEXT INDEX " + name + " ON " + table + " (" + columns + ") WITH PARSER ngram");
+    }
+}
@@ -0,0 +1,44 @@
+package com.nexus.chat.search;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 帖子全文索引（MySQL FULLTEXT + ngram 分词）
+ * InnoDB 在事务提交时同步维护索引，发帖、删帖无需额外写入；
+ * ngram 按字切分，中文无需分词词典即可检索。
+ * 所有实例共用同一份索引，不存在多实例索引不一致的问题。
+ */
+@Component
+public class PostSearchIndex {
+
+    private final FullTextIndex index;
+
+    public PostSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.index = new FullTextIndex(jdbcTemplate, "posts", "ft_posts_title_content", "title, content");
+    }
+
+    public boolean isAvailable() {
+        return index.isAvailable();
+    }
+
+    /**
+     * 启动后检查索引，缺失时创建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        index.ensure();
+    }
+
+    /**
+     * 重建全文索引（调整 ngram_token_size 或大量删除后整理索引）
+     * 默认不执行，通过 post.search.rebuild-cron 在单个实例上开启
+     */
+    @Scheduled(cron = "${post.search.rebuild-cron:-}")
+    public void rebuildIndex() {
+        index.rebuild();
+    }
+}
@@ -0,0 +1,41 @@
+package com.nexus.chat.search;
+
+import com.nexus.chat.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 帖子全文检索
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostSearchService {
+
+    private final PostSearchIndex postSearchIndex;
+    private final PostRepository postRepository;
+
+    /**
+     * 按相关度检索帖子ID，索引不可用或查询失败时返回 null 由调用方回退
+     */
+    public Page<Long> searchIds(List<String> terms, Pageable pageable) {
+        if (terms.isEmpty() || !postSearchIndex.isAvailable()) {
+            return null;
+        }
+        String query = SearchText.booleanQuery(terms);
+        log.debug("帖子全文检索: query={}", query);
+        try {
+            return postRepository.searchPostIds(query, pageable);
+        } catch (DataAccessException e) {
+            // 其他实例正在重建索引时 MATCH 报错（MySQL 1191），期间回退到 LIKE
+            log.warn("帖子全文检索失败, 回退到 LIKE: {}", e.getMessage());
+            return null;
+        }
+    }
+}
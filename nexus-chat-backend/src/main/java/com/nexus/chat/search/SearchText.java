@@ -0,0 +1,162 @@
+package com.nexus.chat.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 搜索关键词处理与结果高亮
+ */
+public final class SearchText {
+
+    private static final int MAX_TERMS = 8;
+    // 与 MySQL ngram_token_size 默认值一致
+    private static final int NGRAM_TOKEN_SIZE = 2;
+    private static final String BOOLEAN_OPERATORS = "+-<>()~*\"@";
+
+    private static final String HIGHLIGHT_OPEN = "<em>";
+    private static final String HIGHLIGHT_CLOSE = "</em>";
+
+    private SearchText() {
+    }
+
+    /**
+     * 按空白拆分关键词，去掉 BOOLEAN MODE 运算符，去重后最多保留 8 个
+     */
+    public static List<String> terms(String keyword) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (keyword == null) {
+            return new ArrayList<>();
+        }
+        for (String raw : keyword.trim().split("\\s+")) {
+            StringBuilder term = new StringBuilder(raw.length());
+            for (char c : raw.toCharArray()) {
+                if (BOOLEAN_OPERATORS.indexOf(c) < 0) {
+                    term.append(c);
+                }
+            }
+            if (term.length() > 0) {
+                terms.add(term.toString());
+            }
+            if (terms.size() == MAX_TERMS) {
+                break;
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * 生成 BOOLEAN MODE 查询：每个词都必须出现
+     * 词按 ngram 短语匹配；短于 ngram 长度的单字用前缀匹配，否则 ngram 不会为它生成词元
+     */
+    public static String booleanQuery(List<String> terms) {
+        StringBuilder query = new StringBuilder();
+        for (String term : terms) {
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            if (term.codePointCount(0, term.length()) < NGRAM_TOKEN_SIZE) {
+                query.append('+').append(term).append('*');
+            } else {
+                query.append("+\"").append(term).append('"');
+            }
+        }
+        return query.toString();
+    }
+
+    /**
+     * 高亮全文：转义 HTML 后用 &lt;em&gt; 包裹命中的词
+     */
+    public static String highlight(String text, List<String> terms) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        return highlightRange(text, 0, text.length(), terms);
+    }
+
+    /**
+     * 高亮摘要：截取第一个命中词附近的一段文本，未命中时取开头
+     */
+    public static String snippet(String text, List<String> terms, int length) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        int first = -1;
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String term : terms) {
+            int index = lower.indexOf(term.toLowerCase(Locale.ROOT));
+            if (index >= 0 && (first < 0 || index < first)) {
+                first = index;
+            }
+        }
+        int start = Math.max(0, first - length / 4);
+        int end = Math.min(text.length(), start + length);
+        start = Math.max(0, end - length);
+        if (start > 0 && Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        if (end < text.length() && Character.isLowSurrogate(text.charAt(end))) {
+            end++;
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append("…");
+        }
+        snippet.append(highlightRange(text, start, end, terms));
+        if (end < text.length()) {
+            snippet.append("…");
+        }
+        return snippet.toString();
+    }
+
+    private static String highlightRange(String text, int start, int end, List<String> terms) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        boolean[] marked = new boolean[end - start];
+        for (String term : terms) {
+            String needle = term.toLowerCase(Locale.ROOT);
+            if (needle.isEmpty()) {
+                continue;
+            }
+            int from = start;
+            int index;
+            while ((index = lower.indexOf(needle, from)) >= 0 && index < end) {
+                for (int i = index; i < Math.min(index + needle.length(), end); i++) {
+                    marked[i - start] = true;
+                }
+                from = index + needle.length();
+            }
+        }
+
+        StringBuilder out = new StringBuilder((end - start) + 16);
+        boolean open = false;
+        for (int i = start; i < end; i++) {
+            boolean hit = marked[i - start];
+            if (hit && !open) {
+                out.append(HIGHLIGHT_OPEN);
+                open = true;
+            } else if (!hit && open) {
+                out.append(HIGHLIGHT_CLOSE);
+                open = false;
+            }
+            appendEscaped(out, text.charAt(i));
+        }
+        if (open) {
+            out.append(HIGHLIGHT_CLOSE);
+        }
+        return out.toString();
+    }
+
+    private static void appendEscaped(StringBuilder out, char c) {
+        switch (c) {
+            case '<' -> out.append("&lt;");
+            case '>' -> out.append("&gt;");
+            case '&' -> out.append("&amp;");
+            case '"' -> out.append("&quot;");
+            case '\'' -> out.append("&#39;");
+            default -> out.append(c);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.nexus.chat.search;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户名/昵称全文索引（MySQL FULLTEXT + ngram 分词）
+ * ngram 词元覆盖名称中的任意连续片段，前缀和中间匹配都走索引；
+ * 注册和资料修改提交时 InnoDB 同步更新索引。
+ * schema.sql 中的 idx_search 使用默认分词器，无法匹配名称片段和中文，搜索不使用它。
+ */
+@Component
+public class UserSearchIndex {
+
+    private final FullTextIndex index;
+
+    public UserSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.index = new FullTextIndex(jdbcTemplate, "users", "ft_users_name", "username, nickname");
+    }
+
+    public boolean isAvailable() {
+        return index.isAvailable();
+    }
+
+    /**
+     * 启动后检查索引，缺失时创建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        index.ensure();
+    }
+
+    /**
+     * 重建全文索引，默认不执行，通过 user.search.rebuild-cron 在单个实例上开启
+     */
+    @Scheduled(cron = "${user.search.rebuild-cron:-}")
+    public void rebuildIndex() {
+        index.rebuild();
+    }
+}
@@ -0,0 +1,70 @@
+package com.nexus.chat.search;
+
+import com.nexus.chat.model.User;
+import com.nexus.chat.model.UserPrivacySettings;
+import com.nexus.chat.repository.UserPrivacySettingsRepository;
+import com.nexus.chat.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 用户搜索
+ * 名称片段走 ngram 全文索引，结果按 用户名完全匹配 > 用户名前缀 > 相关度 排序，最多返回 limit 条；
+ * 邮箱只支持完整地址精确查找，且仅限公开邮箱的用户。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserSearchService {
+
+    private final UserSearchIndex userSearchIndex;
+    private final UserRepository userRepository;
+    private final UserPrivacySettingsRepository privacySettingsRepository;
+
+    public List<User> search(String query, int limit) {
+        if (query.indexOf('@') > 0) {
+            return userRepository.findByEmail(query)
+                    .filter(this::emailVisible)
+                    .map(List::of)
+                    .orElseGet(List::of);
+        }
+
+        List<String> terms = SearchText.terms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        if (!userSearchIndex.isAvailable()) {
+            return userRepository.searchUsers(query, PageRequest.of(0, limit));
+        }
+
+        List<Long> ids;
+        try {
+            ids = userRepository.searchUserIds(SearchText.booleanQuery(terms), query, limit);
+        } catch (DataAccessException e) {
+            // 其他实例正在重建索引时 MATCH 报错（MySQL 1191），期间回退到 LIKE
+            log.warn("用户全文检索失败, 回退到 LIKE: {}", e.getMessage());
+            return userRepository.searchUsers(query, PageRequest.of(0, limit));
+        }
+        Map<Long, User> usersById = userRepository.findAllByIdIn(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private boolean emailVisible(User user) {
+        return privacySettingsRepository.findByUserId(user.getId())
+                .map(UserPrivacySettings::getShowEmail)
+                .orElse(false);
+    }
+}
@@ -0,0 +1,193 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.UserActivity;
+import com.nexus.chat.repository.ContactRepository;
+import com.nexus.chat.repository.UserActivityRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 好友动态时间线
+ * 写扩散：记录动态时把动态ID推入每个把发布者加为联系人的用户的时间线（Redis 有序集合，按时间排序并截断）。
+ * 联系人被加得过多的用户不做写扩散，只记入高扩散集合，读取时直接按用户查询他们的近期动态再合并（读扩散）。
+ * 时间线不存在时（新用户、Redis 清空）从数据库回填一次；联系人增删后清除双方的时间线，下次读取按新的联系人回填。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ActivityTimelineService {
+
+    private static final String TIMELINE_PREFIX = "timeline:";
+    private static final String HIGH_DEGREE_KEY = "timeline:high-degree";
+
+    // 回填完成标记，分数为 +inf 始终排在最前，截断时不会被移除；
+    // 写扩散可能先于回填创建时间线，没有标记的时间线读取时仍需回填
+    private static final String BACKFILLED_MARKER = "0";
+
+    private static final Duration TIMELINE_TTL = Duration.ofDays(7);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UserActivityRepository activityRepository;
+    private final ContactRepository contactRepository;
+
+    @Value("${activity.timeline.fanout-threshold:1000}")
+    private int fanoutThreshold;
+
+    @Value("${activity.timeline.max-size:500}")
+    private int maxSize;
+
+    /**
+     * 将动态推送到好友时间线（事务提交后异步执行）
+     */
+    @Async
+    public void fanOut(UserActivity activity) {
+        Long actorId = activity.getUserId();
+        try {
+            // 先计数，只有确定写扩散时才加载读者ID
+            long readerCount = contactRepository.countByContactUserId(actorId);
+            if (readerCount > fanoutThreshold) {
+                stringRedisTemplate.opsForSet().add(HIGH_DEGREE_KEY, String.valueOf(actorId));
+                return;
+            }
+            stringRedisTemplate.opsForSet().remove(HIGH_DEGREE_KEY, String.valueOf(actorId));
+            if (readerCount == 0) {
+                return;
+            }
+            List<Long> readerIds = contactRepository.findUserIdsByContactUserId(actorId);
+
+            String member = String.valueOf(activity.getId());
+            double score = scoreOf(activity);
+            long ttlSeconds = TIMELINE_TTL.toSeconds();
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (Long readerId : readerIds) {
+                    String key = TIMELINE_PREFIX + readerId;
+                    redis.zAdd(key, score, member);
+                    redis.zRemRange(key, 0, -maxSize - 1);
+                    redis.expire(key, ttlSeconds);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // 时间线丢失的条目在过期后回填时补齐
+            log.warn("动态写扩散失败: activityId={}, actorId={}, error={}", activity.getId(), actorId, e.getMessage());
+        }
+    }
+
+    /**
+     * 联系人变化后清除时间线（事务提交后执行），下次读取时按当前联系人回填，
+     * 已删除联系人的动态不再出现，新联系人的近期动态补入
+     */
+    public void evict(Long... userIds) {
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.delete(Arrays.stream(userIds).map(id -> TIMELINE_PREFIX + id).toList());
+            } catch (Exception e) {
+                log.warn("清除好友动态时间线失败: userIds={}, error={}", Arrays.toString(userIds), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 读取用户的好友动态（按时间倒序）
+     */
+    public List<UserActivity> getTimeline(Long userId, int limit) {
+        Map<Long, UserActivity> merged = new HashMap<>();
+        try {
+            String key = TIMELINE_PREFIX + userId;
+            if (stringRedisTemplate.opsForZSet().score(key, BACKFILLED_MARKER) == null) {
+                return backfill(userId, limit);
+            }
+            Set<String> members = stringRedisTemplate.opsForZSet()
+                    .reverseRangeByScore(key, Double.NEGATIVE_INFINITY, Double.MAX_VALUE, 0, limit);
+            List<Long> ids = members == null ? List.of() : members.stream().map(Long::parseLong).toList();
+            activityRepository.findAllById(ids).forEach(activity -> merged.put(activity.getId(), activity));
+
+            // 高扩散好友的动态读取时合并
+            List<Long> highDegreeContacts = highDegreeContacts(userId);
+            if (!highDegreeContacts.isEmpty()) {
+                activityRepository.findByUserIdInOrderByCreatedAtDesc(highDegreeContacts, PageRequest.of(0, limit))
+                        .forEach(activity -> merged.put(activity.getId(), activity));
+            }
+        } catch (Exception e) {
+            log.warn("读取好友动态时间线失败, 回退数据库查询: userId={}, error={}", userId, e.getMessage());
+            return activityRepository.findFriendActivities(userId, PageRequest.of(0, limit));
+        }
+
+        return merged.values().stream()
+                .sorted(Comparator.comparing(UserActivity::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                        .thenComparing(UserActivity::getId, Comparator.reverseOrder()))
+                .limit(limit)
+                .toList();
+    }
+
+    private List<Long> highDegreeContacts(Long userId) {
+        Long highDegreeCount = stringRedisTemplate.opsForSet().size(HIGH_DEGREE_KEY);
+        if (highDegreeCount == null || highDegreeCount == 0) {
+            return List.of();
+        }
+        List<Long> contactIds = contactRepository.findContactUserIds(userId);
+        if (contactIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Object, Boolean> membership = stringRedisTemplate.opsForSet().isMember(HIGH_DEGREE_KEY,
+                contactIds.stream().map(String::valueOf).toArray());
+        if (membership == null) {
+            return List.of();
+        }
+        return contactIds.stream()
+                .filter(id -> Boolean.TRUE.equals(membership.get(String.valueOf(id))))
+                .toList();
+    }
+
+    /**
+     * 时间线不存在时从数据库回填
+     */
+    private List<UserActivity> backfill(Long userId, int limit) {
+        List<UserActivity> activities = activityRepository.findFriendActivities(userId, PageRequest.of(0, maxSize));
+        Set<ZSetOperations.TypedTuple<String>> tuples = activities.stream()
+                .map(activity -> ZSetOperations.TypedTuple.of(String.valueOf(activity.getId()), scoreOf(activity)))
+                .collect(Collectors.toCollection(HashSet::new));
+        tuples.add(ZSetOperations.TypedTuple.of(BACKFILLED_MARKER, Double.POSITIVE_INFINITY));
+        String key = TIMELINE_PREFIX + userId;
+        // 替换而不是合并：清除后仍在进行的写扩散可能已写入已删除联系人的动态
+        stringRedisTemplate.delete(key);
+        stringRedisTemplate.opsForZSet().add(key, tuples);
+        stringRedisTemplate.expire(key, TIMELINE_TTL);
+        return activities.stream().limit(limit).toList();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static double scoreOf(UserActivity activity) {
+        return activity.getCreatedAt() != null
+                ? activity.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+    }
+}
@@ -23,6 +23,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final VerificationCodeService verificationCodeService;
+    private final AvatarService avatarService;
 
     @Transactional
     public AuthResponse register(RegisterRequest request) {
@@ -58,7 +59,7 @@ public class AuthService {
         user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
         user.setNickname(request.getNickname());
         user.setPhone(request.getPhone());
-        user.setAvatarUrl(request.getAvatarUrl());
+        user.setAvatarUrl(avatarService.normalize(request.getAvatarUrl()));
         user.setIsOnline(true);
 
         User savedUser = userRepository.save(user);
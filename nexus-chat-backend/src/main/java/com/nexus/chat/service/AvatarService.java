@@ -0,0 +1,194 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.exception.BusinessException;
+import com.nexus.chat.media.ImageVariants;
+import com.nexus.chat.repository.ChatRepository;
+import com.nexus.chat.repository.UserRepository;
+import com.nexus.chat.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 头像处理
+ * 上传的图片（文件或 Base64）按方向摆正、居中裁剪为正方形后缩放为 256px 和 64px 两种尺寸，
+ * 以原图内容的 SHA-256 命名存放在存储后端的 avatars/ab/{sha256}.jpg（小图为 {sha256}-64.jpg），
+ * 地址为 /uploads/avatars/ab/{sha256}.jpg。
+ * 用户和群组只保存这个短地址；地址随内容变化，可以长期缓存。
+ * 旧版本直接存入 avatar_url 的 Base64 头像在启动后由后台任务转换。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvatarService {
+
+    static final int AVATAR_SIZE = 256;
+    static final int SMALL_AVATAR_SIZE = 64;
+
+    private static final String AVATAR_DIR = "avatars/";
+    private static final long MAX_AVATAR_BYTES = 10 * 1024 * 1024;
+
+    private static final int MIGRATION_BATCH_SIZE = 100;
+    private static final String MIGRATION_LOCK_KEY = "avatar:migration";
+    private static final Duration MIGRATION_LEASE = Duration.ofMinutes(30);
+
+    private final FileStorageService fileStorageService;
+    private final BlobStore blobStore;
+    private final UserRepository userRepository;
+    private final ChatRepository chatRepository;
+    private final RedisCacheService redisCacheService;
+    private final RedisLeaseService redisLeaseService;
+
+    /**
+     * 保存头像图片，返回头像地址；不是可识别的图片时抛出 BusinessException
+     */
+    public String store(InputStream input) throws IOException {
+        FileStorageService.TempFile temp = fileStorageService.writeTemp(input);
+        try {
+            if (temp.size() == 0) {
+                throw new BusinessException("error.user.file.empty");
+            }
+            if (temp.size() > MAX_AVATAR_BYTES) {
+                throw new BusinessException("error.user.avatar.too.large");
+            }
+            return process(temp);
+        } finally {
+            fileStorageService.discard(temp);
+        }
+    }
+
+    /**
+     * 保存 Base64 头像（可带 data:image/...;base64, 前缀）
+     */
+    public String storeBase64(String base64) throws IOException {
+        int comma = base64.startsWith("data:") ? base64.indexOf(',') : -1;
+        if (base64.startsWith("data:") && (comma < 0 || !base64.substring(0, comma).contains(";base64"))) {
+            throw new BusinessException("error.user.file.image.only");
+        }
+        byte[] ascii = base64.substring(comma + 1).getBytes(StandardCharsets.US_ASCII);
+        try (InputStream input = Base64.getMimeDecoder().wrap(new ByteArrayInputStream(ascii))) {
+            return store(input);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("error.user.file.image.only", e);
+        }
+    }
+
+    /**
+     * 客户端提交的头像：data: URL 转存为文件地址，其他地址原样返回
+     */
+    public String normalize(String avatar) {
+        if (avatar == null || !avatar.startsWith("data:")) {
+            return avatar;
+        }
+        try {
+            return storeBase64(avatar);
+        } catch (IOException e) {
+            throw new BusinessException("error.user.file.image.only", e);
+        }
+    }
+
+    private String process(FileStorageService.TempFile temp) throws IOException {
+        String hash = temp.hash();
+        String dir = AVATAR_DIR + hash.substring(0, 2) + "/";
+
+        // 相同图片已处理过
+        for (String extension : List.of(".jpg", ".png")) {
+            if (blobStore.exists(dir + hash + extension)) {
+                return "/uploads/" + dir + hash + extension;
+            }
+        }
+
+        BufferedImage square;
+        try {
+            square = ImageVariants.cropSquare(ImageVariants.decodeMinSide(temp.path(), AVATAR_SIZE).image());
+        } catch (IOException e) {
+            throw new BusinessException("error.user.file.image.only", e);
+        }
+        BufferedImage avatar = ImageVariants.scaleToWidth(square, AVATAR_SIZE);
+        BufferedImage small = ImageVariants.scaleToWidth(avatar, SMALL_AVATAR_SIZE);
+        String extension = ImageVariants.extensionFor(avatar);
+
+        // 小图先写，主图存在即表示处理完成
+        fileStorageService.storeImage(dir + hash + "-" + SMALL_AVATAR_SIZE + extension, small);
+        fileStorageService.storeImage(dir + hash + extension, avatar);
+        return "/uploads/" + dir + hash + extension;
+    }
+
+    /**
+     * 启动后把用户和群组的 Base64 头像转存为文件，多实例时只由抢到租约的实例执行，
+     * 每批续期一次，租约丢失后停止
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInlineAvatars() {
+        RedisLeaseService.Lease lease = redisLeaseService.tryAcquire(MIGRATION_LOCK_KEY, MIGRATION_LEASE);
+        if (lease == null) {
+            return;
+        }
+
+        try {
+            int users = migrate("用户", lease,
+                    afterId -> userRepository.findIdsWithInlineAvatar(afterId, PageRequest.of(0, MIGRATION_BATCH_SIZE)),
+                    id -> userRepository.findById(id).map(user -> user.getAvatarUrl()).orElse(null),
+                    (id, url) -> {
+                        if (userRepository.replaceInlineAvatar(id, url) > 0) {
+                            redisCacheService.invalidateUserProfile(id);
+                        }
+                    });
+            int chats = migrate("群组", lease,
+                    afterId -> chatRepository.findIdsWithInlineAvatar(afterId, PageRequest.of(0, MIGRATION_BATCH_SIZE)),
+                    id -> chatRepository.findById(id).map(chat -> chat.getAvatarUrl()).orElse(null),
+                    chatRepository::replaceInlineAvatar);
+            if (users + chats > 0) {
+                log.info("Base64 头像迁移完成: {} 个用户, {} 个群组", users, chats);
+            }
+        } catch (Exception e) {
+            log.error("Base64 头像迁移失败", e);
+        } finally {
+            lease.release();
+        }
+    }
+
+    private int migrate(String kind, RedisLeaseService.Lease lease, Function<Long, List<Long>> nextBatch,
+                        Function<Long, String> loadAvatar, AvatarUpdater updater) {
+        int migrated = 0;
+        long lastId = 0;
+        List<Long> batch;
+        while (lease.renew() && !(batch = nextBatch.apply(lastId)).isEmpty()) {
+            for (Long id : batch) {
+                lastId = id;
+                String inline = loadAvatar.apply(id);
+                if (inline == null || !inline.startsWith("data:")) {
+                    continue;
+                }
+                try {
+                    updater.update(id, storeBase64(inline));
+                    migrated++;
+                } catch (Exception e) {
+                    // 无法解码的头像保留原值，不影响其他记录
+                    log.warn("{}头像迁移失败: id={}, error={}", kind, id, e.getMessage());
+                }
+            }
+        }
+        return migrated;
+    }
+
+    @FunctionalInterface
+    private interface AvatarUpdater {
+        void update(Long id, String avatarUrl);
+    }
+}
@@ -0,0 +1,226 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.dto.ChatMediaDTO;
+import com.nexus.chat.dto.ChatMediaPageDTO;
+import com.nexus.chat.exception.BusinessException;
+import com.nexus.chat.model.ChatMedia;
+import com.nexus.chat.model.Message;
+import com.nexus.chat.repository.ChatMediaRepository;
+import com.nexus.chat.repository.ChatMemberRepository;
+import com.nexus.chat.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 聊天共享媒体
+ * 带附件的消息发送时写入 chat_media 索引，附件过期清理时删除；共享媒体页按类型和序列号键集分页，
+ * 每页只返回缩略图信息。各类型总数缓存在 Redis 哈希 chat:media:counts:{chatId} 中，
+ * 索引变化提交后原地增减（缓存不存在时跳过，下次读取时从数据库重建），缓存设有过期时间以修正偏差。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatMediaService {
+
+    private static final String COUNTS_KEY_PREFIX = "chat:media:counts:";
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
+    // 只增减已缓存的计数，缓存不存在时不创建不完整的哈希
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then " +
+            "return redis.call('hincrby', KEYS[1], ARGV[1], ARGV[2]) else return 0 end", Long.class);
+
+    private final ChatMediaRepository chatMediaRepository;
+    private final ChatMemberRepository chatMemberRepository;
+    private final MessageRepository messageRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${chat.media.count-cache-ttl-minutes:60}")
+    private long countCacheTtlMinutes;
+
+    /**
+     * 为带附件摘要的新消息写入媒体索引（与消息在同一事务中）
+     */
+    public void index(Message message) {
+        if (message.getFileId() == null || message.getFileName() == null) {
+            return;
+        }
+        ChatMedia media = chatMediaRepository.save(toMedia(message));
+        afterCommit(() -> adjustCount(media.getChatId(), media.getMediaType(), 1));
+    }
+
+    /**
+     * 删除已过期文件的媒体索引（在清理事务中调用）
+     */
+    public void removeFiles(Collection<String> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        List<ChatMedia> removed = chatMediaRepository.findByFileIdIn(fileIds);
+        if (removed.isEmpty()) {
+            return;
+        }
+        chatMediaRepository.deleteByIdIn(removed.stream().map(ChatMedia::getId).toList());
+        afterCommit(() -> removed.forEach(media -> adjustCount(media.getChatId(), media.getMediaType(), -1)));
+    }
+
+    /**
+     * 共享媒体分页：before 为上一页返回的 nextBefore，首页不传
+     */
+    public ChatMediaPageDTO getMedia(Long chatId, Long userId, ChatMedia.MediaType type, Long before, int limit) {
+        if (!chatMemberRepository.existsByChatIdAndUserId(chatId, userId)) {
+            throw new BusinessException("error.chat.not.member");
+        }
+
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<ChatMedia> page = chatMediaRepository
+                .findByChatIdAndMediaTypeAndSequenceNumberLessThanOrderBySequenceNumberDesc(
+                        chatId, type, before != null ? before : Long.MAX_VALUE, PageRequest.of(0, size));
+
+        Long nextBefore = page.size() == size ? page.get(page.size() - 1).getSequenceNumber() : null;
+        return new ChatMediaPageDTO(page.stream().map(ChatMediaService::toDTO).toList(), nextBefore, getCounts(chatId));
+    }
+
+    /**
+     * 各类型的媒体总数，优先读缓存
+     */
+    public Map<ChatMedia.MediaType, Long> getCounts(Long chatId) {
+        String key = COUNTS_KEY_PREFIX + chatId;
+        try {
+            Map<Object, Object> cached = stringRedisTemplate.opsForHash().entries(key);
+            if (!cached.isEmpty()) {
+                Map<ChatMedia.MediaType, Long> counts = new EnumMap<>(ChatMedia.MediaType.class);
+                for (ChatMedia.MediaType type : ChatMedia.MediaType.values()) {
+                    Object value = cached.get(type.name());
+                    counts.put(type, value != null ? Math.max(0, Long.parseLong(value.toString())) : 0L);
+                }
+                return counts;
+            }
+        } catch (Exception e) {
+            log.warn("读取媒体计数缓存失败: chatId={}, error={}", chatId, e.getMessage());
+        }
+
+        Map<ChatMedia.MediaType, Long> counts = countFromDatabase(chatId);
+        try {
+            Map<String, String> fields = new HashMap<>();
+            counts.forEach((type, count) -> fields.put(type.name(), String.valueOf(count)));
+            stringRedisTemplate.opsForHash().putAll(key, fields);
+            stringRedisTemplate.expire(key, Duration.ofMinutes(countCacheTtlMinutes));
+        } catch (Exception e) {
+            log.warn("写入媒体计数缓存失败: chatId={}, error={}", chatId, e.getMessage());
+        }
+        return counts;
+    }
+
+    /**
+     * 为已有附件摘要但尚未建索引的消息补建媒体索引（启动后由 MessageService 的附件回填任务调用）
+     */
+    public void backfillIndex() {
+        int indexed = 0;
+        long lastId = 0;
+        Set<Long> touchedChats = new HashSet<>();
+        List<Message> batch;
+        while (!(batch = messageRepository.findWithAttachmentSummary(
+                lastId, PageRequest.of(0, BACKFILL_BATCH_SIZE))).isEmpty()) {
+            lastId = batch.get(batch.size() - 1).getId();
+            Set<Long> existing = new HashSet<>(chatMediaRepository.findIndexedMessageIds(
+                    batch.stream().map(Message::getId).toList()));
+            List<ChatMedia> missing = batch.stream()
+                    .filter(m -> !existing.contains(m.getId()) && m.getSequenceNumber() != null)
+                    .map(ChatMediaService::toMedia)
+                    .toList();
+            if (missing.isEmpty()) {
+                continue;
+            }
+            try {
+                chatMediaRepository.saveAll(missing);
+                missing.forEach(media -> touchedChats.add(media.getChatId()));
+                indexed += missing.size();
+            } catch (Exception e) {
+                // 与新消息并发写入同一条时整批跳过，下次启动重试
+                log.warn("媒体索引回填批次失败: 首个 messageId={}, error={}", missing.get(0).getMessageId(), e.getMessage());
+            }
+        }
+        if (indexed > 0) {
+            // 计数缓存下次读取时重建
+            stringRedisTemplate.delete(touchedChats.stream().map(id -> COUNTS_KEY_PREFIX + id).toList());
+            log.info("媒体索引回填完成: {} 条消息", indexed);
+        }
+    }
+
+    private Map<ChatMedia.MediaType, Long> countFromDatabase(Long chatId) {
+        Map<ChatMedia.MediaType, Long> counts = new EnumMap<>(ChatMedia.MediaType.class);
+        for (ChatMedia.MediaType type : ChatMedia.MediaType.values()) {
+            counts.put(type, 0L);
+        }
+        for (Object[] row : chatMediaRepository.countByMediaType(chatId)) {
+            counts.put((ChatMedia.MediaType) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private void adjustCount(Long chatId, ChatMedia.MediaType type, long delta) {
+        try {
+            stringRedisTemplate.execute(INCREMENT_SCRIPT, List.of(COUNTS_KEY_PREFIX + chatId),
+                    type.name(), String.valueOf(delta));
+        } catch (Exception e) {
+            // 计数失效，下次读取时重建
+            log.warn("更新媒体计数缓存失败: chatId={}, error={}", chatId, e.getMessage());
+            try {
+                stringRedisTemplate.delete(COUNTS_KEY_PREFIX + chatId);
+            } catch (Exception ignored) {
+                // 缓存过期后自动修正
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static ChatMedia toMedia(Message message) {
+        ChatMedia media = new ChatMedia();
+        media.setChatId(message.getChatId());
+        media.setSequenceNumber(message.getSequenceNumber());
+        media.setMessageId(message.getId());
+        media.setSenderId(message.getSenderId());
+        media.setMediaType(ChatMedia.MediaType.of(message.getFileMimeType()));
+        media.setFileId(message.getFileId());
+        media.setFileName(message.getFileName());
+        media.setFileSize(message.getFileSize());
+        media.setMimeType(message.getFileMimeType());
+        media.setThumbnailPath(message.getFileThumbnail());
+        media.setCreatedAt(message.getCreatedAt());
+        return media;
+    }
+
+    private static ChatMediaDTO toDTO(ChatMedia media) {
+        String fileId = media.getFileId();
+        String thumbnailUrl = media.getThumbnailPath() != null || media.getMediaType() == ChatMedia.MediaType.image
+                ? MediaPipelineService.thumbnailUrl(fileId, media.getThumbnailPath())
+                : null;
+        return new ChatMediaDTO(media.getMessageId(), media.getSequenceNumber(), media.getSenderId(),
+                media.getMediaType(), fileId, media.getFileName(), media.getFileSize(), media.getMimeType(),
+                thumbnailUrl, "/api/files/preview/" + fileId, "/api/files/download/" + fileId, media.getCreatedAt());
+    }
+}
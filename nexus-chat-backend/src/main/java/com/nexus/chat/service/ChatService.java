@@ -29,11 +29,15 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ChatService {
 
+    private static final int MAX_GROUP_MEMBERS = 200;
+    private static final int MAX_CHANNEL_MEMBERS = 100_000;
+
     private final ChatRepository chatRepository;
     private final ChatMemberRepository chatMemberRepository;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final AvatarService avatarService;
 
     @Transactional
     public ChatDTO createDirectChat(Long userId, Long contactId) {
@@ -77,19 +81,11 @@ public class ChatService {
     @Transactional
     public ChatDTO createGroupChat(Long userId, CreateGroupRequest request) {
         // Validation
-        if (request.getName() == null || request.getName().trim().isEmpty()) {
-            throw new BusinessException("Group name is required");
-        }
-        if (request.getName().length() > 100) {
-            throw new BusinessException("Group name must be less than 100 characters");
-        }
-        if (request.getDescription() != null && request.getDescription().length() > 200) {
-            throw new BusinessException("Group description must be less than 200 characters");
-        }
+        validateGroupInfo(request);
         if (request.getMemberIds() == null || request.getMemberIds().isEmpty()) {
             throw new BusinessException("At least one member is required");
         }
-        if (request.getMemberIds().size() > 200) {
+        if (request.getMemberIds().size() > MAX_GROUP_MEMBERS) {
             throw new BusinessException("Group cannot have more than 200 members");
         }
 
@@ -109,7 +105,7 @@ public class ChatService {
         chat.setType(Chat.ChatType.group);
         chat.setName(request.getName().trim());
         chat.setDescription(request.getDescription());
-        chat.setAvatarUrl(request.getAvatar());
+        chat.setAvatarUrl(avatarService.normalize(request.getAvatar()));
         chat.setIsPrivate(request.getIsPrivate() != null ? request.getIsPrivate() : false);
         chat.setCreatedBy(userId);
 
@@ -148,10 +144,152 @@ public class ChatService {
         return chatDTO;
     }
 
+    /**
+     * Create a broadcast channel. Unlike groups there is no 200-member cap: sends
+     * are a single message write, members keep a read cursor, and online members
+     * receive messages through the shared /topic/group/{id} subscription.
+     */
+    @Transactional
+    public ChatDTO createChannel(Long userId, CreateGroupRequest request) {
+        validateGroupInfo(request);
+
+        List<Long> otherMemberIds = request.getMemberIds() == null
+                ? Collections.emptyList()
+                : request.getMemberIds().stream()
+                        .filter(id -> !id.equals(userId))
+                        .distinct()
+                        .collect(Collectors.toList());
+        if (otherMemberIds.size() + 1 > MAX_CHANNEL_MEMBERS) {
+            throw new BusinessException("error.channel.member.limit", MAX_CHANNEL_MEMBERS);
+        }
+        if (!otherMemberIds.isEmpty()) {
+            List<User> existingUsers = userRepository.findAllByIdIn(otherMemberIds);
+            if (existingUsers.size() != otherMemberIds.size()) {
+                throw new BusinessException("One or more members not found");
+            }
+        }
+
+        Chat chat = new Chat();
+        chat.setType(Chat.ChatType.channel);
+        chat.setName(request.getName().trim());
+        chat.setDescription(request.getDescription());
+        chat.setAvatarUrl(avatarService.normalize(request.getAvatar()));
+        chat.setIsPrivate(request.getIsPrivate() != null ? request.getIsPrivate() : false);
+        chat.setCreatedBy(userId);
+        chat.setMemberCount(1 + otherMemberIds.size());
+        Chat savedChat = chatRepository.save(chat);
+
+        // Creator is the owner and the only initial poster
+        ChatMember owner = new ChatMember();
+        owner.setChatId(savedChat.getId());
+        owner.setUserId(userId);
+        owner.setRole(ChatMember.MemberRole.owner);
+        owner.setIsAdmin(true);
+        chatMemberRepository.save(owner);
+
+        List<ChatMember> members = otherMemberIds.stream().map(memberId -> {
+            ChatMember member = new ChatMember();
+            member.setChatId(savedChat.getId());
+            member.setUserId(memberId);
+            member.setIsAdmin(false);
+            return member;
+        }).collect(Collectors.toList());
+        chatMemberRepository.saveAll(members);
+
+        // Channel DTOs carry no member list, so one payload serves every member
+        ChatDTO chatDTO = mapToDTO(savedChat, userId);
+        WebSocketMessage wsMessage = new WebSocketMessage(
+                WebSocketMessage.MessageType.CHAT_CREATED,
+                chatDTO);
+        for (Long memberId : otherMemberIds) {
+            messagingTemplate.convertAndSendToUser(String.valueOf(memberId), "/queue/chats", wsMessage);
+        }
+
+        return chatDTO;
+    }
+
+    /**
+     * Self-join a public channel. The read cursor starts at the latest message so
+     * the channel history does not show up as unread.
+     */
+    @Transactional
+    public ChatDTO joinChannel(Long chatId, Long userId) {
+        Chat chat = chatRepository.findById(chatId)
+                .orElseThrow(() -> new BusinessException("error.chat.not.found"));
+        if (chat.getType() != Chat.ChatType.channel) {
+            throw new BusinessException("error.channel.not.channel");
+        }
+        if (chatMemberRepository.existsByChatIdAndUserId(chatId, userId)) {
+            return mapToDTO(chat, userId);
+        }
+        if (Boolean.TRUE.equals(chat.getIsPrivate())) {
+            throw new BusinessException("error.channel.private");
+        }
+        if (chat.getMemberCount() != null && chat.getMemberCount() >= MAX_CHANNEL_MEMBERS) {
+            throw new BusinessException("error.channel.member.limit", MAX_CHANNEL_MEMBERS);
+        }
+
+        ChatMember member = new ChatMember();
+        member.setChatId(chatId);
+        member.setUserId(userId);
+        member.setIsAdmin(false);
+        member.setLastReadSequence(messageRepository.findFirstByChatIdOrderBySequenceNumberDesc(chatId)
+                .map(Message::getSequenceNumber)
+                .orElse(0L));
+        chatMemberRepository.save(member);
+
+        // Atomic increment instead of COUNT(*) over a potentially huge member table
+        chatRepository.adjustMemberCount(chatId, 1);
+
+        ChatDTO dto = mapToDTO(chat, userId);
+        dto.setMemberCount((chat.getMemberCount() != null ? chat.getMemberCount() : 0) + 1);
+        return dto;
+    }
+
+    /**
+     * Whether a chat is a broadcast channel (delivery skips per-member fan-out).
+     */
+    public boolean isChannel(Long chatId) {
+        return getChatType(chatId) == Chat.ChatType.channel;
+    }
+
+    /**
+     * Chat type used to pick the delivery route: direct chats go to each member's
+     * user channel, groups and channels to the shared /topic/group/{id}.
+     */
+    public Chat.ChatType getChatType(Long chatId) {
+        return chatRepository.findById(chatId)
+                .map(Chat::getType)
+                .orElse(null);
+    }
+
+    /**
+     * Channel unread count is derived from the member's read cursor, not a stored counter.
+     */
+    public static int channelUnreadCount(ChatMember member, Message lastMessage) {
+        if (lastMessage == null || lastMessage.getSequenceNumber() == null) {
+            return 0;
+        }
+        long cursor = member.getLastReadSequence() != null ? member.getLastReadSequence() : 0L;
+        return (int) Math.max(0, lastMessage.getSequenceNumber() - cursor);
+    }
+
+    private void validateGroupInfo(CreateGroupRequest request) {
+        if (request.getName() == null || request.getName().trim().isEmpty()) {
+            throw new BusinessException("Group name is required");
+        }
+        if (request.getName().length() > 100) {
+            throw new BusinessException("Group name must be less than 100 characters");
+        }
+        if (request.getDescription() != null && request.getDescription().length() > 200) {
+            throw new BusinessException("Group description must be less than 200 characters");
+        }
+    }
+
     /**
      * Optimized: Batch-loads all data in 4 queries instead of ~120.
      * Before: For 20 chats x 5 members = ~120 queries (N+1 problem)
-     * After: 4 queries total (chats, members, users, lastMessages)
+     * After: 4 queries total (chats, members, lastMessages, users), plus one for channel cursors
      */
     public List<ChatDTO> getUserChats(Long userId) {
         // Query 1: Get all chats for the user
@@ -162,24 +300,37 @@ public class ChatService {
 
         List<Long> chatIds = chats.stream().map(Chat::getId).collect(Collectors.toList());
 
-        // Query 2: Batch load all members for all chats
-        List<ChatMember> allMembers = chatMemberRepository.findByChatIdIn(chatIds);
+        // Channel member lists are unbounded: only the caller's own row is loaded for them
+        List<Long> channelIds = chats.stream()
+                .filter(c -> c.getType() == Chat.ChatType.channel)
+                .map(Chat::getId)
+                .collect(Collectors.toList());
+        List<Long> memberListChatIds = chats.stream()
+                .filter(c -> c.getType() != Chat.ChatType.channel)
+                .map(Chat::getId)
+                .collect(Collectors.toList());
+
+        // Query 2: Batch load all members for all non-channel chats
+        List<ChatMember> allMembers = memberListChatIds.isEmpty()
+                ? Collections.emptyList()
+                : chatMemberRepository.findByChatIdIn(memberListChatIds);
         Map<Long, List<ChatMember>> membersByChatId = allMembers.stream()
                 .collect(Collectors.groupingBy(ChatMember::getChatId));
 
-        // Query 3: Batch load all user details for all members
+        // Query 3: Batch load last messages for all chats
+        List<Message> lastMessages = messageRepository.findLastMessagesByChatIds(chatIds);
+        Map<Long, Message> lastMessageByChatId = lastMessages.stream()
+                .collect(Collectors.toMap(Message::getChatId, Function.identity()));
+
+        // Query 4: Batch load all user details for all members and last-message senders
         Set<Long> allUserIds = allMembers.stream()
                 .map(ChatMember::getUserId)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(HashSet::new));
+        lastMessages.forEach(m -> allUserIds.add(m.getSenderId()));
         List<User> allUsers = userRepository.findAllByIdIn(allUserIds);
         Map<Long, User> usersById = allUsers.stream()
                 .collect(Collectors.toMap(User::getId, Function.identity()));
 
-        // Query 4: Batch load last messages for all chats
-        List<Message> lastMessages = messageRepository.findLastMessagesByChatIds(chatIds);
-        Map<Long, Message> lastMessageByChatId = lastMessages.stream()
-                .collect(Collectors.toMap(Message::getChatId, Function.identity()));
-
         // Build unread count map from the members we already loaded
         Map<Long, Integer> unreadCountByChatId = new HashMap<>();
         for (ChatMember cm : allMembers) {
@@ -188,6 +339,14 @@ public class ChatService {
             }
         }
 
+        // Query 5 (only with channels): the caller's channel read cursors
+        if (!channelIds.isEmpty()) {
+            for (ChatMember cm : chatMemberRepository.findByChatIdInAndUserId(channelIds, userId)) {
+                unreadCountByChatId.put(cm.getChatId(),
+                        channelUnreadCount(cm, lastMessageByChatId.get(cm.getChatId())));
+            }
+        }
+
         // Assemble DTOs in memory (no more queries)
         return chats.stream().map(chat -> {
             ChatDTO dto = new ChatDTO();
@@ -285,8 +444,13 @@ public class ChatService {
         dto.setCreatedAt(chat.getCreatedAt());
         dto.setLastMessageAt(chat.getLastMessageAt());
 
-        // Get chat members
-        List<ChatMember> members = chatMemberRepository.findByChatId(chat.getId());
+        // Get chat members (channels: only the current user's row, the full list is unbounded)
+        boolean isChannel = chat.getType() == Chat.ChatType.channel;
+        List<ChatMember> members = isChannel
+                ? chatMemberRepository.findByChatIdAndUserId(chat.getId(), currentUserId)
+                        .map(List::of)
+                        .orElse(Collections.emptyList())
+                : chatMemberRepository.findByChatId(chat.getId());
         Set<Long> memberUserIds = members.stream().map(ChatMember::getUserId).collect(Collectors.toSet());
         List<User> users = userRepository.findAllByIdIn(memberUserIds);
         Map<Long, User> usersById = users.stream().collect(Collectors.toMap(User::getId, Function.identity()));
@@ -307,7 +471,7 @@ public class ChatService {
                 })
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
-        dto.setMembers(memberDTOs);
+        dto.setMembers(isChannel ? Collections.emptyList() : memberDTOs);
 
         // For direct chat, set name as the other user's nickname
         if (chat.getType() == Chat.ChatType.direct && dto.getName() == null) {
@@ -318,33 +482,35 @@ public class ChatService {
         }
 
         // Get only the last message (was loading ALL messages before)
-        messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId())
-                .ifPresent(lastMsg -> {
-                    User sender = usersById.get(lastMsg.getSenderId());
-                    // If sender not in members (e.g., left group), fetch individually
-                    if (sender == null) {
-                        sender = userRepository.findById(lastMsg.getSenderId()).orElse(null);
-                    }
-                    if (sender != null) {
-                        MessageDTO msgDTO = new MessageDTO();
-                        msgDTO.setId(lastMsg.getId());
-                        msgDTO.setChatId(lastMsg.getChatId());
-                        msgDTO.setSenderId(lastMsg.getSenderId());
-                        msgDTO.setSenderNickname(sender.getNickname());
-                        msgDTO.setSenderAvatar(sender.getAvatarUrl());
-                        msgDTO.setContent(lastMsg.getContent());
-                        msgDTO.setMessageType(lastMsg.getMessageType());
-                        msgDTO.setFileUrl(lastMsg.getFileUrl());
-                        msgDTO.setCreatedAt(lastMsg.getCreatedAt());
-                        dto.setLastMessage(msgDTO);
-                    }
-                });
+        Optional<Message> lastMessage = messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId());
+        lastMessage.ifPresent(lastMsg -> {
+            User sender = usersById.get(lastMsg.getSenderId());
+            // If sender not in members (e.g., left group), fetch individually
+            if (sender == null) {
+                sender = userRepository.findById(lastMsg.getSenderId()).orElse(null);
+            }
+            if (sender != null) {
+                MessageDTO msgDTO = new MessageDTO();
+                msgDTO.setId(lastMsg.getId());
+                msgDTO.setChatId(lastMsg.getChatId());
+                msgDTO.setSenderId(lastMsg.getSenderId());
+                msgDTO.setSenderNickname(sender.getNickname());
+                msgDTO.setSenderAvatar(sender.getAvatarUrl());
+                msgDTO.setContent(lastMsg.getContent());
+                msgDTO.setMessageType(lastMsg.getMessageType());
+                msgDTO.setFileUrl(lastMsg.getFileUrl());
+                msgDTO.setCreatedAt(lastMsg.getCreatedAt());
+                dto.setLastMessage(msgDTO);
+            }
+        });
 
         // Get unread count for current user
         members.stream()
                 .filter(m -> m.getUserId().equals(currentUserId))
                 .findFirst()
-                .ifPresent(member -> dto.setUnreadCount(member.getUnreadCount()));
+                .ifPresent(member -> dto.setUnreadCount(isChannel
+                        ? channelUnreadCount(member, lastMessage.orElse(null))
+                        : member.getUnreadCount()));
 
         return dto;
     }
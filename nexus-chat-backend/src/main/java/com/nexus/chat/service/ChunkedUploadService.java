@@ -0,0 +1,435 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.repository.FileUploadChunkRepository;
+import com.nexus.chat.repository.FileUploadRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 分片上传（断点续传）
+ * 首个分片到达时创建未完成的上传记录并预分配目标大小的 .part 文件，
+ * 每个分片经 FileChannel 直接写到 chunkIndex * chunkSize 处，分片可以乱序、重复上传；
+ * 已接收的分片记录在 file_upload_chunks 中，客户端中断后可查询状态只补传缺失的分片。
+ * SHA-256 随分片写入按顺序增量计算，乱序到达的分片在前面的分片补齐后读取一次；
+ * 全部分片到齐后 .part 文件原子移动后按内容存储（与已有内容相同时秒传），无需重新读取整个文件。
+ * .part 文件在各实例本地：多实例部署时分片须路由到同一实例（按 fileId 粘性路由），
+ * 或设置 file.chunk.shared-storage=true 并让 uploads/chunks 使用共享卷。
+ * 未共享时只有本实例写入了全部分片才完成上传，否则删除其他实例写入的分片记录，
+ * 返回缺失的分片让客户端重传，不会把含空洞的 .part 文件当作完整文件存储。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadService {
+
+    private static final String CHUNKS_DIR = FileStorageService.UPLOAD_DIR + "chunks/";
+    private static final Pattern FILE_ID = Pattern.compile("[0-9a-fA-F-]{36}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int EXPIRY_DAYS = 30;
+
+    // 长时间没有新分片的会话从内存中移除（上传记录和 .part 文件由清理任务处理）
+    private static final Duration SESSION_IDLE_TIMEOUT = Duration.ofHours(24);
+
+    private final FileUploadRepository fileUploadRepository;
+    private final FileUploadChunkRepository chunkRepository;
+    private final FileStorageService fileStorageService;
+    private final FileBlobService fileBlobService;
+    private final MediaPipelineService mediaPipelineService;
+
+    // uploads/chunks 是否为各实例共享的卷
+    @Value("${file.chunk.shared-storage:false}")
+    private boolean sharedStorage;
+
+    // 本实例上的增量摘要状态，按 fileId 区分
+    private final Map<String, HashState> hashStates = new ConcurrentHashMap<>();
+
+    /**
+     * 写入一个分片，分片到齐时完成上传
+     */
+    public ChunkResult writeChunk(String fileId, int chunkIndex, int totalChunks, Long chunkSize, Long totalSize,
+                                  String filename, Long uploaderId, MultipartFile chunk) throws IOException {
+        if (!FILE_ID.matcher(fileId).matches()) {
+            throw new IllegalArgumentException("fileId 格式错误");
+        }
+        if (totalChunks <= 0 || chunkIndex < 0 || chunkIndex >= totalChunks) {
+            throw new IllegalArgumentException("分片序号错误");
+        }
+
+        FileUpload upload = openUpload(fileId, chunkIndex, totalChunks, chunkSize, totalSize, filename, uploaderId, chunk);
+        if (Boolean.TRUE.equals(upload.getUploadComplete())) {
+            return new ChunkResult(upload, true);
+        }
+        if (!upload.getChunkCount().equals(totalChunks)) {
+            throw new IllegalArgumentException("分片总数与已有上传不一致");
+        }
+        if (filename != null && !filename.equals(upload.getFilename())) {
+            fileUploadRepository.updatePendingFilename(fileId, filename);
+            upload.setFilename(filename);
+        }
+
+        long offset = chunkIndex * upload.getChunkSize();
+        validateChunk(upload, chunkIndex, offset, chunk.getSize());
+
+        HashState hash = hashStates.computeIfAbsent(fileId, id -> new HashState());
+        synchronized (hash) {
+            hash.touch();
+            if (!hash.written.get(chunkIndex) && !chunkRepository.existsByFileIdAndChunkIndex(fileId, chunkIndex)) {
+                Path part = partPath(fileId);
+                boolean inline = chunkIndex == hash.hashedChunks;
+                writeAt(part, chunk, offset, inline ? hash.digest : null);
+                chunkRepository.insertIfAbsent(fileId, chunkIndex, chunk.getSize());
+                hash.written.set(chunkIndex);
+                if (inline) {
+                    hash.hashedChunks++;
+                    advance(hash, part, upload);
+                }
+            }
+
+            if (chunkRepository.countByFileId(fileId) < totalChunks) {
+                return new ChunkResult(upload, false);
+            }
+            if (!sharedStorage && hash.written.cardinality() < totalChunks) {
+                rejectForeignChunks(fileId, totalChunks, hash);
+            }
+            return complete(upload, filename, hash);
+        }
+    }
+
+    /**
+     * 查询上传状态：上传记录和已接收的分片序号
+     */
+    public Optional<UploadStatus> getStatus(String fileId) {
+        return fileUploadRepository.findByFileId(fileId).map(upload -> new UploadStatus(upload,
+                Boolean.TRUE.equals(upload.getUploadComplete()) ? List.of() : chunkRepository.findChunkIndexes(fileId)));
+    }
+
+    /**
+     * 删除未完成上传的 .part 文件和分片记录（清理任务调用）
+     */
+    public void discard(String fileId) throws IOException {
+        hashStates.remove(fileId);
+        Files.deleteIfExists(partPath(fileId));
+        chunkRepository.deleteByFileId(fileId);
+    }
+
+    /**
+     * 部分分片写在其他实例（或本实例重启前）的 .part 文件中，本地文件在这些位置是空洞：
+     * 删除这些分片的记录，让客户端按状态查询结果重传
+     */
+    private void rejectForeignChunks(String fileId, int totalChunks, HashState hash) {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = hash.written.nextClearBit(0); i < totalChunks; i = hash.written.nextClearBit(i + 1)) {
+            missing.add(i);
+        }
+        chunkRepository.deleteByFileIdAndChunkIndexIn(fileId, missing);
+        log.warn("分片不在本实例, 需要重传: fileId={}, missing={}", fileId, missing.size());
+        throw new MissingChunksException(missing);
+    }
+
+    private FileUpload openUpload(String fileId, int chunkIndex, int totalChunks, Long chunkSize, Long totalSize,
+                                  String filename, Long uploaderId, MultipartFile chunk) throws IOException {
+        Optional<FileUpload> existing = fileUploadRepository.findByFileId(fileId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        // 分片大小：客户端指定，否则由非最后分片的大小或文件总大小推算
+        Long resolvedChunkSize = chunkSize;
+        if (resolvedChunkSize == null) {
+            if (chunkIndex < totalChunks - 1 || totalChunks == 1) {
+                resolvedChunkSize = chunk.getSize();
+            } else if (totalSize != null) {
+                resolvedChunkSize = (totalSize - chunk.getSize()) / (totalChunks - 1);
+            } else {
+                throw new IllegalArgumentException("无法确定分片大小，请提供 chunkSize 或 totalSize");
+            }
+        }
+        if (resolvedChunkSize <= 0 && totalChunks > 1) {
+            throw new IllegalArgumentException("分片大小错误");
+        }
+
+        evictIdleStates();
+
+        FileUpload upload = new FileUpload();
+        upload.setFileId(fileId);
+        upload.setFilename(filename != null ? filename : fileId);
+        upload.setOriginalName(filename);
+        upload.setFileSize(totalSize != null ? totalSize : 0L);
+        upload.setUploaderId(uploaderId);
+        upload.setFilePath("chunks/" + fileId + ".part");
+        upload.setChunkCount(totalChunks);
+        upload.setChunkSize(resolvedChunkSize);
+        upload.setUploadComplete(false);
+        try {
+            upload = fileUploadRepository.save(upload);
+        } catch (DataIntegrityViolationException e) {
+            // 并发上传的其他分片已创建记录
+            return fileUploadRepository.findByFileId(fileId).orElseThrow(() -> e);
+        }
+
+        // 预分配目标大小，分片直接写到各自的偏移处
+        Path part = partPath(fileId);
+        Files.createDirectories(part.getParent());
+        try (RandomAccessFile file = new RandomAccessFile(part.toFile(), "rw")) {
+            if (totalSize != null && file.length() < totalSize) {
+                file.setLength(totalSize);
+            }
+        }
+        return upload;
+    }
+
+    private void validateChunk(FileUpload upload, int chunkIndex, long offset, long size) {
+        boolean last = chunkIndex == upload.getChunkCount() - 1;
+        boolean sizeMatches = last
+                ? upload.getChunkCount() == 1 || size <= upload.getChunkSize()
+                : size == upload.getChunkSize();
+        if (!sizeMatches) {
+            throw new IllegalArgumentException("分片大小与 chunkSize 不一致");
+        }
+        long totalSize = upload.getFileSize();
+        if (totalSize > 0 && (last ? offset + size != totalSize : offset + size > totalSize)) {
+            throw new IllegalArgumentException("分片与文件总大小不一致");
+        }
+    }
+
+    /**
+     * 把分片写到 .part 文件的指定偏移处；digest 不为空时写入的同时更新摘要
+     */
+    private void writeAt(Path part, MultipartFile chunk, long offset, MessageDigest digest) throws IOException {
+        long size = chunk.getSize();
+        try (FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             InputStream in = digest != null
+                     ? new DigestInputStream(chunk.getInputStream(), digest)
+                     : chunk.getInputStream();
+             // 分片已落盘为临时文件时直接在文件通道之间传输
+             ReadableByteChannel source = in instanceof FileInputStream fis
+                     ? fis.getChannel()
+                     : Channels.newChannel(in)) {
+            long written = 0;
+            while (written < size) {
+                long n = out.transferFrom(source, offset + written, size - written);
+                if (n <= 0) {
+                    throw new EOFException("分片数据不完整");
+                }
+                written += n;
+            }
+        }
+    }
+
+    /**
+     * 前面的分片补齐后，把之前乱序写入的后续分片依次计入摘要
+     */
+    private void advance(HashState hash, Path part, FileUpload upload) throws IOException {
+        if (!hash.written.get(hash.hashedChunks)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+            long fileEnd = chunkEnd(upload, upload.getChunkCount() - 1, channel);
+            while (hash.hashedChunks < upload.getChunkCount() && hash.written.get(hash.hashedChunks)) {
+                long from = hash.hashedChunks * upload.getChunkSize();
+                long to = Math.min(from + upload.getChunkSize(), fileEnd);
+                digestRange(channel, from, to, hash.digest);
+                hash.hashedChunks++;
+            }
+        }
+    }
+
+    private ChunkResult complete(FileUpload upload, String filename, HashState state) throws IOException {
+        String fileId = upload.getFileId();
+        Path part = partPath(fileId);
+        String hash;
+        long size;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+            size = chunkEnd(upload, upload.getChunkCount() - 1, channel);
+            if (state.hashedChunks < upload.getChunkCount()) {
+                // 部分分片由其他实例写入或本实例重启过，补算一次
+                MessageDigest digest = FileStorageService.newDigest();
+                digestRange(channel, 0, size, digest);
+                hash = HexFormat.of().formatHex(digest.digest());
+            } else {
+                hash = HexFormat.of().formatHex(state.digest.digest());
+            }
+        } catch (NoSuchFileException e) {
+            // 其他请求已完成（或正在完成）上传
+            return reloadResult(upload);
+        }
+
+        FileStorageService.TempFile temp;
+        try {
+            // 原子移动只有一个请求能成功
+            temp = fileStorageService.claimTemp(part, hash, size);
+        } catch (NoSuchFileException e) {
+            return reloadResult(upload);
+        }
+
+        String name = filename != null ? filename : upload.getFilename();
+        String storedName = fileId + FileStorageService.extensionOf(name);
+        FileStorageService.StoredFile stored;
+        try {
+            stored = fileStorageService.store(temp, storedName);
+        } catch (IOException | RuntimeException e) {
+            restorePart(fileId, temp, state);
+            throw e;
+        } finally {
+            fileStorageService.discard(temp);
+        }
+        try {
+            fileUploadRepository.completeUpload(fileId, name, storedName, stored.filePath(), size, stored.contentHash(),
+                    FileStorageService.mimeTypeOf(name), LocalDateTime.now().plusDays(EXPIRY_DAYS));
+        } catch (RuntimeException e) {
+            // 内容已移入存储，撤销引用后让客户端重新上传
+            fileBlobService.release(stored.contentHash());
+            resetChunks(fileId);
+            throw e;
+        }
+        hashStates.remove(fileId);
+        chunkRepository.deleteByFileId(fileId);
+
+        FileUpload completed = fileUploadRepository.findByFileId(fileId).orElse(upload);
+        mediaPipelineService.submit(completed);
+        log.info("分片上传完成: fileId={}, filename={}, size={}", fileId, name, size);
+        return new ChunkResult(completed, true);
+    }
+
+    /**
+     * 完成时 .part 文件已不在：只有上传记录确已完成才返回完成
+     */
+    private ChunkResult reloadResult(FileUpload upload) {
+        FileUpload current = fileUploadRepository.findByFileId(upload.getFileId()).orElse(upload);
+        boolean complete = Boolean.TRUE.equals(current.getUploadComplete());
+        if (complete) {
+            hashStates.remove(upload.getFileId());
+        }
+        return new ChunkResult(current, complete);
+    }
+
+    /**
+     * 存储失败：把临时文件移回 .part，重传任一分片即可再次完成；
+     * 临时文件已不在（内容已被移走）时删除分片记录，客户端需要重新上传全部分片
+     */
+    private void restorePart(String fileId, FileStorageService.TempFile temp, HashState state) {
+        try {
+            Files.move(temp.path(), partPath(fileId), StandardCopyOption.ATOMIC_MOVE);
+            // 摘要已在本次完成时取出，下次完成时重新计算
+            state.resetDigest();
+            log.warn("分片上传存储失败, 已保留分片数据: fileId={}", fileId);
+        } catch (IOException e) {
+            log.warn("分片上传存储失败, 分片数据已丢失: fileId={}, error={}", fileId, e.getMessage());
+            resetChunks(fileId);
+        }
+    }
+
+    private void resetChunks(String fileId) {
+        hashStates.remove(fileId);
+        chunkRepository.deleteByFileId(fileId);
+    }
+
+    /**
+     * 指定分片的结束偏移；最后一个分片的结束位置即文件大小
+     */
+    private long chunkEnd(FileUpload upload, int chunkIndex, FileChannel channel) throws IOException {
+        if (chunkIndex < upload.getChunkCount() - 1) {
+            return (chunkIndex + 1) * upload.getChunkSize();
+        }
+        return upload.getFileSize() > 0 ? upload.getFileSize() : channel.size();
+    }
+
+    private static void digestRange(FileChannel channel, long from, long to, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = from;
+        while (position < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, to - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("分片文件不完整");
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+    }
+
+    private void evictIdleStates() {
+        long idleBefore = System.currentTimeMillis() - SESSION_IDLE_TIMEOUT.toMillis();
+        hashStates.values().removeIf(state -> state.lastTouched < idleBefore);
+    }
+
+    private static Path partPath(String fileId) {
+        return Paths.get(CHUNKS_DIR + fileId + ".part");
+    }
+
+    /**
+     * 增量摘要：hashedChunks 之前的分片已计入 digest
+     */
+    private static final class HashState {
+        private MessageDigest digest = FileStorageService.newDigest();
+        private final BitSet written = new BitSet();
+        private int hashedChunks;
+        private volatile long lastTouched = System.currentTimeMillis();
+
+        private void touch() {
+            lastTouched = System.currentTimeMillis();
+        }
+
+        private void resetDigest() {
+            digest = FileStorageService.newDigest();
+            hashedChunks = 0;
+        }
+    }
+
+    /**
+     * 部分分片不在本实例，missingChunks 为需要重传的分片序号
+     */
+    public static class MissingChunksException extends IllegalStateException {
+        private final List<Integer> missingChunks;
+
+        public MissingChunksException(List<Integer> missingChunks) {
+            super("部分分片需要重新上传");
+            this.missingChunks = missingChunks;
+        }
+
+        public List<Integer> getMissingChunks() {
+            return missingChunks;
+        }
+    }
+
+    public record ChunkResult(FileUpload upload, boolean complete) {
+    }
+
+    public record UploadStatus(FileUpload upload, List<Integer> receivedChunks) {
+    }
+}
@@ -39,6 +39,8 @@ public class ContactService {
     private final ChatRepository chatRepository;
     private final ChatMemberRepository chatMemberRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final UserRecommendationService userRecommendationService;
+    private final ActivityTimelineService activityTimelineService;
 
     /**
      * Add a contact - 根据目标用户的隐私设置决定是直接添加还是发送申请
@@ -94,6 +96,8 @@ public class ContactService {
         contact.setUserId(userId);
         contact.setContactUserId(contactUserId);
         Contact savedContact = contactRepository.save(contact);
+        userRecommendationService.evict(userId);
+        activityTimelineService.evict(userId);
 
         // Build contact DTO
         ContactDTO contactDTO = mapToContactDTO(savedContact, contactUser);
@@ -186,6 +190,8 @@ public class ContactService {
         contact2.setUserId(request.getFromUserId());
         contact2.setContactUserId(request.getToUserId());
         contactRepository.save(contact2);
+        userRecommendationService.evict(request.getToUserId(), request.getFromUserId());
+        activityTimelineService.evict(request.getToUserId(), request.getFromUserId());
 
         // Build DTOs for WebSocket notifications
         ContactDTO contactDTOForTo = mapToContactDTO(contact1, fromUser);
@@ -311,6 +317,10 @@ public class ContactService {
         contactRepository.findByUserIdAndContactUserId(contactUserId, userId)
                 .ifPresent(contactRepository::delete);
 
+        // 对方的动态不再出现在时间线中，对方可重新出现在推荐里
+        userRecommendationService.evict(userId, contactUserId);
+        activityTimelineService.evict(userId, contactUserId);
+
         // 删除双方之间的好友申请记录（允许将来重新添加好友）
         contactRequestRepository.deleteByFromUserIdAndToUserId(userId, contactUserId);
         contactRequestRepository.deleteByFromUserIdAndToUserId(contactUserId, userId);
@@ -0,0 +1,144 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 客户端直传
+ * 支持预签名的存储后端（S3/MinIO）下，客户端先申请预签名地址，用 PUT 把文件直接上传到存储端的
+ * incoming/{fileId}，再通知后端完成；文件内容不经过后端。
+ * 预签名时签入文件大小和 SHA-256，存储端校验不符时拒绝写入，完成时取回校验和即为内容哈希，
+ * 随后与普通上传一样按内容存储（相同内容只保留一份）。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DirectUploadService {
+
+    private static final String INCOMING_DIR = "incoming/";
+    private static final int EXPIRY_DAYS = 30;
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+
+    private final FileUploadRepository fileUploadRepository;
+    private final FileStorageService fileStorageService;
+    private final FileBlobService fileBlobService;
+    private final MediaPipelineService mediaPipelineService;
+    private final BlobStore blobStore;
+
+    @Value("${storage.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
+
+    /**
+     * 创建待上传记录并返回预签名上传地址；存储后端不支持预签名时返回空，客户端改用普通上传
+     */
+    public Optional<DirectUpload> initiate(String filename, long size, String sha256, String contentType,
+                                          Long uploaderId) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("文件大小错误");
+        }
+        if (sha256 == null || !SHA256_HEX.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("SHA-256 格式错误");
+        }
+
+        String fileId = UUID.randomUUID().toString();
+        String mimeType = contentType != null && !contentType.isBlank()
+                ? contentType : FileStorageService.mimeTypeOf(filename);
+        Duration ttl = Duration.ofSeconds(presignTtlSeconds);
+        Optional<BlobStore.PresignedUpload> presigned = blobStore.presignUpload(
+                INCOMING_DIR + fileId, mimeType, size, sha256.toLowerCase(), ttl);
+        if (presigned.isEmpty()) {
+            return Optional.empty();
+        }
+
+        FileUpload upload = new FileUpload();
+        upload.setFileId(fileId);
+        upload.setFilename(filename != null ? filename : fileId);
+        upload.setOriginalName(filename);
+        upload.setFileSize(size);
+        upload.setMimeType(mimeType);
+        upload.setUploaderId(uploaderId);
+        upload.setFilePath(INCOMING_DIR + fileId);
+        upload.setChunkCount(1);
+        upload.setUploadComplete(false);
+        fileUploadRepository.save(upload);
+
+        return Optional.of(new DirectUpload(fileId, presigned.get(), LocalDateTime.now().plus(ttl)));
+    }
+
+    /**
+     * 客户端上传完成后调用：校验对象大小，按内容存储并完成记录；重复调用返回已完成的记录
+     */
+    public FileUpload complete(String fileId) throws IOException {
+        FileUpload upload = fileUploadRepository.findByFileId(fileId)
+                .orElseThrow(() -> new IllegalArgumentException("上传不存在"));
+        if (Boolean.TRUE.equals(upload.getUploadComplete())) {
+            return upload;
+        }
+
+        String key = INCOMING_DIR + fileId;
+        Optional<BlobStore.ObjectInfo> infoOpt = blobStore.stat(key);
+        if (infoOpt.isEmpty()) {
+            // 并发的完成请求已取走对象
+            return fileUploadRepository.findByFileId(fileId)
+                    .filter(f -> Boolean.TRUE.equals(f.getUploadComplete()))
+                    .orElseThrow(() -> new IllegalArgumentException("文件尚未上传"));
+        }
+        BlobStore.ObjectInfo info = infoOpt.get();
+        if (upload.getFileSize() != null && info.size() != upload.getFileSize()) {
+            blobStore.delete(key);
+            throw new IllegalArgumentException("文件大小不一致");
+        }
+
+        String storedName = fileId + FileStorageService.extensionOf(upload.getFilename());
+        FileStorageService.StoredFile stored;
+        if (info.sha256() != null) {
+            stored = fileStorageService.storeObject(key, info.sha256(), info.size(), storedName);
+        } else {
+            // 存储端没有返回校验和时取回内容计算哈希
+            FileStorageService.TempFile temp = fileStorageService.fetchTemp(key);
+            try {
+                stored = fileStorageService.store(temp, storedName);
+                blobStore.delete(key);
+            } finally {
+                fileStorageService.discard(temp);
+            }
+        }
+
+        int updated = fileUploadRepository.completeUpload(fileId, upload.getFilename(), storedName, stored.filePath(),
+                info.size(), stored.contentHash(), upload.getMimeType(), LocalDateTime.now().plusDays(EXPIRY_DAYS));
+        if (updated == 0) {
+            // 并发的完成请求已生效，撤销本次增加的引用
+            fileBlobService.release(stored.contentHash());
+        }
+
+        FileUpload completed = fileUploadRepository.findByFileId(fileId).orElse(upload);
+        if (updated > 0) {
+            mediaPipelineService.submit(completed);
+            log.info("直传完成: fileId={}, filename={}, size={}, deduplicated={}",
+                    fileId, completed.getFilename(), info.size(), stored.deduplicated());
+        }
+        return completed;
+    }
+
+    /**
+     * 删除未完成的直传对象（不存在时为空操作）
+     */
+    public void discard(String fileId) throws IOException {
+        blobStore.delete(INCOMING_DIR + fileId);
+    }
+
+    public record DirectUpload(String fileId, BlobStore.PresignedUpload upload, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.FileBlob;
+import com.nexus.chat.repository.FileBlobRepository;
+import com.nexus.chat.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * 内容寻址存储
+ * 文件按 SHA-256 存放在存储后端的 blobs/ab/cd/{sha256}，file_blobs 记录引用数。
+ * 增加引用和删除无引用数据都先锁定 file_blobs 中的同一行，删除不会与新的引用交错。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileBlobService {
+
+    private static final String BLOB_DIR = "blobs/";
+
+    private final FileBlobRepository fileBlobRepository;
+    private final BlobStore blobStore;
+
+    /**
+     * 为临时文件的内容增加一个引用；内容已存在时不写入临时文件（秒传）
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public StoredBlob acquire(FileStorageService.TempFile temp) throws IOException {
+        String storagePath = storagePathOf(temp.hash());
+        fileBlobRepository.upsertReference(temp.hash(), temp.size(), storagePath);
+
+        if (blobStore.exists(storagePath)) {
+            return new StoredBlob(temp.hash(), storagePath, true);
+        }
+        blobStore.put(storagePath, temp.path(), null);
+        return new StoredBlob(temp.hash(), storagePath, false);
+    }
+
+    /**
+     * 为已在存储后端中的对象（客户端直传）增加一个引用，对象移动到内容路径；内容已存在时删除该对象
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public StoredBlob acquireObject(String key, String sha256, long size) throws IOException {
+        String storagePath = storagePathOf(sha256);
+        fileBlobRepository.upsertReference(sha256, size, storagePath);
+
+        if (blobStore.exists(storagePath)) {
+            blobStore.delete(key);
+            return new StoredBlob(sha256, storagePath, true);
+        }
+        blobStore.move(key, storagePath);
+        return new StoredBlob(sha256, storagePath, false);
+    }
+
+    /**
+     * 释放一个引用，数据在清理任务中删除
+     */
+    public void release(String sha256) {
+        if (sha256 != null && fileBlobRepository.releaseReference(sha256) == 0) {
+            log.warn("释放文件引用失败, 引用不存在: sha256={}", sha256);
+        }
+    }
+
+    /**
+     * 删除无引用的数据；加锁后引用数不为 0（期间被重新引用）时保留
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = IOException.class)
+    public boolean deleteIfUnreferenced(Long blobId) throws IOException {
+        Optional<FileBlob> blobOpt = fileBlobRepository.findByIdForUpdate(blobId);
+        if (blobOpt.isEmpty() || blobOpt.get().getRefCount() > 0) {
+            return false;
+        }
+        blobStore.delete(blobOpt.get().getStoragePath());
+        blobStore.deleteDirectory(MediaPipelineService.variantDir(blobOpt.get().getSha256()));
+        fileBlobRepository.delete(blobOpt.get());
+        return true;
+    }
+
+    /**
+     * 内容在存储后端中的路径
+     */
+    public static String storagePathOf(String sha256) {
+        return BLOB_DIR + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    public record StoredBlob(String sha256, String storagePath, boolean deduplicated) {
+    }
+}
@@ -1,163 +1,443 @@
 package com.nexus.chat.service;
 
 import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.repository.FileBlobRepository;
 import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.storage.BlobStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 文件清理服务
- * 定期清理过期文件和未完成上传的临时文件
+ * 每分钟执行一轮：按 expires_at / created_at 索引键集分页取出过期文件和超时未完成的上传，
+ * 每批在一个短事务中删除记录并释放内容引用，磁盘文件交给独立的 I/O 线程池删除；
+ * 每轮最多处理固定批数，积压在后续几轮中逐步消化，随后删除无引用的文件内容。
+ * 多实例部署时通过 Redis 租约保证同一时间只有一个实例在清理，续期失败（租约已被其他实例取得）时立即停止本轮。
+ * 孤立的临时分片（没有上传记录）每天扫描一次 chunks 目录。
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileCleanupService {
 
-    private static final String UPLOAD_DIR = "uploads/";
+    // 分片上传的本地暂存目录（不在存储后端中）
+    private static final String CHUNKS_DIR = FileStorageService.UPLOAD_DIR + "chunks/";
+    private static final Duration INCOMPLETE_UPLOAD_TTL = Duration.ofDays(1);
+
+    // 键集分页的起点，早于任何记录
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String LEASE_KEY = "file:cleanup:lease";
+
+    // 只有租约持有者才能续期或释放
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
 
     private final FileUploadRepository fileUploadRepository;
+    private final ChunkedUploadService chunkedUploadService;
+    private final DirectUploadService directUploadService;
+    private final FileBlobService fileBlobService;
+    private final ChatMediaService chatMediaService;
+    private final FileBlobRepository fileBlobRepository;
+    private final BlobStore blobStore;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${file.cleanup.batch-size:200}")
+    private int batchSize;
+
+    @Value("${file.cleanup.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${file.cleanup.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${file.cleanup.io-pool-size:2}")
+    private int ioPoolSize;
+
+    private final ThreadPoolTaskExecutor ioExecutor = new ThreadPoolTaskExecutor();
+
+    // 本实例的租约标识
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicLong expiredBacklog = new AtomicLong();
+    private final AtomicLong incompleteBacklog = new AtomicLong();
+
+    private Counter expiredDeleted;
+    private Counter incompleteDeleted;
+    private Counter blobsDeleted;
+    private Counter failures;
+    private Timer runTimer;
+
+    @PostConstruct
+    public void init() {
+        ioExecutor.setThreadNamePrefix("file-cleanup-");
+        ioExecutor.setCorePoolSize(ioPoolSize);
+        ioExecutor.setMaxPoolSize(ioPoolSize);
+        ioExecutor.setQueueCapacity(batchSize * 2);
+        // 队列满时由清理线程自己删除，清理速度受磁盘速度约束
+        ioExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        ioExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        ioExecutor.initialize();
+        new ExecutorServiceMetrics(ioExecutor.getThreadPoolExecutor(), "file-cleanup", Tags.empty())
+                .bindTo(meterRegistry);
+
+        Gauge.builder("file.cleanup.backlog", expiredBacklog, AtomicLong::get)
+                .tag("type", "expired").register(meterRegistry);
+        Gauge.builder("file.cleanup.backlog", incompleteBacklog, AtomicLong::get)
+                .tag("type", "incomplete").register(meterRegistry);
+        expiredDeleted = meterRegistry.counter("file.cleanup.deleted", "type", "expired");
+        incompleteDeleted = meterRegistry.counter("file.cleanup.deleted", "type", "incomplete");
+        blobsDeleted = meterRegistry.counter("file.cleanup.deleted", "type", "blob");
+        failures = meterRegistry.counter("file.cleanup.failures");
+        runTimer = meterRegistry.timer("file.cleanup.run");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdown();
+    }
 
     /**
-     * 每天凌晨3点执行清理任务
+     * 增量清理，上一轮结束后间隔固定时间执行
      */
-    @Scheduled(cron = "0 0 3 * * ?")
-    @Transactional
+    @Scheduled(fixedDelayString = "${file.cleanup.interval-ms:60000}",
+            initialDelayString = "${file.cleanup.interval-ms:60000}")
     public void cleanupExpiredFiles() {
-        log.info("开始执行文件清理任务...");
-
-        int deletedCount = 0;
-        int failedCount = 0;
+        if (!acquireLease()) {
+            return;
+        }
+        try {
+            runTimer.record(() -> {
+                int budget = maxBatchesPerRun;
+                budget -= cleanupExpired(budget);
+                budget -= cleanupIncomplete(budget);
+                cleanupUnreferencedBlobs(budget);
+            });
+        } catch (LeaseLostException e) {
+            log.warn("文件清理租约已失效, 本轮停止");
+        } catch (Exception e) {
+            log.error("文件清理任务执行异常", e);
+        } finally {
+            releaseLease();
+        }
+    }
 
+    /**
+     * 每天凌晨3点清理孤立的临时分片
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void cleanupOrphanedChunks() {
+        if (!acquireLease()) {
+            return;
+        }
         try {
-            // 1. 清理过期文件（超过30天）
-            List<FileUpload> expiredFiles = fileUploadRepository.findByExpiresAtBefore(LocalDateTime.now());
-            log.info("找到 {} 个过期文件待清理", expiredFiles.size());
+            sweepOrphanedChunks();
+        } catch (Exception e) {
+            log.error("孤立分片清理异常", e);
+        } finally {
+            releaseLease();
+        }
+    }
 
-            for (FileUpload fileUpload : expiredFiles) {
-                try {
-                    // 删除物理文件
-                    File file = new File(UPLOAD_DIR + fileUpload.getFilePath());
-                    if (file.exists()) {
-                        if (file.delete()) {
-                            log.debug("已删除文件: {}", fileUpload.getFilePath());
-                        } else {
-                            log.warn("删除文件失败: {}", fileUpload.getFilePath());
-                            failedCount++;
-                            continue;
-                        }
-                    }
+    /**
+     * 手动触发清理（供管理员调用）
+     */
+    public void triggerCleanup() {
+        log.info("手动触发文件清理任务");
+        cleanupExpiredFiles();
+        cleanupOrphanedChunks();
+    }
 
-                    // 删除缩略图（如果有）
-                    if (fileUpload.getThumbnailPath() != null) {
-                        File thumbnail = new File(UPLOAD_DIR + fileUpload.getThumbnailPath());
-                        if (thumbnail.exists()) {
-                            thumbnail.delete();
-                        }
-                    }
+    /**
+     * 删除过期文件，返回处理的批数
+     */
+    private int cleanupExpired(int maxBatches) {
+        LocalDateTime now = LocalDateTime.now();
+        long backlog = fileUploadRepository.countByExpiresAtBefore(now);
+        expiredBacklog.set(backlog);
+        if (backlog == 0) {
+            return 0;
+        }
 
-                    // 删除数据库记录
-                    fileUploadRepository.delete(fileUpload);
-                    deletedCount++;
+        int batches = 0;
+        int deleted = 0;
+        LocalDateTime lastExpiresAt = KEYSET_START;
+        long lastId = 0;
+        List<FileUpload> batch;
+        while (batches < maxBatches && !(batch = fileUploadRepository.findExpiredAfter(
+                now, lastExpiresAt, lastId, PageRequest.of(0, batchSize))).isEmpty()) {
+            batches++;
+            FileUpload last = batch.get(batch.size() - 1);
+            lastExpiresAt = last.getExpiresAt();
+            lastId = last.getId();
+            try {
+                int removed = deleteExpiredBatch(batch, now);
+                deleted += removed;
+                expiredDeleted.increment(removed);
+            } catch (Exception e) {
+                // 本轮跳过这一批，下一轮从头重试
+                log.error("过期文件批次删除失败: 首个 fileId={}", batch.get(0).getFileId(), e);
+                failures.increment();
+            }
+            renewLease();
+        }
+        expiredBacklog.set(Math.max(0, backlog - deleted));
+        if (deleted > 0) {
+            log.info("清理过期文件: 已删除 {} 个, 剩余约 {} 个", deleted, expiredBacklog.get());
+        }
+        return batches;
+    }
 
-                } catch (Exception e) {
-                    log.error("清理文件失败: fileId={}", fileUpload.getFileId(), e);
-                    failedCount++;
-                }
+    /**
+     * 一个事务内锁定并删除一批记录、移出共享媒体并释放内容引用，提交后再删除磁盘文件。
+     * 只释放本事务实际删除的记录的引用，已被其他清理删除或期间续期的记录不重复释放。
+     * 返回实际删除的记录数
+     */
+    private int deleteExpiredBatch(List<FileUpload> batch, LocalDateTime now) {
+        List<FileUpload> deleted = transactionTemplate.execute(status -> {
+            List<FileUpload> locked = fileUploadRepository.findExpiredByIdInForUpdate(
+                    batch.stream().map(FileUpload::getId).toList(), now);
+            if (locked.isEmpty()) {
+                return locked;
             }
+            fileUploadRepository.deleteByIdIn(locked.stream().map(FileUpload::getId).toList());
+            chatMediaService.removeFiles(locked.stream().map(FileUpload::getFileId).toList());
+            // 按哈希排序加锁，避免与并发的引用更新交叉等待
+            locked.stream()
+                    .map(FileUpload::getContentHash)
+                    .filter(Objects::nonNull)
+                    .sorted()
+                    .forEach(fileBlobService::release);
+            return locked;
+        });
+        for (FileUpload file : deleted) {
+            ioExecutor.execute(() -> deleteFiles(file));
+        }
+        return deleted.size();
+    }
 
-            // 2. 清理未完成上传的临时文件（超过24小时）
-            LocalDateTime oneDayAgo = LocalDateTime.now().minusDays(1);
-            List<FileUpload> incompleteUploads = fileUploadRepository
-                    .findByUploadCompleteAndCreatedAtBefore(false, oneDayAgo);
+    /**
+     * 删除文件的对外路径（按内容存储时只是链接，内容在无引用后统一删除）和旧数据的缩略图目录
+     */
+    private void deleteFiles(FileUpload file) {
+        try {
+            if (file.getFilePath() != null) {
+                blobStore.delete(file.getFilePath());
+            }
+            if (file.getThumbnailPath() != null && file.getContentHash() == null) {
+                String thumbnail = file.getThumbnailPath();
+                blobStore.deleteDirectory(thumbnail.substring(0, thumbnail.lastIndexOf('/')));
+            }
+        } catch (IOException e) {
+            log.warn("删除过期文件失败: fileId={}, path={}", file.getFileId(), file.getFilePath(), e);
+            failures.increment();
+        }
+    }
 
-            log.info("找到 {} 个未完成上传待清理", incompleteUploads.size());
+    /**
+     * 删除超过一天仍未完成的上传，返回处理的批数
+     */
+    private int cleanupIncomplete(int maxBatches) {
+        LocalDateTime before = LocalDateTime.now().minus(INCOMPLETE_UPLOAD_TTL);
+        long backlog = fileUploadRepository.countByUploadCompleteFalseAndCreatedAtBefore(before);
+        incompleteBacklog.set(backlog);
+        if (backlog == 0 || maxBatches <= 0) {
+            return 0;
+        }
 
-            for (FileUpload fileUpload : incompleteUploads) {
+        int batches = 0;
+        int deleted = 0;
+        LocalDateTime lastCreatedAt = KEYSET_START;
+        long lastId = 0;
+        List<FileUpload> batch;
+        while (batches < maxBatches && !(batch = fileUploadRepository.findIncompleteAfter(
+                before, lastCreatedAt, lastId, PageRequest.of(0, batchSize))).isEmpty()) {
+            batches++;
+            FileUpload last = batch.get(batch.size() - 1);
+            lastCreatedAt = last.getCreatedAt();
+            lastId = last.getId();
+            for (FileUpload upload : batch) {
                 try {
-                    // 删除临时分片目录
-                    File chunksDir = new File(UPLOAD_DIR + "chunks/" + fileUpload.getFileId());
-                    if (chunksDir.exists()) {
-                        deleteDirectory(chunksDir);
+                    // 期间已完成的上传保留
+                    if (fileUploadRepository.deleteIncomplete(upload.getId()) == 0) {
+                        continue;
                     }
-
-                    fileUploadRepository.delete(fileUpload);
-                    deletedCount++;
-
+                    String fileId = upload.getFileId();
+                    ioExecutor.execute(() -> discardChunks(fileId));
+                    deleted++;
+                    incompleteDeleted.increment();
                 } catch (Exception e) {
-                    log.error("清理未完成上传失败: fileId={}", fileUpload.getFileId(), e);
-                    failedCount++;
+                    log.error("清理未完成上传失败: fileId={}", upload.getFileId(), e);
+                    failures.increment();
                 }
             }
+            renewLease();
+        }
+        incompleteBacklog.set(Math.max(0, backlog - deleted));
+        if (deleted > 0) {
+            log.info("清理未完成上传: 已删除 {} 个", deleted);
+        }
+        return batches;
+    }
 
-            // 3. 清理孤立的临时分片目录
-            cleanupOrphanedChunks();
-
+    /**
+     * 删除 .part 文件、分片记录、旧版临时分片目录和未完成的直传对象
+     */
+    private void discardChunks(String fileId) {
+        try {
+            chunkedUploadService.discard(fileId);
+            directUploadService.discard(fileId);
+            FileStorageService.deleteRecursively(Paths.get(CHUNKS_DIR + fileId));
         } catch (Exception e) {
-            log.error("文件清理任务执行异常", e);
+            log.warn("删除临时分片失败: fileId={}", fileId, e);
+            failures.increment();
         }
-
-        log.info("文件清理任务完成: 已删除 {} 个文件, 失败 {} 个", deletedCount, failedCount);
     }
 
     /**
-     * 清理孤立的临时分片目录
+     * 删除引用数为 0 的文件内容，删除前逐条加锁确认未被重新引用
      */
-    private void cleanupOrphanedChunks() {
-        File chunksBaseDir = new File(UPLOAD_DIR + "chunks/");
-        if (!chunksBaseDir.exists()) {
-            return;
+    private void cleanupUnreferencedBlobs(int maxBatches) {
+        int batches = 0;
+        int cleanedCount = 0;
+        long lastId = 0;
+        List<Long> blobIds;
+        while (batches < maxBatches
+                && !(blobIds = fileBlobRepository.findUnreferencedIds(lastId, PageRequest.of(0, batchSize))).isEmpty()) {
+            batches++;
+            for (Long blobId : blobIds) {
+                lastId = blobId;
+                try {
+                    if (fileBlobService.deleteIfUnreferenced(blobId)) {
+                        cleanedCount++;
+                        blobsDeleted.increment();
+                    }
+                } catch (Exception e) {
+                    log.error("删除文件内容失败: blobId={}", blobId, e);
+                    failures.increment();
+                }
+            }
+            renewLease();
         }
 
-        File[] chunkDirs = chunksBaseDir.listFiles(File::isDirectory);
-        if (chunkDirs == null) {
+        if (cleanedCount > 0) {
+            log.info("删除了 {} 个无引用的文件内容", cleanedCount);
+        }
+    }
+
+    /**
+     * 清理没有上传记录的临时分片目录和 .part 文件（逐项遍历，不一次性列出整个目录）
+     */
+    private void sweepOrphanedChunks() throws IOException {
+        Path chunksBaseDir = Paths.get(CHUNKS_DIR);
+        if (!Files.isDirectory(chunksBaseDir)) {
             return;
         }
 
         int cleanedCount = 0;
-        long oneDayAgoMillis = System.currentTimeMillis() - (24 * 60 * 60 * 1000);
-
-        for (File dir : chunkDirs) {
-            // 如果目录修改时间超过24小时，删除它
-            if (dir.lastModified() < oneDayAgoMillis) {
-                deleteDirectory(dir);
+        FileTime cutoff = FileTime.from(Instant.now().minus(INCOMPLETE_UPLOAD_TTL));
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(chunksBaseDir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                boolean partFile = name.endsWith(".part");
+                if (!partFile && !Files.isDirectory(entry)) {
+                    continue;
+                }
+                if (Files.getLastModifiedTime(entry).compareTo(cutoff) >= 0) {
+                    continue;
+                }
+                String fileId = partFile ? name.substring(0, name.length() - ".part".length()) : name;
+                if (fileUploadRepository.findByFileId(fileId)
+                        .filter(f -> Boolean.FALSE.equals(f.getUploadComplete())).isPresent()) {
+                    // 仍有未完成的上传记录，由增量清理处理
+                    continue;
+                }
+                ioExecutor.execute(() -> discardChunks(fileId));
                 cleanedCount++;
             }
         }
 
         if (cleanedCount > 0) {
-            log.info("清理了 {} 个孤立的临时分片目录", cleanedCount);
+            log.info("清理了 {} 个孤立的临时分片", cleanedCount);
+        }
+    }
+
+    private boolean acquireLease() {
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LEASE_KEY, instanceId, Duration.ofSeconds(leaseSeconds));
+            return Boolean.TRUE.equals(acquired);
+        } catch (Exception e) {
+            log.warn("文件清理跳过, Redis 不可用: {}", e.getMessage());
+            return false;
         }
     }
 
     /**
-     * 手动触发清理（供管理员调用）
+     * 续期租约；租约已不属于本实例或无法确认时抛出 LeaseLostException 终止本轮
      */
-    public void triggerCleanup() {
-        log.info("手动触发文件清理任务");
-        cleanupExpiredFiles();
+    private void renewLease() {
+        Long renewed;
+        try {
+            renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(LEASE_KEY), instanceId,
+                    String.valueOf(Duration.ofSeconds(leaseSeconds).toMillis()));
+        } catch (Exception e) {
+            log.warn("文件清理租约续期失败: {}", e.getMessage());
+            throw new LeaseLostException();
+        }
+        if (renewed == null || renewed == 0) {
+            throw new LeaseLostException();
+        }
     }
 
-    private void deleteDirectory(File directory) {
-        if (directory.exists()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        deleteDirectory(file);
-                    } else {
-                        file.delete();
-                    }
-                }
-            }
-            directory.delete();
+    private void releaseLease() {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(LEASE_KEY), instanceId);
+        } catch (Exception e) {
+            log.warn("文件清理租约释放失败: {}", e.getMessage());
+        }
+    }
+
+    private static final class LeaseLostException extends RuntimeException {
+        LeaseLostException() {
+            super(null, null, false, false);
         }
     }
 }
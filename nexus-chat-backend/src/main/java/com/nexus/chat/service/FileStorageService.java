@@ -0,0 +1,256 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.media.ImageVariants;
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 上传文件落盘
+ * 上传内容经 DigestInputStream 边读边算 SHA-256，用固定大小的缓冲区写入 uploads/tmp 下的临时文件，
+ * 再交给 FileBlobService 按内容存储（相同内容只存一份）；单次上传的堆内存占用只有一个缓冲区。
+ * 对外地址仍是 uploads/yyyy/MM/dd/{fileId}.ext：本地存储时该路径是指向内容文件的硬链接，不额外占用空间；
+ * 对象存储时不保存副本，由 UploadRedirectController 按 fileId 重定向到内容的预签名地址。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileStorageService {
+
+    public static final String UPLOAD_DIR = "uploads/";
+    private static final String TEMP_DIR = UPLOAD_DIR + "tmp/";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 指向上传文件的地址: .../uploads/yyyy/MM/dd/{fileId}.ext 或 .../api/files/download|preview/{fileId}
+    private static final Pattern FILE_URL = Pattern.compile(
+            "/(?:uploads/\\d{4}/\\d{2}/\\d{2}|api/files/(?:download|preview))/([0-9a-fA-F-]{36})(?:\\.[A-Za-z0-9]+)?(?:\\?.*)?$");
+
+    private final FileBlobService fileBlobService;
+    private final BlobStore blobStore;
+
+    /**
+     * 把输入流写入临时文件，同时计算 SHA-256 和字节数
+     */
+    public TempFile writeTemp(InputStream input) throws IOException {
+        Path tempPath = newTempPath();
+
+        MessageDigest digest = newDigest();
+        long size = 0;
+        try (DigestInputStream in = new DigestInputStream(input, digest);
+             OutputStream out = Files.newOutputStream(tempPath, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                size += read;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        return new TempFile(tempPath, HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    /**
+     * 把已算好摘要的文件原子移动到临时目录；源文件已不存在时抛出 NoSuchFileException
+     */
+    public TempFile claimTemp(Path source, String hash, long size) throws IOException {
+        Path tempPath = newTempPath();
+        Files.move(source, tempPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new TempFile(tempPath, hash, size);
+    }
+
+    /**
+     * 按内容存储临时文件，并在 uploads/yyyy/MM/dd/{storedName} 建立链接
+     */
+    public StoredFile store(TempFile temp, String storedName) throws IOException {
+        return linkDated(fileBlobService.acquire(temp), storedName);
+    }
+
+    /**
+     * 按内容存储客户端直传到存储后端的对象，sha256 为存储端校验过的内容哈希
+     */
+    public StoredFile storeObject(String key, String sha256, long size, String storedName) throws IOException {
+        return linkDated(fileBlobService.acquireObject(key, sha256, size), storedName);
+    }
+
+    private StoredFile linkDated(FileBlobService.StoredBlob blob, String storedName) throws IOException {
+        String filePath = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd")) + "/" + storedName;
+        Optional<Path> blobPath = blobStore.localPath(blob.storagePath());
+        if (blobPath.isPresent()) {
+            Path target = blobStore.localPath(filePath).orElseThrow();
+            try {
+                Files.createDirectories(target.getParent());
+                link(blobPath.get(), target);
+            } catch (IOException e) {
+                fileBlobService.release(blob.sha256());
+                throw e;
+            }
+        }
+        return new StoredFile(filePath, blob.sha256(), blob.deduplicated());
+    }
+
+    /**
+     * 编码图片并写入存储后端（JPEG 或 PNG，见 ImageVariants.write）
+     */
+    public void storeImage(String key, BufferedImage image) throws IOException {
+        Path temp = newTempPath();
+        try {
+            ImageVariants.write(image, temp);
+            blobStore.put(key, temp, mimeTypeOf(key));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 把存储后端中的对象复制到临时文件（对象存储时供需要本地文件的处理使用）
+     */
+    public TempFile fetchTemp(String key) throws IOException {
+        try (InputStream input = blobStore.open(key)) {
+            return writeTemp(input);
+        }
+    }
+
+    /**
+     * 上传文件内容在存储后端中的路径：按内容存储的文件取内容路径，旧文件取原路径
+     */
+    public static String contentKey(FileUpload upload) {
+        return upload.getContentHash() != null
+                ? FileBlobService.storagePathOf(upload.getContentHash())
+                : upload.getFilePath();
+    }
+
+    /**
+     * 从上传文件地址中取出 fileId，不是上传文件地址（外链、头像等）时返回空
+     */
+    public static Optional<String> fileIdOf(String url) {
+        if (url == null) {
+            return Optional.empty();
+        }
+        Matcher matcher = FILE_URL.matcher(url);
+        return matcher.find() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+
+    /**
+     * 删除未移动的临时文件（已移动时为空操作）
+     */
+    public void discard(TempFile temp) {
+        try {
+            Files.deleteIfExists(temp.path());
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", temp.path(), e);
+        }
+    }
+
+    /**
+     * 删除目录及其内容（不存在时为空操作）
+     */
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static void link(Path blob, Path target) throws IOException {
+        try {
+            Files.createLink(target, blob);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            if (e instanceof FileAlreadyExistsException) {
+                throw (FileAlreadyExistsException) e;
+            }
+            // 文件系统不支持硬链接时退化为复制
+            log.debug("创建硬链接失败, 改为复制: {}", e.getMessage());
+            Files.copy(blob, target);
+        }
+    }
+
+    private static Path newTempPath() throws IOException {
+        Path tempDir = Paths.get(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        return Files.createTempFile(tempDir, "upload-", ".part");
+    }
+
+    /**
+     * 文件扩展名（含点），没有扩展名时返回空串
+     */
+    public static String extensionOf(String filename) {
+        if (filename == null || !filename.contains(".")) {
+            return "";
+        }
+        return filename.substring(filename.lastIndexOf("."));
+    }
+
+    /**
+     * 按扩展名推断 MIME 类型
+     */
+    public static String mimeTypeOf(String filename) {
+        if (filename == null) return "application/octet-stream";
+        String ext = extensionOf(filename).toLowerCase();
+        return switch (ext) {
+            case ".jpg", ".jpeg" -> "image/jpeg";
+            case ".png" -> "image/png";
+            case ".gif" -> "image/gif";
+            case ".webp" -> "image/webp";
+            case ".pdf" -> "application/pdf";
+            case ".doc" -> "application/msword";
+            case ".docx" -> "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+            case ".xls" -> "application/vnd.ms-excel";
+            case ".xlsx" -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+            case ".ppt" -> "application/vnd.ms-powerpoint";
+            case ".pptx" -> "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+            case ".mp4" -> "video/mp4";
+            case ".webm" -> "video/webm";
+            case ".mp3" -> "audio/mpeg";
+            case ".wav" -> "audio/wav";
+            case ".zip" -> "application/zip";
+            case ".rar" -> "application/x-rar-compressed";
+            case ".txt" -> "text/plain";
+            default -> "application/octet-stream";
+        };
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 已写入磁盘的临时文件，hash 为内容的 SHA-256
+     */
+    public record TempFile(Path path, String hash, long size) {
+    }
+
+    /**
+     * 已存储的上传文件，filePath 相对 uploads/
+     */
+    public record StoredFile(String filePath, String contentHash, boolean deduplicated) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.dto.WebSocketMessage;
+import com.nexus.chat.model.Chat;
+import com.nexus.chat.model.ChatMember;
+import com.nexus.chat.repository.ChatMemberRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 群聊/频道消息投递（REST 和 WebSocket 发送共用）
+ * 消息只发布一次到共享主题 /topic/group/{id}；群聊在线但尚未订阅群主题的成员补发到用户频道，
+ * 离线成员写入离线队列；频道成员重连后按读游标拉取，不补发也不入离线队列。
+ */
+@Service
+@RequiredArgsConstructor
+public class GroupMessageDeliveryService {
+
+    private final ChatMemberRepository chatMemberRepository;
+    private final RedisMessageRelay redisMessageRelay;
+    private final RedisCacheService redisCacheService;
+    private final PresenceService presenceService;
+
+    public void deliver(Long chatId, Long senderId, Chat.ChatType chatType, WebSocketMessage wsMessage) {
+        String destination = "/topic/group/" + chatId;
+        if (chatType == Chat.ChatType.channel) {
+            redisMessageRelay.sendToTopic(destination, wsMessage);
+            return;
+        }
+        List<Long> otherMemberIds = chatMemberRepository.findByChatId(chatId).stream()
+                .map(ChatMember::getUserId)
+                .filter(memberId -> !memberId.equals(senderId))
+                .collect(Collectors.toList());
+        redisMessageRelay.sendToTopic(destination, wsMessage, otherMemberIds);
+        redisCacheService.queueOfflineMessage(presenceService.getOfflineUserIds(otherMemberIds), wsMessage);
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -30,6 +31,9 @@ public class GroupService {
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final RedisMessageRelay redisMessageRelay;
+    private final ChatService chatService;
+    private final AvatarService avatarService;
 
     /**
      * Create a new group
@@ -41,7 +45,7 @@ public class GroupService {
         chat.setType(Chat.ChatType.group);
         chat.setName(request.getName());
         chat.setDescription(request.getDescription());
-        chat.setAvatarUrl(request.getAvatar());
+        chat.setAvatarUrl(avatarService.normalize(request.getAvatar()));
         chat.setIsPrivate(request.getIsPrivate() != null ? request.getIsPrivate() : false);
         chat.setCreatedBy(creatorId);
         chat.setMemberCount(1); // Creator is the first member
@@ -118,7 +122,7 @@ public class GroupService {
             chat.setDescription(request.getDescription());
         }
         if (request.getAvatar() != null) {
-            chat.setAvatarUrl(request.getAvatar());
+            chat.setAvatarUrl(avatarService.normalize(request.getAvatar()));
         }
         if (request.getIsPrivate() != null) {
             chat.setIsPrivate(request.getIsPrivate());
@@ -149,6 +153,9 @@ public class GroupService {
         // Broadcast deletion before deleting
         broadcastGroupEvent("group:deleted", Map.of("groupId", groupId), groupId);
 
+        // Nobody may keep listening on the group topic (one request for all instances)
+        redisMessageRelay.unsubscribeAll(groupTopic(groupId));
+
         // Delete all members first
         chatMemberRepository.deleteByChatId(groupId);
 
@@ -172,6 +179,12 @@ public class GroupService {
             throw new BusinessException("error.group.admin.add.member");
         }
 
+        // Read cursor starts at the latest message so existing history is not unread
+        long currentSequence = messageRepository.findFirstByChatIdOrderBySequenceNumberDesc(groupId)
+                .map(Message::getSequenceNumber)
+                .orElse(0L);
+
+        List<Long> addedUserIds = new ArrayList<>();
         for (Long newUserId : userIds) {
             if (!chatMemberRepository.existsByChatIdAndUserId(groupId, newUserId)) {
                 // Verify user exists
@@ -183,7 +196,9 @@ public class GroupService {
                 member.setUserId(newUserId);
                 member.setRole(ChatMember.MemberRole.member);
                 member.setIsAdmin(false);
+                member.setLastReadSequence(currentSequence);
                 chatMemberRepository.save(member);
+                addedUserIds.add(newUserId);
             }
         }
 
@@ -193,7 +208,7 @@ public class GroupService {
         chatRepository.save(chat);
 
         // Broadcast member joined for each new member
-        for (Long newUserId : userIds) {
+        for (Long newUserId : addedUserIds) {
             User user = userRepository.findById(newUserId).orElse(null);
             if (user != null) {
                 UserDTO userDTO = mapToUserDTO(user);
@@ -201,6 +216,16 @@ public class GroupService {
                         Map.of("groupId", groupId, "member", userDTO, "memberCount", newMemberCount), groupId);
             }
         }
+
+        // New members are not on the group topic yet; CHAT_CREATED tells their clients to subscribe
+        if (!addedUserIds.isEmpty()) {
+            WebSocketMessage chatCreated = new WebSocketMessage(
+                    WebSocketMessage.MessageType.CHAT_CREATED,
+                    chatService.getChatById(groupId, userId));
+            for (Long newUserId : addedUserIds) {
+                messagingTemplate.convertAndSendToUser(String.valueOf(newUserId), "/queue/chats", chatCreated);
+            }
+        }
     }
 
     /**
@@ -234,6 +259,7 @@ public class GroupService {
         // Broadcast member removed with updated member count
         broadcastGroupEvent("group:member-left",
                 Map.of("groupId", groupId, "memberId", memberUserId, "memberCount", newMemberCount), groupId);
+        redisMessageRelay.unsubscribeUser(memberUserId, groupTopic(groupId));
     }
 
     /**
@@ -263,6 +289,7 @@ public class GroupService {
         // Broadcast member left with updated member count
         broadcastGroupEvent("group:member-left",
                 Map.of("groupId", groupId, "memberId", userId, "memberCount", newMemberCount), groupId);
+        redisMessageRelay.unsubscribeUser(userId, groupTopic(groupId));
     }
 
     /**
@@ -435,13 +462,18 @@ public class GroupService {
     }
 
     /**
-     * Broadcast group event to all members
+     * Broadcast group event to all members.
+     * Published once to the shared group topic and relayed to the other instances.
      */
     private void broadcastGroupEvent(String eventType, Object payload, Long groupId) {
         WebSocketMessage wsMessage = new WebSocketMessage(
                 WebSocketMessage.MessageType.valueOf(eventType.replace(":", "_").replace("-", "_").toUpperCase()),
                 payload);
-        messagingTemplate.convertAndSend("/topic/group/" + groupId, wsMessage);
+        redisMessageRelay.sendToTopic(groupTopic(groupId), wsMessage);
+    }
+
+    private static String groupTopic(Long groupId) {
+        return "/topic/group/" + groupId;
     }
 
 }
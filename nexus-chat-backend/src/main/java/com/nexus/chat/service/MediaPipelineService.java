@@ -0,0 +1,230 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.media.BlurHash;
+import com.nexus.chat.media.ImageVariants;
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.repository.ChatMediaRepository;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.repository.MessageRepository;
+import com.nexus.chat.repository.PostImageRepository;
+import com.nexus.chat.storage.BlobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图片媒体处理
+ * 上传完成后在独立的有界线程池中生成多个宽度的缩略图（JPEG，带透明通道时为 PNG，去除 EXIF），
+ * 并记录尺寸和 BlurHash；上传接口不等待处理结果。
+ * 变体按内容哈希存放在存储后端的 variants/ab/{sha256}/w{宽度}.jpg，相同内容的上传共用一份。
+ * 通过 /api/files/preview/{fileId}?w= 读取，尚未处理的图片在首次请求变体时补处理。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaPipelineService {
+
+    // 变体宽度（从小到大），只生成小于原图宽度的
+    static final int[] VARIANT_WIDTHS = {160, 480, 1080};
+
+    private static final String VARIANT_DIR = "variants/";
+    private static final int BLURHASH_WIDTH = 64;
+    private static final int BLURHASH_COMPONENTS_X = 4;
+    private static final int BLURHASH_COMPONENTS_Y = 3;
+
+    private final FileUploadRepository fileUploadRepository;
+    private final MessageRepository messageRepository;
+    private final ChatMediaRepository chatMediaRepository;
+    private final PostImageRepository postImageRepository;
+    private final FileStorageService fileStorageService;
+    private final BlobStore blobStore;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${media.executor.pool-size:2}")
+    private int poolSize;
+
+    @Value("${media.executor.queue-capacity:200}")
+    private int queueCapacity;
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    // 已排队或处理中的 fileId，避免重复提交
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        executor.setThreadNamePrefix("media-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "media", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 提交图片处理（非图片、已处理或已在队列中时忽略）；队列已满时放弃，之后请求变体时再补处理
+     */
+    public void submit(FileUpload upload) {
+        if (!isImage(upload) || upload.getWidth() != null || !pending.add(upload.getFileId())) {
+            return;
+        }
+        String fileId = upload.getFileId();
+        try {
+            executor.execute(() -> process(fileId));
+        } catch (TaskRejectedException e) {
+            pending.remove(fileId);
+            log.warn("媒体处理队列已满, 跳过: fileId={}", fileId);
+        }
+    }
+
+    /**
+     * 指定宽度的变体路径（相对 uploads/）：取不小于请求宽度的最小变体；
+     * 没有合适的变体（未处理、原图不比请求宽度大）时返回空，调用方返回原图
+     */
+    public Optional<String> findVariant(FileUpload upload, int requestedWidth) {
+        if (upload.getThumbnailPath() == null || upload.getWidth() == null) {
+            return Optional.empty();
+        }
+        String thumbnail = upload.getThumbnailPath();
+        String dir = thumbnail.substring(0, thumbnail.lastIndexOf('/') + 1);
+        String extension = FileStorageService.extensionOf(thumbnail);
+        for (int width : VARIANT_WIDTHS) {
+            if (width >= upload.getWidth()) {
+                break;
+            }
+            if (width >= requestedWidth) {
+                return Optional.of(dir + "w" + width + extension);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 列表缩略图地址：已处理的图片直接返回最小变体的静态地址；尚未处理时通过预览接口请求最小宽度，
+     * 该接口先返回原图并补处理
+     */
+    public static String thumbnailUrl(String fileId, String thumbnailPath) {
+        return thumbnailPath != null
+                ? "/" + FileStorageService.UPLOAD_DIR + thumbnailPath
+                : "/api/files/preview/" + fileId + "?w=" + VARIANT_WIDTHS[0];
+    }
+
+    /**
+     * 内容对应的变体目录（相对 uploads/）
+     */
+    public static String variantDir(String key) {
+        return VARIANT_DIR + key.substring(0, 2) + "/" + key;
+    }
+
+    private void process(String fileId) {
+        try {
+            FileUpload upload = fileUploadRepository.findByFileId(fileId).orElse(null);
+            if (upload == null || !Boolean.TRUE.equals(upload.getUploadComplete())) {
+                return;
+            }
+            if (upload.getWidth() != null) {
+                // 已处理完成（如在帖子图片记录写入前），只回填帖子图片
+                postImageRepository.fillMediaInfo(fileId, upload.getWidth(), upload.getHeight(), upload.getBlurhash());
+                return;
+            }
+
+            // 相同内容已处理过时直接复用
+            if (upload.getContentHash() != null) {
+                Optional<FileUpload> processed = fileUploadRepository.findFirstByContentHashAndWidthIsNotNull(
+                        upload.getContentHash());
+                if (processed.isPresent() && (processed.get().getThumbnailPath() == null
+                        || blobStore.exists(processed.get().getThumbnailPath()))) {
+                    FileUpload source = processed.get();
+                    recordMediaInfo(fileId, new MediaInfo(source.getWidth(), source.getHeight(),
+                            source.getBlurhash(), source.getThumbnailPath()));
+                    return;
+                }
+            }
+
+            long start = System.currentTimeMillis();
+            String key = upload.getContentHash() != null ? upload.getContentHash() : fileId;
+            MediaInfo info = generate(FileStorageService.contentKey(upload), variantDir(key));
+            recordMediaInfo(fileId, info);
+            log.debug("图片处理完成: fileId={}, size={}x{}, 耗时 {}ms",
+                    fileId, info.width(), info.height(), System.currentTimeMillis() - start);
+        } catch (Exception | OutOfMemoryError e) {
+            log.warn("图片处理失败: fileId={}, error={}", fileId, e.toString());
+        } finally {
+            pending.remove(fileId);
+        }
+    }
+
+    /**
+     * 记录处理结果，并写入已经引用该文件的帖子图片、消息和媒体索引（在处理完成前发帖或发出消息时）
+     */
+    private void recordMediaInfo(String fileId, MediaInfo info) {
+        fileUploadRepository.updateMediaInfo(fileId, info.width(), info.height(), info.blurhash(), info.thumbnailPath());
+        postImageRepository.fillMediaInfo(fileId, info.width(), info.height(), info.blurhash());
+        if (info.thumbnailPath() != null) {
+            messageRepository.updateAttachmentThumbnail(fileId, info.thumbnailPath());
+            chatMediaRepository.updateThumbnail(fileId, info.thumbnailPath());
+        }
+    }
+
+    private MediaInfo generate(String sourceKey, String variantDir) throws IOException {
+        ImageVariants.Decoded decoded;
+        Optional<Path> localSource = blobStore.localPath(sourceKey);
+        if (localSource.isPresent()) {
+            decoded = ImageVariants.decode(localSource.get(), VARIANT_WIDTHS[VARIANT_WIDTHS.length - 1]);
+        } else {
+            // 对象存储时先取回到临时文件，解码需要随机读取
+            FileStorageService.TempFile temp = fileStorageService.fetchTemp(sourceKey);
+            try {
+                decoded = ImageVariants.decode(temp.path(), VARIANT_WIDTHS[VARIANT_WIDTHS.length - 1]);
+            } finally {
+                fileStorageService.discard(temp);
+            }
+        }
+
+        // 从大到小依次缩放，每一级以上一级为源
+        BufferedImage current = decoded.image();
+        String thumbnailPath = null;
+        for (int i = VARIANT_WIDTHS.length - 1; i >= 0; i--) {
+            int width = VARIANT_WIDTHS[i];
+            if (width >= decoded.width()) {
+                continue;
+            }
+            current = ImageVariants.scaleToWidth(current, width);
+            String name = "w" + width + ImageVariants.extensionFor(current);
+            fileStorageService.storeImage(variantDir + "/" + name, current);
+            thumbnailPath = variantDir + "/" + name;
+        }
+
+        String blurhash = BlurHash.encode(ImageVariants.scaleToWidth(current, BLURHASH_WIDTH),
+                BLURHASH_COMPONENTS_X, BLURHASH_COMPONENTS_Y);
+        return new MediaInfo(decoded.width(), decoded.height(), blurhash, thumbnailPath);
+    }
+
+    private static boolean isImage(FileUpload upload) {
+        String mimeType = upload.getMimeType();
+        return mimeType != null && mimeType.startsWith("image/") && !mimeType.equals("image/svg+xml");
+    }
+
+    private record MediaInfo(int width, int height, String blurhash, String thumbnailPath) {
+    }
+}
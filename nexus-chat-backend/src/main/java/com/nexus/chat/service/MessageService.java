@@ -2,27 +2,39 @@ package com.nexus.chat.service;
 
 import com.nexus.chat.dto.MessageDTO;
 import com.nexus.chat.exception.BusinessException;
+import com.nexus.chat.model.Chat;
 import com.nexus.chat.model.ChatMember;
 import com.nexus.chat.model.FileUpload;
 import com.nexus.chat.model.Message;
 import com.nexus.chat.model.MessageReadStatus;
 import com.nexus.chat.model.User;
 import com.nexus.chat.repository.ChatMemberRepository;
+import com.nexus.chat.repository.ChatRepository;
 import com.nexus.chat.repository.FileUploadRepository;
 import com.nexus.chat.repository.MessageReadStatusRepository;
 import com.nexus.chat.repository.MessageRepository;
 import com.nexus.chat.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -30,12 +42,23 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MessageService {
 
+    private static final int MAX_PULL_SIZE = 200;
+
+    private static final Set<Message.MessageType> ATTACHMENT_TYPES =
+            EnumSet.of(Message.MessageType.file, Message.MessageType.image);
+    private static final int ATTACHMENT_BACKFILL_BATCH_SIZE = 200;
+    private static final String ATTACHMENT_BACKFILL_LOCK_KEY = "message:attachments:backfill";
+    private static final Duration ATTACHMENT_BACKFILL_LEASE = Duration.ofMinutes(30);
+
     private final MessageRepository messageRepository;
+    private final ChatRepository chatRepository;
     private final UserRepository userRepository;
     private final ChatMemberRepository chatMemberRepository;
     private final MessageReadStatusRepository messageReadStatusRepository;
     private final FileUploadRepository fileUploadRepository;
     private final MessageSequenceService messageSequenceService;
+    private final RedisLeaseService redisLeaseService;
+    private final ChatMediaService chatMediaService;
 
     /**
      * Send a message with sequence number and client message ID for deduplication.
@@ -45,8 +68,15 @@ public class MessageService {
     public MessageDTO sendMessage(Long chatId, Long senderId, String content, Message.MessageType messageType,
             String fileUrl, String clientMsgId) {
         // Verify sender is a member
-        if (!chatMemberRepository.existsByChatIdAndUserId(chatId, senderId)) {
-            throw new BusinessException("error.chat.not.member");
+        ChatMember senderMember = chatMemberRepository.findByChatIdAndUserId(chatId, senderId)
+                .orElseThrow(() -> new BusinessException("error.chat.not.member"));
+        Chat chat = chatRepository.findById(chatId)
+                .orElseThrow(() -> new BusinessException("error.chat.not.found"));
+        boolean isChannel = chat.getType() == Chat.ChatType.channel;
+
+        // Channels are broadcast-only: only admins post
+        if (isChannel && !Boolean.TRUE.equals(senderMember.getIsAdmin())) {
+            throw new BusinessException("error.channel.post.admin.only");
         }
 
         // Deduplication: check if message with this clientMsgId already exists
@@ -69,26 +99,38 @@ public class MessageService {
         message.setFileUrl(fileUrl);
         message.setClientMessageId(clientMsgId);
         message.setSequenceNumber(sequenceNumber);
+        if (isAttachment(message)) {
+            attachFile(message);
+        }
 
         Message savedMessage = messageRepository.save(message);
+        chatMediaService.index(savedMessage);
 
-        // Create read status for all chat members except sender
-        List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
-        for (ChatMember member : members) {
-            if (!member.getUserId().equals(senderId)) {
-                // Create read status
-                MessageReadStatus readStatus = new MessageReadStatus();
-                readStatus.setMessageId(savedMessage.getId());
-                readStatus.setUserId(member.getUserId());
-                readStatus.setIsRead(false);
-                messageReadStatusRepository.save(readStatus);
+        if (isChannel) {
+            // Channel: single message write, no per-member rows. Readers derive unread
+            // counts from their read cursor; only the sender's cursor moves here.
+            chatMemberRepository.advanceReadCursor(chatId, senderId, sequenceNumber);
+        } else {
+            // Create read status for all chat members except sender
+            List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
+            for (ChatMember member : members) {
+                if (!member.getUserId().equals(senderId)) {
+                    // Create read status
+                    MessageReadStatus readStatus = new MessageReadStatus();
+                    readStatus.setMessageId(savedMessage.getId());
+                    readStatus.setUserId(member.getUserId());
+                    readStatus.setIsRead(false);
+                    messageReadStatusRepository.save(readStatus);
+                }
             }
-        }
 
-        // Batch increment unread count for all members except sender (1 query)
-        chatMemberRepository.incrementUnreadForOthers(chatId, senderId);
+            // Batch increment unread count for all members except sender (1 query)
+            chatMemberRepository.incrementUnreadForOthers(chatId, senderId);
+        }
 
-        return mapToDTO(savedMessage);
+        MessageDTO dto = mapToDTO(savedMessage, userRepository.findById(senderId).orElse(null));
+        dto.setChatType(chat.getType());
+        return dto;
     }
 
     public List<MessageDTO> getChatMessages(Long chatId, Long userId, int page, int size) {
@@ -100,9 +142,21 @@ public class MessageService {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").ascending());
         Page<Message> messages = messageRepository.findByChatId(chatId, pageable);
 
-        return messages.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return mapToDTOs(messages.getContent());
+    }
+
+    /**
+     * Pull messages after a sequence number, oldest first.
+     * Channel members use this on reconnect instead of an offline queue.
+     */
+    public List<MessageDTO> getMessagesAfterSequence(Long chatId, Long userId, long afterSeq, int limit) {
+        if (!chatMemberRepository.existsByChatIdAndUserId(chatId, userId)) {
+            throw new BusinessException("error.chat.not.member");
+        }
+
+        int size = Math.max(1, Math.min(limit, MAX_PULL_SIZE));
+        return mapToDTOs(messageRepository
+                .findByChatIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(chatId, afterSeq, PageRequest.of(0, size)));
     }
 
     @Transactional
@@ -132,6 +186,15 @@ public class MessageService {
 
     @Transactional
     public void markChatMessagesAsRead(Long chatId, Long userId) {
+        Chat chat = chatRepository.findById(chatId).orElse(null);
+        if (chat != null && chat.getType() == Chat.ChatType.channel) {
+            // Channel: move the read cursor to the latest sequence (no read-status rows exist)
+            messageRepository.findFirstByChatIdOrderBySequenceNumberDesc(chatId)
+                    .map(Message::getSequenceNumber)
+                    .ifPresent(seq -> chatMemberRepository.advanceReadCursor(chatId, userId, seq));
+            return;
+        }
+
         // Bulk mark all unread messages as read in 1 query (was 2000+ queries for 1000 messages)
         messageReadStatusRepository.bulkMarkAsRead(chatId, userId, LocalDateTime.now());
 
@@ -139,9 +202,145 @@ public class MessageService {
         chatMemberRepository.resetUnreadCount(chatId, userId);
     }
 
-    private MessageDTO mapToDTO(Message message) {
-        User sender = userRepository.findById(message.getSenderId()).orElse(null);
+    /**
+     * Backfill attachment summaries for messages sent before they were stored on the message,
+     * then the chat media index.
+     * Runs in the background after startup; only the instance holding the lease does the work,
+     * renewing it before each batch and stopping once it is lost.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAttachmentSummaries() {
+        RedisLeaseService.Lease lease = redisLeaseService.tryAcquire(ATTACHMENT_BACKFILL_LOCK_KEY, ATTACHMENT_BACKFILL_LEASE);
+        if (lease == null) {
+            return;
+        }
+
+        int updated = 0;
+        long lastId = 0;
+        try {
+            List<Message> batch;
+            boolean held;
+            while ((held = lease.renew()) && !(batch = messageRepository.findWithoutAttachmentSummary(
+                    lastId, ATTACHMENT_TYPES, PageRequest.of(0, ATTACHMENT_BACKFILL_BATCH_SIZE))).isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+                Map<String, FileUpload> files = findAttachments(batch);
+                for (Message message : batch) {
+                    // URLs that do not point at an upload (external links) stay as they are
+                    String fileId = FileStorageService.fileIdOf(message.getFileUrl()).orElse(null);
+                    if (fileId == null) {
+                        continue;
+                    }
+                    // The upload may already have expired; the fileId is still recorded
+                    FileUpload file = files.get(fileId);
+                    updated += file != null
+                            ? messageRepository.updateAttachmentSummary(message.getId(), fileId,
+                                    file.getOriginalName(), file.getFileSize(), file.getMimeType(), file.getThumbnailPath())
+                            : messageRepository.updateAttachmentSummary(message.getId(), fileId, null, null, null, null);
+                }
+            }
+            if (updated > 0) {
+                log.info("消息附件回填完成: {} 条消息", updated);
+            }
+            // Index media once every message has its summary
+            if (held) {
+                chatMediaService.backfillIndex();
+            }
+        } catch (Exception e) {
+            log.error("消息附件回填失败, 已回填 {} 条消息", updated, e);
+        } finally {
+            lease.release();
+        }
+    }
+
+    /**
+     * Copy the attachment summary fields of a message onto its DTO
+     */
+    public static void applyAttachment(MessageDTO dto, Message message) {
+        String fileId = message.getFileId();
+        if (fileId == null || message.getFileName() == null) {
+            return;
+        }
+        dto.setFileId(fileId);
+        dto.setFileName(message.getFileName());
+        dto.setFileSize(message.getFileSize());
+        dto.setMimeType(message.getFileMimeType());
+        dto.setDownloadUrl("/api/files/download/" + fileId);
+        dto.setPreviewUrl("/api/files/preview/" + fileId);
+        if (message.getFileThumbnail() != null || message.getMessageType() == Message.MessageType.image) {
+            dto.setThumbnailUrl(MediaPipelineService.thumbnailUrl(fileId, message.getFileThumbnail()));
+        }
+    }
+
+    /**
+     * Resolve the attachment of a new message once, so reads never have to look it up again
+     */
+    private void attachFile(Message message) {
+        FileStorageService.fileIdOf(message.getFileUrl()).ifPresent(fileId -> {
+            message.setFileId(fileId);
+            fileUploadRepository.findByFileId(fileId).ifPresent(file -> copySummary(message, file));
+        });
+    }
+
+    private static void copySummary(Message message, FileUpload file) {
+        message.setFileId(file.getFileId());
+        message.setFileName(file.getOriginalName());
+        message.setFileSize(file.getFileSize());
+        message.setFileMimeType(file.getMimeType());
+        message.setFileThumbnail(file.getThumbnailPath());
+    }
 
+    private static boolean isAttachment(Message message) {
+        return ATTACHMENT_TYPES.contains(message.getMessageType()) && message.getFileUrl() != null;
+    }
+
+    /**
+     * Map a page of messages: senders in one query, and uploads in one query only for
+     * messages that predate stored attachment summaries (until the backfill has run)
+     */
+    private List<MessageDTO> mapToDTOs(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+
+        Set<Long> senderIds = messages.stream().map(Message::getSenderId).collect(Collectors.toSet());
+        Map<Long, User> senders = userRepository.findAllById(senderIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Message> legacy = messages.stream()
+                .filter(m -> m.getFileId() == null && isAttachment(m))
+                .toList();
+        Map<String, FileUpload> files = legacy.isEmpty() ? Map.of() : findAttachments(legacy);
+
+        List<MessageDTO> dtos = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            MessageDTO dto = mapToDTO(message, senders.get(message.getSenderId()));
+            if (message.getFileId() == null && !files.isEmpty()) {
+                FileStorageService.fileIdOf(message.getFileUrl()).map(files::get).ifPresent(file -> {
+                    Message summary = new Message();
+                    summary.setMessageType(message.getMessageType());
+                    copySummary(summary, file);
+                    applyAttachment(dto, summary);
+                });
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    private Map<String, FileUpload> findAttachments(List<Message> messages) {
+        Set<String> fileIds = messages.stream()
+                .map(m -> FileStorageService.fileIdOf(m.getFileUrl()))
+                .flatMap(Optional::stream)
+                .collect(Collectors.toSet());
+        if (fileIds.isEmpty()) {
+            return Map.of();
+        }
+        return fileUploadRepository.findByFileIdIn(fileIds).stream()
+                .collect(Collectors.toMap(FileUpload::getFileId, Function.identity()));
+    }
+
+    private MessageDTO mapToDTO(Message message, User sender) {
         MessageDTO dto = new MessageDTO();
         dto.setId(message.getId());
         dto.setChatId(message.getChatId());
@@ -158,38 +357,7 @@ public class MessageService {
             dto.setSenderAvatar(sender.getAvatarUrl());
         }
 
-        // 如果是文件消息，填充文件详情
-        if ((message.getMessageType() == Message.MessageType.file ||
-             message.getMessageType() == Message.MessageType.image) &&
-            message.getFileUrl() != null) {
-
-            // 尝试从 fileUrl 中提取 fileId
-            String fileUrl = message.getFileUrl();
-            String fileId = null;
-
-            // fileUrl 格式可能是 /uploads/2024/01/01/uuid.ext 或 /api/files/download/uuid
-            if (fileUrl.contains("/api/files/download/")) {
-                fileId = fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
-            } else if (fileUrl.contains("/uploads/")) {
-                // 从路径中提取文件名（不含扩展名）作为fileId
-                String filename = fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
-                if (filename.contains(".")) {
-                    fileId = filename.substring(0, filename.lastIndexOf("."));
-                }
-            }
-
-            if (fileId != null) {
-                fileUploadRepository.findByFileId(fileId).ifPresent(fileUpload -> {
-                    dto.setFileId(fileUpload.getFileId());
-                    dto.setFileName(fileUpload.getOriginalName());
-                    dto.setFileSize(fileUpload.getFileSize());
-                    dto.setMimeType(fileUpload.getMimeType());
-                    dto.setDownloadUrl("/api/files/download/" + fileUpload.getFileId());
-                    dto.setPreviewUrl("/api/files/preview/" + fileUpload.getFileId());
-                });
-            }
-        }
-
+        applyAttachment(dto, message);
         return dto;
     }
 
@@ -0,0 +1,190 @@
+package com.nexus.chat.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexus.chat.dto.PostImageDTO;
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.model.Post;
+import com.nexus.chat.model.PostImage;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.repository.PostImageRepository;
+import com.nexus.chat.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 帖子图片服务
+ * 发帖时为每张图片写一行 post_images，记录尺寸、BlurHash 和关联的上传文件（上传后已处理过的图片直接复用结果，
+ * 尚未处理的图片先不带尺寸写入，提交后交给 MediaPipelineService 异步处理并回填，发帖事务中不解码图片）；
+ * 列表页一次查询取出整页帖子的图片，并返回缩略图地址供列表展示。
+ * 旧帖子的图片以 JSON 存在 posts.images 中，启动后在后台分批迁移。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostImageService {
+
+    // 列表缩略图宽度
+    static final int FEED_THUMBNAIL_WIDTH = 480;
+
+    private static final int MIGRATION_BATCH_SIZE = 200;
+    private static final String MIGRATION_LOCK_KEY = "post:images:migration";
+    private static final Duration MIGRATION_LEASE = Duration.ofMinutes(30);
+
+    private final PostImageRepository postImageRepository;
+    private final FileUploadRepository fileUploadRepository;
+    private final PostRepository postRepository;
+    private final RedisLeaseService redisLeaseService;
+    private final MediaPipelineService mediaPipelineService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 保存帖子的图片记录，上传文件一次批量查询；已处理的图片直接带上尺寸和 BlurHash
+     */
+    public List<PostImage> createImages(Long postId, List<String> urls) {
+        if (urls == null || urls.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, String> fileIdByUrl = new HashMap<>();
+        for (String url : urls) {
+            FileStorageService.fileIdOf(url).ifPresent(fileId -> fileIdByUrl.put(url, fileId));
+        }
+        Map<String, FileUpload> files = fileIdByUrl.isEmpty() ? Map.of()
+                : fileUploadRepository.findByFileIdIn(fileIdByUrl.values()).stream()
+                        .collect(Collectors.toMap(FileUpload::getFileId, Function.identity()));
+
+        List<PostImage> images = new ArrayList<>(urls.size());
+        List<FileUpload> unprocessed = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String url = urls.get(i);
+            PostImage image = new PostImage();
+            image.setPostId(postId);
+            image.setPosition(i);
+            image.setUrl(url);
+
+            FileUpload file = files.get(fileIdByUrl.get(url));
+            if (file != null && file.getWidth() != null) {
+                // 上传后的图片处理已完成
+                image.setFileId(file.getFileId());
+                image.setWidth(file.getWidth());
+                image.setHeight(file.getHeight());
+                image.setBlurhash(file.getBlurhash());
+            } else if (file != null) {
+                // 尺寸在图片处理完成后回填
+                image.setFileId(file.getFileId());
+                unprocessed.add(file);
+            }
+            images.add(image);
+        }
+        List<PostImage> saved = postImageRepository.saveAll(images);
+        if (!unprocessed.isEmpty()) {
+            afterCommit(() -> unprocessed.forEach(mediaPipelineService::submit));
+        }
+        return saved;
+    }
+
+    /**
+     * 批量查询帖子图片，按帖子分组并保持图片顺序
+     */
+    public Map<Long, List<PostImage>> findByPostIds(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Map.of();
+        }
+        return postImageRepository.findByPostIdInOrderByPostIdAscPositionAsc(postIds).stream()
+                .collect(Collectors.groupingBy(PostImage::getPostId));
+    }
+
+    public void deleteImages(Long postId) {
+        postImageRepository.deleteByPostId(postId);
+    }
+
+    public static PostImageDTO toDTO(PostImage image) {
+        String thumbnailUrl = image.getFileId() != null
+                ? "/files/preview/" + image.getFileId() + "?w=" + FEED_THUMBNAIL_WIDTH
+                : image.getUrl();
+        return new PostImageDTO(image.getUrl(), thumbnailUrl, image.getWidth(), image.getHeight(), image.getBlurhash());
+    }
+
+    /**
+     * 解析旧帖子的图片 JSON（迁移完成前的回退路径）
+     */
+    public List<String> parseLegacyImages(String json) {
+        if (json == null || json.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * 启动后把 posts.images 中的旧数据迁移为图片记录，多实例时只由抢到租约的实例执行，
+     * 每批续期一次，租约丢失后停止
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyImages() {
+        RedisLeaseService.Lease lease = redisLeaseService.tryAcquire(MIGRATION_LOCK_KEY, MIGRATION_LEASE);
+        if (lease == null) {
+            return;
+        }
+
+        int migrated = 0;
+        long lastId = 0;
+        try {
+            List<Post> batch;
+            while (lease.renew() && !(batch = postRepository.findByImagesIsNotNullAndIdGreaterThanOrderByIdAsc(
+                    lastId, PageRequest.of(0, MIGRATION_BATCH_SIZE))).isEmpty()) {
+                for (Post post : batch) {
+                    lastId = post.getId();
+                    try {
+                        if (!postImageRepository.existsByPostId(post.getId())) {
+                            createImages(post.getId(), parseLegacyImages(post.getImages()));
+                        }
+                        postRepository.clearLegacyImages(post.getId());
+                        migrated++;
+                    } catch (Exception e) {
+                        // 保留原 JSON，下次启动重试
+                        log.warn("帖子图片迁移失败: postId={}, error={}", post.getId(), e.getMessage());
+                    }
+                }
+            }
+            if (migrated > 0) {
+                log.info("帖子图片迁移完成: {} 个帖子", migrated);
+            }
+        } catch (Exception e) {
+            log.error("帖子图片迁移失败, 已迁移 {} 个帖子", migrated, e);
+        } finally {
+            lease.release();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.Post;
+import com.nexus.chat.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * 帖子排行服务
+ * 热门/推荐分数保存在 Redis 有序集合中，投票、评论时增量更新，定期从 MySQL 全量重建。
+ * 分数 = log10(互动量) + 发布时间 / 衰减周期，越新的帖子基础分越高，
+ * 旧帖需要数量级更多的互动才能排在新帖之前，因此分数写入后无需随时间重算。
+ * 重建由 Redis 锁保证单实例执行；重建期间的增量同时记入待合并哈希，替换排行时一并应用，不会被重建结果覆盖。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostRankingService {
+
+    private static final String HOT_KEY = "post:rank:hot";
+    private static final String RECOMMENDED_KEY = "post:rank:recommended";
+    private static final String REBUILD_LOCK_KEY = "post:rank:rebuild:lock";
+    // 重建期间的增量: member -> 最新分数（REMOVED 表示已移除）
+    private static final String HOT_PENDING_KEY = "post:rank:hot:pending";
+    private static final String RECOMMENDED_PENDING_KEY = "post:rank:recommended:pending";
+    private static final String REMOVED = "removed";
+
+    // 热门: 每 12.5 小时的新鲜度相当于 10 倍互动量
+    private static final double HOT_DECAY_SECONDS = 45000;
+    // 推荐: 衰减更慢, 每 50 小时相当于 10 倍点赞
+    private static final double RECOMMENDED_DECAY_SECONDS = 180000;
+    // 分数时间基准 2024-01-01, 让分数保持较小的数量级
+    private static final long SCORE_EPOCH_SECONDS = 1704067200L;
+
+    private static final int MAX_RANKED_POSTS = 10000;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // KEYS: hot, recommended, lock, hotPending, recommendedPending  ARGV: member, hotScore, recommendedScore
+    private static final DefaultRedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('zadd', KEYS[1], ARGV[2], ARGV[1]) " +
+            "redis.call('zadd', KEYS[2], ARGV[3], ARGV[1]) " +
+            "if redis.call('exists', KEYS[3]) == 1 then " +
+            "redis.call('hset', KEYS[4], ARGV[1], ARGV[2]) " +
+            "redis.call('hset', KEYS[5], ARGV[1], ARGV[3]) end " +
+            "return 1", Long.class);
+
+    // KEYS: hot, recommended, lock, hotPending, recommendedPending  ARGV: member, REMOVED
+    private static final DefaultRedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('zrem', KEYS[1], ARGV[1]) " +
+            "redis.call('zrem', KEYS[2], ARGV[1]) " +
+            "if redis.call('exists', KEYS[3]) == 1 then " +
+            "redis.call('hset', KEYS[4], ARGV[1], ARGV[2]) " +
+            "redis.call('hset', KEYS[5], ARGV[1], ARGV[2]) end " +
+            "return 1", Long.class);
+
+    // 把待合并的增量应用到临时排行，截断后原子替换正式排行
+    // KEYS: tmp, live, pending  ARGV: maxRanked, REMOVED
+    private static final DefaultRedisScript<Long> SWAP_SCRIPT = new DefaultRedisScript<>(
+            "local pending = redis.call('hgetall', KEYS[3]) " +
+            "for i = 1, #pending, 2 do " +
+            "if pending[i + 1] == ARGV[2] then redis.call('zrem', KEYS[1], pending[i]) " +
+            "else redis.call('zadd', KEYS[1], pending[i + 1], pending[i]) end end " +
+            "redis.call('del', KEYS[3]) " +
+            "if redis.call('exists', KEYS[1]) == 0 then redis.call('del', KEYS[2]) return 0 end " +
+            "redis.call('zremrangebyrank', KEYS[1], 0, -tonumber(ARGV[1]) - 1) " +
+            "redis.call('rename', KEYS[1], KEYS[2]) " +
+            "return 1", Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PostRepository postRepository;
+
+    @Value("${post.ranking.rebuild-lock-minutes:10}")
+    private long rebuildLockMinutes;
+
+    /**
+     * 热门分数: 点赞 - 踩 + 评论 * 2
+     */
+    static double hotScore(Post post) {
+        long engagement = (long) post.getUpvoteCount() - post.getDownvoteCount() + post.getCommentCount() * 2L;
+        double order = Math.log10(Math.max(Math.abs(engagement), 1));
+        return Long.signum(engagement) * order + ageSeconds(post) / HOT_DECAY_SECONDS;
+    }
+
+    /**
+     * 推荐分数: 点赞数
+     */
+    static double recommendedScore(Post post) {
+        double order = Math.log10(Math.max(post.getUpvoteCount(), 1));
+        return order + ageSeconds(post) / RECOMMENDED_DECAY_SECONDS;
+    }
+
+    private static long ageSeconds(Post post) {
+        LocalDateTime createdAt = post.getCreatedAt() != null ? post.getCreatedAt() : LocalDateTime.now();
+        return createdAt.atZone(ZoneId.systemDefault()).toEpochSecond() - SCORE_EPOCH_SECONDS;
+    }
+
+    /**
+     * 帖子计数变化后更新排行分数（创建、投票、评论增删）
+     */
+    public void updateScores(Post post) {
+        try {
+            stringRedisTemplate.execute(UPDATE_SCRIPT, rankingKeys(), String.valueOf(post.getId()),
+                    String.valueOf(hotScore(post)), String.valueOf(recommendedScore(post)));
+        } catch (Exception e) {
+            // 排行只是读优化，失败时等待下次重建修正
+            log.warn("更新帖子排行失败: postId={}, error={}", post.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 从排行中移除帖子
+     */
+    public void removePost(Long postId) {
+        try {
+            stringRedisTemplate.execute(REMOVE_SCRIPT, rankingKeys(), String.valueOf(postId), REMOVED);
+        } catch (Exception e) {
+            // 残留的ID在回表时会被跳过，下次重建清除
+            log.warn("移除帖子排行失败: postId={}, error={}", postId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取热门帖子ID分页, 排行不可用时返回 null（见 getPage）
+     */
+    public RankedPage getHotPage(int page, int size) {
+        return getPage(HOT_KEY, page, size);
+    }
+
+    /**
+     * 获取推荐帖子ID分页, 排行不可用时返回 null（见 getPage）
+     */
+    public RankedPage getRecommendedPage(int page, int size) {
+        return getPage(RECOMMENDED_KEY, page, size);
+    }
+
+    /**
+     * 以下情况返回 null，由调用方回退到数据库排序：
+     * 排行尚未建立（冷启动）、Redis 不可用、页超出排行保留的前 MAX_RANKED_POSTS 个
+     */
+    private RankedPage getPage(String key, int page, int size) {
+        long start = (long) page * size;
+        if (start + size > MAX_RANKED_POSTS) {
+            return null;
+        }
+        Long total;
+        List<Long> ids = new ArrayList<>();
+        try {
+            total = stringRedisTemplate.opsForZSet().zCard(key);
+            if (total == null || total == 0) {
+                return null;
+            }
+            Set<String> members = stringRedisTemplate.opsForZSet().reverseRange(key, start, start + size - 1);
+            if (members != null) {
+                for (String member : members) {
+                    ids.add(Long.parseLong(member));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取帖子排行失败, 回退到数据库排序: key={}, error={}", key, e.getMessage());
+            return null;
+        }
+        // 排行已截断时总数以数据库为准，客户端才能继续翻到排行之外的页
+        return new RankedPage(ids, total >= MAX_RANKED_POSTS ? postRepository.count() : total);
+    }
+
+    private static List<String> rankingKeys() {
+        return List.of(HOT_KEY, RECOMMENDED_KEY, REBUILD_LOCK_KEY, HOT_PENDING_KEY, RECOMMENDED_PENDING_KEY);
+    }
+
+    /**
+     * 每 10 分钟从 MySQL 全量重建排行（启动 30 秒后首次执行），多实例时只由抢到锁的实例执行
+     * 按 id 键集分页写入临时 key，持锁期间的增量记入待合并哈希，最后合并并 RENAME 原子替换，重建期间读取不受影响
+     */
+    @Scheduled(initialDelayString = "${post.ranking.initial-delay-ms:30000}",
+               fixedDelayString = "${post.ranking.rebuild-interval-ms:600000}")
+    public void rebuildRankings() {
+        String token = UUID.randomUUID().toString().substring(0, 8);
+        try {
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(REBUILD_LOCK_KEY, token, Duration.ofMinutes(rebuildLockMinutes));
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+            // 上次重建结束后残留的增量已写入正式排行
+            stringRedisTemplate.delete(List.of(HOT_PENDING_KEY, RECOMMENDED_PENDING_KEY));
+        } catch (Exception e) {
+            log.warn("帖子排行重建跳过, Redis 不可用: {}", e.getMessage());
+            return;
+        }
+
+        String suffix = ":rebuild:" + token;
+        String hotTmp = HOT_KEY + suffix;
+        String recommendedTmp = RECOMMENDED_KEY + suffix;
+        long startTime = System.currentTimeMillis();
+        int count = 0;
+
+        try {
+            long lastId = 0;
+            List<Post> batch;
+            while (!(batch = postRepository.findByIdGreaterThanOrderByIdAsc(
+                    lastId, PageRequest.of(0, REBUILD_BATCH_SIZE))).isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+                Set<ZSetOperations.TypedTuple<String>> hot = new HashSet<>();
+                Set<ZSetOperations.TypedTuple<String>> recommended = new HashSet<>();
+                for (Post post : batch) {
+                    if (Boolean.TRUE.equals(post.getIsDeleted())) {
+                        continue;
+                    }
+                    String member = String.valueOf(post.getId());
+                    hot.add(ZSetOperations.TypedTuple.of(member, hotScore(post)));
+                    recommended.add(ZSetOperations.TypedTuple.of(member, recommendedScore(post)));
+                }
+                if (!hot.isEmpty()) {
+                    stringRedisTemplate.opsForZSet().add(hotTmp, hot);
+                    stringRedisTemplate.opsForZSet().add(recommendedTmp, recommended);
+                    count += hot.size();
+                }
+            }
+
+            // 合并重建期间的增量，排行只保留排名靠前的帖子
+            String maxRanked = String.valueOf(MAX_RANKED_POSTS);
+            stringRedisTemplate.execute(SWAP_SCRIPT, List.of(hotTmp, HOT_KEY, HOT_PENDING_KEY), maxRanked, REMOVED);
+            stringRedisTemplate.execute(SWAP_SCRIPT, List.of(recommendedTmp, RECOMMENDED_KEY, RECOMMENDED_PENDING_KEY),
+                    maxRanked, REMOVED);
+
+            log.info("帖子排行重建完成: {} 个帖子, 耗时 {}ms", count, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            stringRedisTemplate.delete(List.of(hotTmp, recommendedTmp));
+            log.error("帖子排行重建失败", e);
+        } finally {
+            try {
+                stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(REBUILD_LOCK_KEY), token);
+            } catch (Exception e) {
+                log.warn("帖子排行重建锁释放失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 排行分页结果: 按排名排序的帖子ID + 排行总数
+     */
+    public record RankedPage(List<Long> postIds, long total) {
+    }
+}
@@ -1,21 +1,25 @@
 package com.nexus.chat.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nexus.chat.dto.*;
 import com.nexus.chat.model.*;
 import com.nexus.chat.repository.*;
+import com.nexus.chat.search.PostSearchService;
+import com.nexus.chat.search.SearchText;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 帖子服务
@@ -23,6 +27,13 @@ import java.util.Optional;
 @Service
 public class PostService {
 
+    // 搜索结果摘要长度（字符）
+    private static final int SEARCH_SNIPPET_LENGTH = 120;
+
+    // 评论树分页上限
+    private static final int MAX_COMMENT_PAGE_SIZE = 50;
+    private static final int MAX_REPLIES_PER_THREAD = 10;
+
     @Autowired
     private PostRepository postRepository;
 
@@ -41,7 +52,17 @@ public class PostService {
     @Autowired
     private UserRepository userRepository;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private PostRankingService postRankingService;
+
+    @Autowired
+    private PostViewCounter postViewCounter;
+
+    @Autowired
+    private PostSearchService postSearchService;
+
+    @Autowired
+    private PostImageService postImageService;
 
     // ==================== 帖子 CRUD ====================
 
@@ -58,31 +79,26 @@ public class PostService {
         post.setTitle(request.getTitle());
         post.setContent(request.getContent());
 
-        // 将图片列表转为JSON存储
-        if (request.getImages() != null && !request.getImages().isEmpty()) {
-            try {
-                post.setImages(objectMapper.writeValueAsString(request.getImages()));
-            } catch (JsonProcessingException e) {
-                post.setImages("[]");
-            }
-        }
-
         post = postRepository.save(post);
+        postImageService.createImages(post.getId(), request.getImages());
+        postRankingService.updateScores(post);
         return convertToDTO(post, null);
     }
 
     /**
      * 获取帖子详情
      */
+    @Transactional(readOnly = true)
     public PostDTO getPost(Long postId, Long currentUserId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new RuntimeException("帖子不存在"));
 
-        // 增加浏览量
-        post.setViewCount(post.getViewCount() + 1);
-        postRepository.save(post);
+        // 浏览量在内存中累加，定期批量写入，详情读取本身不写库
+        postViewCounter.recordView(postId, currentUserId);
 
-        return convertToDTO(post, currentUserId);
+        PostDTO dto = convertToDTO(post, currentUserId);
+        dto.setViewCount(post.getViewCount() + (int) postViewCounter.pendingViews(postId));
+        return dto;
     }
 
     /**
@@ -101,8 +117,10 @@ public class PostService {
         postVoteRepository.deleteByPostId(postId);
         postBookmarkRepository.deleteByPostId(postId);
         postCommentRepository.deleteByPostId(postId);
+        postImageService.deleteImages(postId);
 
         postRepository.delete(post);
+        postRankingService.removePost(postId);
     }
 
     // ==================== 帖子列表 ====================
@@ -112,8 +130,13 @@ public class PostService {
      */
     public Page<PostDTO> getRecommendedPosts(int page, int size, Long currentUserId) {
         Pageable pageable = PageRequest.of(page, size);
+        PostRankingService.RankedPage ranked = postRankingService.getRecommendedPage(page, size);
+        if (ranked != null) {
+            return convertRankedPage(ranked, pageable, currentUserId);
+        }
+        // 排行尚未建立、Redis 不可用或超出排行范围时回退到数据库排序
         Page<Post> posts = postRepository.findRecommendedPosts(pageable);
-        return posts.map(post -> convertToDTO(post, currentUserId));
+        return convertToDTOPage(posts, currentUserId);
     }
 
     /**
@@ -121,8 +144,13 @@ public class PostService {
      */
     public Page<PostDTO> getHotPosts(int page, int size, Long currentUserId) {
         Pageable pageable = PageRequest.of(page, size);
+        PostRankingService.RankedPage ranked = postRankingService.getHotPage(page, size);
+        if (ranked != null) {
+            return convertRankedPage(ranked, pageable, currentUserId);
+        }
+        // 排行尚未建立、Redis 不可用或超出排行范围时回退到数据库排序
         Page<Post> posts = postRepository.findHotPosts(pageable);
-        return posts.map(post -> convertToDTO(post, currentUserId));
+        return convertToDTOPage(posts, currentUserId);
     }
 
     /**
@@ -131,7 +159,7 @@ public class PostService {
     public Page<PostDTO> getLatestPosts(int page, int size, Long currentUserId) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Post> posts = postRepository.findAllByOrderByCreatedAtDesc(pageable);
-        return posts.map(post -> convertToDTO(post, currentUserId));
+        return convertToDTOPage(posts, currentUserId);
     }
 
     /**
@@ -140,73 +168,84 @@ public class PostService {
     public Page<PostDTO> getUserPosts(Long userId, int page, int size, Long currentUserId) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Post> posts = postRepository.findByAuthorIdOrderByCreatedAtDesc(userId, pageable);
-        return posts.map(post -> convertToDTO(post, currentUserId));
+        return convertToDTOPage(posts, currentUserId);
     }
 
     /**
-     * 搜索帖子
+     * 搜索帖子（全文索引按相关度排序，结果附带高亮）
      */
     public Page<PostDTO> searchPosts(String keyword, int page, int size, Long currentUserId) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Post> posts = postRepository.searchPosts(keyword, pageable);
-        return posts.map(post -> convertToDTO(post, currentUserId));
+        List<String> terms = SearchText.terms(keyword);
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        Page<PostDTO> result;
+        Page<Long> hits = postSearchService.searchIds(terms, pageable);
+        if (hits != null) {
+            result = convertIdPage(hits.getContent(), pageable, hits.getTotalElements(), currentUserId);
+        } else {
+            result = convertToDTOPage(postRepository.searchPosts(keyword.trim(), pageable), currentUserId);
+        }
+
+        for (PostDTO dto : result) {
+            dto.setTitleHighlight(SearchText.highlight(dto.getTitle(), terms));
+            dto.setContentHighlight(SearchText.snippet(dto.getContent(), terms, SEARCH_SNIPPET_LENGTH));
+        }
+        return result;
     }
 
     // ==================== 投票 ====================
 
     /**
      * 投票（点赞/踩）
+     * 投票记录的每次变化都是带条件的单条语句，只有真正生效（影响 1 行）时才调整计数；
+     * 计数用 x = x + delta 原子更新，并发投票不会互相覆盖，重复提交也不会重复计数。
      */
     @Transactional
     public PostDTO vote(Long postId, Long userId, int voteType) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("帖子不存在"));
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("用户不存在"));
+        if (voteType != 1 && voteType != -1) {
+            throw new RuntimeException("无效的投票类型");
+        }
+        if (!postRepository.existsById(postId)) {
+            throw new RuntimeException("帖子不存在");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("用户不存在");
+        }
 
         Optional<PostVote> existingVote = postVoteRepository.findByPostIdAndUserId(postId, userId);
+        int upDelta = 0;
+        int downDelta = 0;
 
-        if (existingVote.isPresent()) {
-            PostVote vote = existingVote.get();
-            int oldVoteType = vote.getVoteType();
-
-            if (oldVoteType == voteType) {
-                // 取消投票
-                postVoteRepository.delete(vote);
-                if (voteType == 1) {
-                    post.setUpvoteCount(post.getUpvoteCount() - 1);
-                } else {
-                    post.setDownvoteCount(post.getDownvoteCount() - 1);
-                }
-            } else {
-                // 切换投票
-                vote.setVoteType(voteType);
-                postVoteRepository.save(vote);
-                if (voteType == 1) {
-                    post.setUpvoteCount(post.getUpvoteCount() + 1);
-                    post.setDownvoteCount(post.getDownvoteCount() - 1);
-                } else {
-                    post.setUpvoteCount(post.getUpvoteCount() - 1);
-                    post.setDownvoteCount(post.getDownvoteCount() + 1);
-                }
+        if (existingVote.isEmpty()) {
+            // 新投票
+            if (postVoteRepository.insertIfAbsent(postId, userId, voteType) == 1) {
+                upDelta = voteType == 1 ? 1 : 0;
+                downDelta = voteType == 1 ? 0 : 1;
+            }
+        } else if (existingVote.get().getVoteType() == voteType) {
+            // 取消投票
+            if (postVoteRepository.deleteVote(postId, userId, voteType) == 1) {
+                upDelta = voteType == 1 ? -1 : 0;
+                downDelta = voteType == 1 ? 0 : -1;
             }
         } else {
-            // 新投票
-            PostVote vote = new PostVote();
-            vote.setPost(post);
-            vote.setUser(user);
-            vote.setVoteType(voteType);
-            postVoteRepository.save(vote);
-
-            if (voteType == 1) {
-                post.setUpvoteCount(post.getUpvoteCount() + 1);
-            } else {
-                post.setDownvoteCount(post.getDownvoteCount() + 1);
+            // 切换投票
+            if (postVoteRepository.switchVoteType(postId, userId, -voteType, voteType) == 1) {
+                upDelta = voteType;
+                downDelta = -voteType;
             }
         }
 
-        post = postRepository.save(post);
+        if (upDelta != 0 || downDelta != 0) {
+            postRepository.adjustVoteCounts(postId, upDelta, downDelta);
+        }
+
+        Post post = postRepository.findById(postId)
+                .orElseThrow(() -> new RuntimeException("帖子不存在"));
+        postRankingService.updateScores(post);
         return convertToDTO(post, userId);
     }
 
@@ -243,7 +282,8 @@ public class PostService {
     public Page<PostDTO> getUserBookmarks(Long userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<PostBookmark> bookmarks = postBookmarkRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
-        return bookmarks.map(bookmark -> convertToDTO(bookmark.getPost(), userId));
+        List<Post> posts = bookmarks.getContent().stream().map(PostBookmark::getPost).toList();
+        return new PageImpl<>(convertToDTOs(posts, userId), pageable, bookmarks.getTotalElements());
     }
 
     // ==================== 评论 ====================
@@ -268,8 +308,8 @@ public class PostService {
         comment = postCommentRepository.save(comment);
 
         // 更新帖子评论数
-        post.setCommentCount(post.getCommentCount() + 1);
-        postRepository.save(post);
+        postRepository.adjustCommentCount(post.getId(), 1);
+        postRepository.findById(post.getId()).ifPresent(postRankingService::updateScores);
 
         return convertCommentToDTO(comment);
     }
@@ -280,7 +320,45 @@ public class PostService {
     public Page<PostCommentDTO> getPostComments(Long postId, int page, int size, Long currentUserId) {
         Pageable pageable = PageRequest.of(page, size);
         Page<PostComment> comments = postCommentRepository.findByPostIdAndParentIdIsNullOrderByCreatedAtDesc(postId, pageable);
-        return comments.map(c -> convertCommentToDTO(c, currentUserId));
+        return new PageImpl<>(convertCommentsToDTOs(comments.getContent(), currentUserId),
+                pageable, comments.getTotalElements());
+    }
+
+    /**
+     * 获取评论树：一页顶级评论（按 id 倒序键集分页）及每个楼层的前 N 条回复
+     * 查询数固定：顶级评论、回复ID（窗口函数）、回复、回复数、点赞状态各一条
+     */
+    public List<PostCommentDTO> getCommentTree(Long postId, Long beforeId, int size, int repliesPerThread,
+                                               Long currentUserId) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_COMMENT_PAGE_SIZE);
+        int replyLimit = Math.min(Math.max(repliesPerThread, 0), MAX_REPLIES_PER_THREAD);
+        List<PostComment> threads = postCommentRepository.findByPostIdAndParentIdIsNullAndIdLessThanOrderByIdDesc(
+                postId, beforeId != null ? beforeId : Long.MAX_VALUE, PageRequest.of(0, pageSize));
+        if (threads.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> threadIds = threads.stream().map(PostComment::getId).toList();
+        List<PostComment> replies = replyLimit > 0
+                ? postCommentRepository.findByIdInOrderByIdAsc(postCommentRepository.findFirstReplyIds(threadIds, replyLimit))
+                : List.of();
+        Map<Long, Long> replyCounts = postCommentRepository.countRepliesByParentIds(threadIds).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+
+        // 顶级评论和回复一起转换，点赞状态一次查出
+        List<PostComment> all = new ArrayList<>(threads.size() + replies.size());
+        all.addAll(threads);
+        all.addAll(replies);
+        List<PostCommentDTO> dtos = convertCommentsToDTOs(all, currentUserId);
+
+        Map<Long, List<PostCommentDTO>> repliesByParent = dtos.subList(threads.size(), dtos.size()).stream()
+                .collect(Collectors.groupingBy(PostCommentDTO::getParentId));
+        List<PostCommentDTO> result = new ArrayList<>(dtos.subList(0, threads.size()));
+        for (PostCommentDTO thread : result) {
+            thread.setReplyCount(replyCounts.getOrDefault(thread.getId(), 0L));
+            thread.setReplies(repliesByParent.getOrDefault(thread.getId(), List.of()));
+        }
+        return result;
     }
 
     /**
@@ -295,41 +373,42 @@ public class PostService {
             throw new RuntimeException("无权删除此评论");
         }
 
-        // 更新帖子评论数
-        Post post = comment.getPost();
-        post.setCommentCount(post.getCommentCount() - 1);
-        postRepository.save(post);
-
+        Long postId = comment.getPost().getId();
         postCommentRepository.delete(comment);
+
+        // 更新帖子评论数
+        postRepository.adjustCommentCount(postId, -1);
+        postRepository.findById(postId).ifPresent(postRankingService::updateScores);
     }
 
     /**
      * 评论点赞（切换）
+     * 与投票相同，只有点赞记录真正插入或删除时才原子调整点赞数
      */
     @Transactional
     public PostCommentDTO toggleCommentLike(Long commentId, Long userId) {
-        PostComment comment = postCommentRepository.findById(commentId)
-                .orElseThrow(() -> new RuntimeException("评论不存在"));
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("用户不存在"));
-
-        Optional<CommentLike> existingLike = commentLikeRepository.findByCommentIdAndUserId(commentId, userId);
+        if (!postCommentRepository.existsById(commentId)) {
+            throw new RuntimeException("评论不存在");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("用户不存在");
+        }
 
-        if (existingLike.isPresent()) {
+        int delta;
+        if (commentLikeRepository.findByCommentIdAndUserId(commentId, userId).isPresent()) {
             // 已点赞 -> 取消点赞
-            commentLikeRepository.delete(existingLike.get());
-            comment.setLikeCount(Math.max(0, comment.getLikeCount() - 1));
+            delta = -commentLikeRepository.deleteLike(commentId, userId);
         } else {
             // 未点赞 -> 点赞
-            CommentLike like = new CommentLike();
-            like.setComment(comment);
-            like.setUser(user);
-            commentLikeRepository.save(like);
-            comment.setLikeCount(comment.getLikeCount() + 1);
+            delta = commentLikeRepository.insertIfAbsent(commentId, userId);
         }
 
-        comment = postCommentRepository.save(comment);
+        if (delta != 0) {
+            postCommentRepository.adjustLikeCount(commentId, delta);
+        }
+
+        PostComment comment = postCommentRepository.findById(commentId)
+                .orElseThrow(() -> new RuntimeException("评论不存在"));
         return convertCommentToDTO(comment, userId);
     }
 
@@ -338,7 +417,17 @@ public class PostService {
      */
     public List<PostCommentDTO> getCommentReplies(Long commentId, Long currentUserId) {
         List<PostComment> replies = postCommentRepository.findByParentIdOrderByCreatedAtAsc(commentId);
-        return replies.stream().map(c -> convertCommentToDTO(c, currentUserId)).toList();
+        return convertCommentsToDTOs(replies, currentUserId);
+    }
+
+    /**
+     * 分页获取评论的回复（按 id 正序键集分页，用于展开长楼层）
+     */
+    public List<PostCommentDTO> getCommentReplies(Long commentId, Long afterId, int size, Long currentUserId) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_COMMENT_PAGE_SIZE);
+        List<PostComment> replies = postCommentRepository.findByParentIdAndIdGreaterThanOrderByIdAsc(
+                commentId, afterId != null ? afterId : 0L, PageRequest.of(0, pageSize));
+        return convertCommentsToDTOs(replies, currentUserId);
     }
 
     // ==================== 辅助方法 ====================
@@ -347,6 +436,63 @@ public class PostService {
      * 转换帖子为DTO
      */
     private PostDTO convertToDTO(Post post, Long currentUserId) {
+        return convertToDTOs(List.of(post), currentUserId).get(0);
+    }
+
+    /**
+     * 排行分页: 按ID批量回表后恢复排行顺序（已删除的帖子跳过）
+     */
+    private Page<PostDTO> convertRankedPage(PostRankingService.RankedPage ranked, Pageable pageable, Long currentUserId) {
+        return convertIdPage(ranked.postIds(), pageable, ranked.total(), currentUserId);
+    }
+
+    /**
+     * 按给定ID顺序回表并转换，已删除的帖子跳过
+     */
+    private Page<PostDTO> convertIdPage(List<Long> postIds, Pageable pageable, long total, Long currentUserId) {
+        Map<Long, Post> postsById = postRepository.findByIdIn(postIds).stream()
+                .collect(Collectors.toMap(Post::getId, post -> post));
+        List<Post> posts = postIds.stream()
+                .map(postsById::get)
+                .filter(post -> post != null)
+                .toList();
+        return new PageImpl<>(convertToDTOs(posts, currentUserId), pageable, total);
+    }
+
+    private Page<PostDTO> convertToDTOPage(Page<Post> posts, Long currentUserId) {
+        return new PageImpl<>(convertToDTOs(posts.getContent(), currentUserId),
+                posts.getPageable(), posts.getTotalElements());
+    }
+
+    /**
+     * 批量转换帖子为DTO：当前用户对整页帖子的投票和收藏各用一条 IN 查询加载，
+     * 作者由仓库的 EntityGraph 连带取出，查询数与页大小无关
+     */
+    private List<PostDTO> convertToDTOs(List<Post> posts, Long currentUserId) {
+        Map<Long, List<PostImage>> imagesByPost = postImageService.findByPostIds(
+                posts.stream().map(Post::getId).toList());
+        Map<Long, Integer> userVotes = Collections.emptyMap();
+        Set<Long> bookmarkedIds = Collections.emptySet();
+        if (currentUserId != null && !posts.isEmpty()) {
+            List<Long> postIds = posts.stream().map(Post::getId).toList();
+            userVotes = postVoteRepository.findByUserIdAndPostIdIn(currentUserId, postIds).stream()
+                    .collect(Collectors.toMap(vote -> vote.getPost().getId(), PostVote::getVoteType));
+            bookmarkedIds = postBookmarkRepository.findByUserIdAndPostIdIn(currentUserId, postIds).stream()
+                    .map(bookmark -> bookmark.getPost().getId())
+                    .collect(Collectors.toSet());
+        }
+
+        List<PostDTO> result = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            result.add(buildPostDTO(post,
+                    imagesByPost.getOrDefault(post.getId(), List.of()),
+                    userVotes.getOrDefault(post.getId(), 0),
+                    bookmarkedIds.contains(post.getId())));
+        }
+        return result;
+    }
+
+    private PostDTO buildPostDTO(Post post, List<PostImage> images, int userVote, boolean bookmarked) {
         PostDTO dto = new PostDTO();
         dto.setId(post.getId());
 
@@ -361,16 +507,16 @@ public class PostService {
         dto.setTitle(post.getTitle());
         dto.setContent(post.getContent());
 
-        // 解析图片JSON
-        if (post.getImages() != null && !post.getImages().isEmpty()) {
-            try {
-                List<String> images = objectMapper.readValue(post.getImages(), new TypeReference<List<String>>() {});
-                dto.setImages(images);
-            } catch (JsonProcessingException e) {
-                dto.setImages(new ArrayList<>());
-            }
+        // 图片（未迁移的旧帖子仍解析 JSON）
+        if (!images.isEmpty()) {
+            dto.setImages(images.stream().map(PostImage::getUrl).toList());
+            dto.setImageDetails(images.stream().map(PostImageService::toDTO).toList());
         } else {
-            dto.setImages(new ArrayList<>());
+            List<String> legacyImages = postImageService.parseLegacyImages(post.getImages());
+            dto.setImages(legacyImages);
+            dto.setImageDetails(legacyImages.stream()
+                    .map(url -> new PostImageDTO(url, url, null, null, null))
+                    .toList());
         }
 
         // 统计数据
@@ -381,14 +527,8 @@ public class PostService {
         dto.setViewCount(post.getViewCount());
 
         // 当前用户交互状态
-        if (currentUserId != null) {
-            Optional<PostVote> vote = postVoteRepository.findByPostIdAndUserId(post.getId(), currentUserId);
-            dto.setUserVote(vote.map(PostVote::getVoteType).orElse(0));
-            dto.setIsBookmarked(postBookmarkRepository.existsByPostIdAndUserId(post.getId(), currentUserId));
-        } else {
-            dto.setUserVote(0);
-            dto.setIsBookmarked(false);
-        }
+        dto.setUserVote(userVote);
+        dto.setIsBookmarked(bookmarked);
 
         // 状态
         dto.setIsPinned(post.getIsPinned());
@@ -411,6 +551,29 @@ public class PostService {
      * 转换评论为DTO（含用户点赞状态）
      */
     private PostCommentDTO convertCommentToDTO(PostComment comment, Long currentUserId) {
+        return convertCommentsToDTOs(List.of(comment), currentUserId).get(0);
+    }
+
+    /**
+     * 批量转换评论为DTO：当前用户的点赞状态用一条 IN 查询加载
+     */
+    private List<PostCommentDTO> convertCommentsToDTOs(List<PostComment> comments, Long currentUserId) {
+        Set<Long> likedIds = Collections.emptySet();
+        if (currentUserId != null && !comments.isEmpty()) {
+            List<Long> commentIds = comments.stream().map(PostComment::getId).toList();
+            likedIds = commentLikeRepository.findByUserIdAndCommentIdIn(currentUserId, commentIds).stream()
+                    .map(like -> like.getComment().getId())
+                    .collect(Collectors.toSet());
+        }
+
+        List<PostCommentDTO> result = new ArrayList<>(comments.size());
+        for (PostComment comment : comments) {
+            result.add(buildCommentDTO(comment, likedIds.contains(comment.getId())));
+        }
+        return result;
+    }
+
+    private PostCommentDTO buildCommentDTO(PostComment comment, boolean liked) {
         PostCommentDTO dto = new PostCommentDTO();
         dto.setId(comment.getId());
         dto.setPostId(comment.getPost().getId());
@@ -430,11 +593,7 @@ public class PostService {
         dto.setLikeCount(comment.getLikeCount());
 
         // 当前用户是否点赞
-        if (currentUserId != null) {
-            dto.setUserLiked(commentLikeRepository.existsByCommentIdAndUserId(comment.getId(), currentUserId));
-        } else {
-            dto.setUserLiked(false);
-        }
+        dto.setUserLiked(liked);
 
         // 时间
         dto.setCreatedAt(comment.getCreatedAt());
@@ -0,0 +1,120 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.repository.PostRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 帖子浏览量计数器
+ * 浏览只在内存中累加（每个帖子一个 LongAdder），每隔几秒合并为一条
+ * UPDATE posts SET view_count = view_count + n 写入 MySQL。
+ * 可选按用户去重：同一用户在时间窗口内重复浏览只计一次。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostViewCounter {
+
+    private static final String VIEWED_PREFIX = "post:viewed:";
+
+    private final PostRepository postRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${post.view.dedup-window-minutes:30}")
+    private long dedupWindowMinutes;
+
+    // 当前累加中的计数；刷新时整体换出
+    private volatile ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    // 上一轮换出的计数，刷新前已拿到旧引用的并发写入会落在这里，下一轮补齐
+    private Map<Long, LongAdder> retired = Collections.emptyMap();
+
+    /**
+     * 记录一次浏览
+     */
+    public void recordView(Long postId, Long userId) {
+        if (userId != null && dedupWindowMinutes > 0 && !firstViewInWindow(postId, userId)) {
+            return;
+        }
+        pending.computeIfAbsent(postId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * 尚未写入数据库的浏览数，用于详情页展示
+     */
+    public long pendingViews(Long postId) {
+        LongAdder adder = pending.get(postId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    private boolean firstViewInWindow(Long postId, Long userId) {
+        try {
+            Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(
+                    VIEWED_PREFIX + postId + ":" + userId, "1", Duration.ofMinutes(dedupWindowMinutes));
+            return !Boolean.FALSE.equals(first);
+        } catch (Exception e) {
+            // Redis 不可用时不去重
+            return true;
+        }
+    }
+
+    /**
+     * 每 5 秒合并写入浏览量
+     */
+    @Scheduled(fixedDelayString = "${post.view.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        retired.forEach((postId, adder) -> addDelta(deltas, postId, adder.sumThenReset()));
+
+        ConcurrentHashMap<Long, LongAdder> current = pending;
+        pending = new ConcurrentHashMap<>();
+        current.forEach((postId, adder) -> addDelta(deltas, postId, adder.sumThenReset()));
+        retired = current;
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        int failed = 0;
+        for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+            try {
+                postRepository.incrementViewCount(entry.getKey(), entry.getValue().intValue());
+            } catch (Exception e) {
+                // 写入失败的增量放回计数器，下一轮重试
+                pending.computeIfAbsent(entry.getKey(), id -> new LongAdder()).add(entry.getValue());
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            log.warn("浏览量写入失败 {} 个帖子, 下一轮重试", failed);
+        }
+        log.debug("浏览量已写入: {} 个帖子", deltas.size() - failed);
+    }
+
+    private static void addDelta(Map<Long, Long> deltas, Long postId, long delta) {
+        if (delta > 0) {
+            deltas.merge(postId, delta, Long::sum);
+        }
+    }
+
+    /**
+     * 停机前写入剩余计数
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        flush();
+    }
+}
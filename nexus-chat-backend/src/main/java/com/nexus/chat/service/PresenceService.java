@@ -5,8 +5,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Redis-backed Presence system.
@@ -72,6 +74,17 @@ public class PresenceService {
         return redisCacheService.getOnlineStatuses(userIds);
     }
 
+    /**
+     * Filter the given users down to those without a live presence key.
+     * Used to pick group members that need an offline queue copy.
+     */
+    public List<Long> getOfflineUserIds(Collection<Long> userIds) {
+        return getOnlineStatuses(userIds).entrySet().stream()
+                .filter(entry -> !entry.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get all active sessions for a user (multi-device support).
      */
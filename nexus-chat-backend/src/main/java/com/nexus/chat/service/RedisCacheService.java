@@ -89,9 +89,15 @@ public class RedisCacheService {
         if (userIds == null || userIds.isEmpty()) {
             return Collections.emptyMap();
         }
+        // One MGET round trip instead of an EXISTS per user
+        List<Long> ids = new ArrayList<>(userIds);
+        List<String> keys = ids.stream()
+                .map(id -> PRESENCE_PREFIX + id)
+                .collect(Collectors.toList());
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
         Map<Long, Boolean> result = new HashMap<>();
-        for (Long userId : userIds) {
-            result.put(userId, isUserOnline(userId));
+        for (int i = 0; i < ids.size(); i++) {
+            result.put(ids.get(i), values != null && values.get(i) != null);
         }
         return result;
     }
@@ -217,6 +223,26 @@ public class RedisCacheService {
         }
     }
 
+    /**
+     * Queue the same message for several offline users, serializing it once.
+     */
+    public void queueOfflineMessage(Collection<Long> userIds, WebSocketMessage message) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(message);
+            for (Long userId : userIds) {
+                String key = OFFLINE_QUEUE_PREFIX + userId;
+                stringRedisTemplate.opsForList().rightPush(key, json);
+                stringRedisTemplate.expire(key, 7, TimeUnit.DAYS);
+            }
+            log.debug("Queued offline message for {} users", userIds.size());
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize offline message for users {}", userIds, e);
+        }
+    }
+
     public List<String> drainOfflineQueue(Long userId) {
         String key = OFFLINE_QUEUE_PREFIX + userId;
         List<String> messages = new ArrayList<>();
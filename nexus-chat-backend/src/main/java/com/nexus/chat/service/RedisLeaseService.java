@@ -0,0 +1,89 @@
+package com.nexus.chat.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 基于 Redis 的互斥租约，多实例下保证后台任务只由一个实例执行
+ * 每次抢占生成独立的令牌，续期和释放都先比对令牌，租约过期后被其他实例抢走时不会误删对方的租约。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RedisLeaseService {
+
+    // 只有租约持有者才能续期或释放
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 抢占租约；已被其他实例持有或 Redis 不可用时返回 null
+     */
+    public Lease tryAcquire(String key, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(key, token, ttl);
+            return Boolean.TRUE.equals(acquired) ? new Lease(key, token, ttl) : null;
+        } catch (Exception e) {
+            log.warn("租约获取失败, Redis 不可用: key={}, error={}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 已抢到的租约
+     */
+    public final class Lease {
+
+        private final String key;
+        private final String token;
+        private final Duration ttl;
+
+        private Lease(String key, String token, Duration ttl) {
+            this.key = key;
+            this.token = token;
+            this.ttl = ttl;
+        }
+
+        /**
+         * 续期到完整的租期；租约已不属于本实例或无法确认时返回 false，调用方应停止任务
+         */
+        public boolean renew() {
+            try {
+                Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(key), token,
+                        String.valueOf(ttl.toMillis()));
+                if (renewed != null && renewed > 0) {
+                    return true;
+                }
+                log.warn("租约已失效: key={}", key);
+            } catch (Exception e) {
+                log.warn("租约续期失败: key={}, error={}", key, e.getMessage());
+            }
+            return false;
+        }
+
+        /**
+         * 释放租约，只删除本实例持有的租约
+         */
+        public void release() {
+            try {
+                stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(key), token);
+            } catch (Exception e) {
+                log.warn("租约释放失败: key={}, error={}", key, e.getMessage());
+            }
+        }
+    }
+}
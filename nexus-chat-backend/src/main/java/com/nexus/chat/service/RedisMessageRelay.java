@@ -3,18 +3,28 @@ package com.nexus.chat.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nexus.chat.config.WebSocketConfig;
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUser;
 import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -26,6 +36,17 @@ import java.util.UUID;
  * - If yes, deliver via SimpMessagingTemplate. If no, ignore.
  *
  * This avoids sticky sessions and provides simple, reliable cross-instance delivery.
+ *
+ * Topic broadcasts (targetUserId == null) are delivered by every instance to its
+ * local subscribers of the shared destination, e.g. /topic/group/{id}. When the
+ * broadcast carries member ids, each instance also gives a per-user copy to its
+ * connected members that have not subscribed to the topic yet.
+ * Unsubscribe requests drop a user's local subscriptions to a shared destination
+ * on every instance once they are no longer a member.
+ *
+ * In broker relay mode (websocket.broker.mode=relay) the external STOMP broker routes
+ * messages to every instance itself, so sends go straight to the broker and only
+ * unsubscribe requests still travel over Redis.
  */
 @Slf4j
 @Service
@@ -40,8 +61,14 @@ public class RedisMessageRelay implements MessageListener {
     private static final String BROADCAST_CHANNEL = "ws:broadcast";
     private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
 
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    private boolean brokerRelay;
+
     @PostConstruct
     public void init() {
+        brokerRelay = WebSocketConfig.BROKER_MODE_RELAY.equalsIgnoreCase(brokerMode);
         listenerContainer.addMessageListener(this, new ChannelTopic(BROADCAST_CHANNEL));
         log.info("[Relay] Instance {} subscribed to Redis channel: {}", instanceId, BROADCAST_CHANNEL);
     }
@@ -50,11 +77,15 @@ public class RedisMessageRelay implements MessageListener {
      * Broadcast a WebSocket message to all instances via Redis Pub/Sub.
      * Called when the origin instance cannot deliver locally.
      *
-     * @param targetUserId  the target user ID
+     * @param targetUserId  the target user ID, or null for a shared topic broadcast
      * @param destination   the STOMP destination (e.g., /topic/user.123.messages)
      * @param payload       the JSON payload string
      */
     public void broadcast(Long targetUserId, String destination, Object payload) {
+        broadcast(targetUserId, destination, payload, null);
+    }
+
+    private void broadcast(Long targetUserId, String destination, Object payload, Collection<Long> memberIds) {
         try {
             ObjectMapper mapper = new ObjectMapper();
             mapper.registerModule(new JavaTimeModule());
@@ -64,14 +95,19 @@ public class RedisMessageRelay implements MessageListener {
             relayMsg.setTargetUserId(targetUserId);
             relayMsg.setDestination(destination);
             relayMsg.setPayload(mapper.writeValueAsString(payload));
+            relayMsg.setMemberIds(memberIds != null ? List.copyOf(memberIds) : null);
 
-            String json = mapper.writeValueAsString(relayMsg);
-            redisCacheService.publishMessage(BROADCAST_CHANNEL, json);
+            publish(mapper, relayMsg);
         } catch (JsonProcessingException e) {
             log.error("[Relay] Failed to serialize relay message", e);
         }
     }
 
+    private void publish(ObjectMapper mapper, RelayMessage relayMsg) throws JsonProcessingException {
+        String json = mapper.writeValueAsString(relayMsg);
+        redisCacheService.publishMessage(BROADCAST_CHANNEL, json);
+    }
+
     /**
      * Send a message to a user, with automatic cross-instance relay.
      * If the user has a local session, deliver directly.
@@ -80,6 +116,12 @@ public class RedisMessageRelay implements MessageListener {
     public void sendToUser(Long targetUserId, String destination, Object payload) {
         String userIdStr = String.valueOf(targetUserId);
 
+        // External broker routes to whichever instance holds the subscription
+        if (brokerRelay) {
+            messagingTemplate.convertAndSend(destination, payload);
+            return;
+        }
+
         // Check if user has a local STOMP session
         if (userRegistry.getUser(userIdStr) != null) {
             messagingTemplate.convertAndSend(destination, payload);
@@ -89,6 +131,126 @@ public class RedisMessageRelay implements MessageListener {
         }
     }
 
+    /**
+     * Send a message to a shared topic on every instance.
+     * One publish per message regardless of how many members are subscribed.
+     */
+    public void sendToTopic(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+        if (!brokerRelay) {
+            broadcast(null, destination, payload);
+        }
+    }
+
+    /**
+     * Send a message to a shared topic and make sure connected members that are not
+     * subscribed to it yet still get it. A client subscribes to its group topics only
+     * after loading the chat list (or after CHAT_CREATED for a new group), so without
+     * this a message sent in that window would reach neither the topic nor the offline
+     * queue. Such members get a copy on their user channel; clients drop duplicates by id.
+     * Subscriptions are checked on the instance that holds the sessions; in relay mode
+     * the user registry already spans all instances.
+     */
+    public void sendToTopic(String destination, Object payload, Collection<Long> memberIds) {
+        messagingTemplate.convertAndSend(destination, payload);
+        deliverToUnsubscribed(memberIds, destination, payload);
+        if (!brokerRelay) {
+            broadcast(null, destination, payload, memberIds);
+        }
+    }
+
+    /**
+     * Per-user copy for members with a session (local, or cluster-wide in relay mode)
+     * that has no subscription to the destination.
+     */
+    private void deliverToUnsubscribed(Collection<Long> memberIds, String destination, Object payload) {
+        for (Long memberId : memberIds) {
+            SimpUser user = userRegistry.getUser(String.valueOf(memberId));
+            if (user == null || !hasSessionWithoutSubscription(user, destination)) {
+                continue;
+            }
+            messagingTemplate.convertAndSend("/topic/user." + memberId + ".messages", payload);
+            log.debug("[Relay] User {} not yet subscribed to {}, sent to user channel", memberId, destination);
+        }
+    }
+
+    private static boolean hasSessionWithoutSubscription(SimpUser user, String destination) {
+        for (SimpSession session : user.getSessions()) {
+            boolean subscribed = session.getSubscriptions().stream()
+                    .anyMatch(subscription -> destination.equals(subscription.getDestination()));
+            if (!subscribed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove a user's subscriptions to a shared topic on every instance.
+     * Used when a member leaves or is removed from a group so the broker stops
+     * delivering the group's traffic to their sessions.
+     */
+    public void unsubscribeUser(Long userId, String destination) {
+        removeLocalSubscriptions(userId, destination);
+        try {
+            RelayMessage relayMsg = new RelayMessage();
+            relayMsg.setOriginInstance(instanceId);
+            relayMsg.setTargetUserId(userId);
+            relayMsg.setDestination(destination);
+            relayMsg.setUnsubscribe(true);
+            publish(new ObjectMapper(), relayMsg);
+        } catch (JsonProcessingException e) {
+            log.error("[Relay] Failed to serialize unsubscribe request", e);
+        }
+    }
+
+    /**
+     * Remove every subscription to a shared topic on every instance (group deleted).
+     * A single relay request instead of one per member.
+     */
+    public void unsubscribeAll(String destination) {
+        unsubscribeUser(null, destination);
+    }
+
+    /**
+     * Send an UNSUBSCRIBE for each local session of the user subscribed to the destination
+     * (every subscribed session when userId is null).
+     */
+    private void removeLocalSubscriptions(Long userId, String destination) {
+        if (userId == null) {
+            for (SimpSubscription subscription : userRegistry.findSubscriptions(
+                    subscription -> destination.equals(subscription.getDestination()))) {
+                sendUnsubscribe(subscription.getSession(), subscription);
+            }
+            return;
+        }
+        SimpUser user = userRegistry.getUser(String.valueOf(userId));
+        if (user == null) {
+            return;
+        }
+        for (SimpSession session : user.getSessions()) {
+            for (SimpSubscription subscription : session.getSubscriptions()) {
+                if (destination.equals(subscription.getDestination())) {
+                    sendUnsubscribe(session, subscription);
+                }
+            }
+        }
+    }
+
+    /**
+     * The broker drops the subscription exactly as if the client had unsubscribed.
+     */
+    private void sendUnsubscribe(SimpSession session, SimpSubscription subscription) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(session.getId());
+        accessor.setSubscriptionId(subscription.getId());
+        accessor.setLeaveMutable(true);
+        messagingTemplate.getMessageChannel().send(
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+        log.debug("[Relay] Unsubscribed session {} of user {} from {}",
+                session.getId(), session.getUser().getName(), subscription.getDestination());
+    }
+
     /**
      * Redis message listener callback.
      * Called when any instance publishes to ws:broadcast.
@@ -107,6 +269,20 @@ public class RedisMessageRelay implements MessageListener {
                 return;
             }
 
+            if (relayMsg.isUnsubscribe()) {
+                removeLocalSubscriptions(relayMsg.getTargetUserId(), relayMsg.getDestination());
+                return;
+            }
+
+            // Shared topic: the local broker fans out to this instance's subscribers
+            if (relayMsg.getTargetUserId() == null) {
+                messagingTemplate.convertAndSend(relayMsg.getDestination(), relayMsg.getPayload());
+                if (relayMsg.getMemberIds() != null) {
+                    deliverToUnsubscribed(relayMsg.getMemberIds(), relayMsg.getDestination(), relayMsg.getPayload());
+                }
+                return;
+            }
+
             // Check if the target user is connected to THIS instance
             String userIdStr = String.valueOf(relayMsg.getTargetUserId());
             if (userRegistry.getUser(userIdStr) != null) {
@@ -133,5 +309,8 @@ public class RedisMessageRelay implements MessageListener {
         private Long targetUserId;
         private String destination;
         private String payload;
+        private boolean unsubscribe;
+        // Topic broadcasts: members to check for a missing topic subscription
+        private List<Long> memberIds;
     }
 }
@@ -0,0 +1,206 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.Contact;
+import com.nexus.chat.repository.ContactRepository;
+import com.nexus.chat.repository.UserActivityRepository;
+import com.nexus.chat.repository.UserFollowRepository;
+import com.nexus.chat.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 用户推荐服务
+ * 候选来自好友的好友（contacts）和关注的人所关注的人（user_follows），按共同关系数打分，
+ * 近期活跃（user_activities / last_seen）再加分，不足时用活跃用户池补齐。
+ * 每个用户的候选列表计算一次后存入 Redis 有序集合并设置过期时间，之后的请求只读一次 ZREVRANGE；
+ * 活跃用户池每 10 分钟在内存中刷新。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserRecommendationService {
+
+    private static final String CANDIDATES_PREFIX = "user:rec:";
+
+    // 每个用户保存的候选数上限（即单次推荐的最大条数）
+    static final int MAX_CANDIDATES = 100;
+    // 二度关系每类最多取的候选数
+    private static final int RELATION_SCAN_LIMIT = 500;
+    // 活跃用户池大小与统计窗口
+    private static final int ACTIVE_POOL_SIZE = 2000;
+    private static final int ACTIVE_WINDOW_DAYS = 7;
+
+    // 共同好友的权重高于共同关注
+    private static final double CONTACT_WEIGHT = 2.0;
+    private static final double FOLLOW_WEIGHT = 1.0;
+
+    // 没有任何候选时写入的占位成员，避免每次请求都重新计算
+    private static final String EMPTY_MARKER = "0";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ContactRepository contactRepository;
+    private final UserFollowRepository userFollowRepository;
+    private final UserActivityRepository userActivityRepository;
+    private final UserRepository userRepository;
+
+    @Value("${user.recommend.candidate-ttl-minutes:30}")
+    private long candidateTtlMinutes;
+
+    // 近期活跃用户，按最近活跃时间倒序
+    private volatile ActivePool activePool = new ActivePool(List.of(), Map.of());
+
+    /**
+     * 获取推荐用户ID（已排除自己和已有联系人）
+     */
+    public List<Long> getRecommendedUserIds(Long userId, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_CANDIDATES);
+        String key = CANDIDATES_PREFIX + userId;
+        try {
+            Set<String> cached = stringRedisTemplate.opsForZSet().reverseRange(key, 0, size - 1);
+            if (cached != null && !cached.isEmpty()) {
+                return cached.stream()
+                        .filter(member -> !EMPTY_MARKER.equals(member))
+                        .map(Long::parseLong)
+                        .toList();
+            }
+        } catch (Exception e) {
+            log.warn("读取推荐候选失败, 直接计算: userId={}, error={}", userId, e.getMessage());
+            return topIds(computeCandidates(userId), size);
+        }
+
+        Map<Long, Double> candidates = computeCandidates(userId);
+        storeCandidates(key, candidates);
+        return topIds(candidates, size);
+    }
+
+    /**
+     * 联系人变化后清除候选，下次请求重新计算
+     */
+    public void evict(Long... userIds) {
+        try {
+            stringRedisTemplate.delete(Arrays.stream(userIds).map(id -> CANDIDATES_PREFIX + id).toList());
+        } catch (Exception e) {
+            log.warn("清除推荐候选失败: userIds={}, error={}", Arrays.toString(userIds), e.getMessage());
+        }
+    }
+
+    private Map<Long, Double> computeCandidates(Long userId) {
+        Set<Long> excluded = contactRepository.findByUserId(userId).stream()
+                .map(Contact::getContactUserId)
+                .collect(Collectors.toCollection(HashSet::new));
+        excluded.add(userId);
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (Object[] row : contactRepository.findFriendsOfFriends(userId, RELATION_SCAN_LIMIT)) {
+            scores.merge(((Number) row[0]).longValue(), CONTACT_WEIGHT * ((Number) row[1]).doubleValue(), Double::sum);
+        }
+        for (Object[] row : userFollowRepository.findFollowsOfFollows(userId, RELATION_SCAN_LIMIT)) {
+            scores.merge(((Number) row[0]).longValue(), FOLLOW_WEIGHT * ((Number) row[1]).doubleValue(), Double::sum);
+        }
+        scores.keySet().removeAll(excluded);
+
+        // 近期活跃加分（0~1，一周内线性衰减）
+        ActivePool pool = activePool;
+        LocalDateTime now = LocalDateTime.now();
+        scores.replaceAll((candidateId, score) -> score + recencyBonus(pool.lastActive().get(candidateId), now));
+
+        // 二度关系不足时用活跃用户补齐
+        for (Long activeUserId : pool.userIds()) {
+            if (scores.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            if (!excluded.contains(activeUserId)) {
+                scores.putIfAbsent(activeUserId, recencyBonus(pool.lastActive().get(activeUserId), now));
+            }
+        }
+        return scores;
+    }
+
+    private static double recencyBonus(LocalDateTime lastActive, LocalDateTime now) {
+        if (lastActive == null) {
+            return 0;
+        }
+        double hours = Duration.between(lastActive, now).toMinutes() / 60.0;
+        return Math.max(0, 1 - hours / (ACTIVE_WINDOW_DAYS * 24));
+    }
+
+    private static List<Long> topIds(Map<Long, Double> candidates, int size) {
+        return candidates.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(size)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private void storeCandidates(String key, Map<Long, Double> candidates) {
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            for (Long candidateId : topIds(candidates, MAX_CANDIDATES)) {
+                tuples.add(ZSetOperations.TypedTuple.of(String.valueOf(candidateId), candidates.get(candidateId)));
+            }
+            if (tuples.isEmpty()) {
+                tuples.add(ZSetOperations.TypedTuple.of(EMPTY_MARKER, -1.0));
+            }
+            stringRedisTemplate.opsForZSet().add(key, tuples);
+            stringRedisTemplate.expire(key, Duration.ofMinutes(candidateTtlMinutes));
+        } catch (Exception e) {
+            log.warn("保存推荐候选失败: key={}, error={}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 每 10 分钟刷新活跃用户池（启动 10 秒后首次执行）
+     */
+    @Scheduled(initialDelayString = "${user.recommend.initial-delay-ms:10000}",
+               fixedDelayString = "${user.recommend.refresh-interval-ms:600000}")
+    public void refreshActivePool() {
+        try {
+            LocalDateTime since = LocalDateTime.now().minusDays(ACTIVE_WINDOW_DAYS);
+            LocalDateTime now = LocalDateTime.now();
+            PageRequest limit = PageRequest.of(0, ACTIVE_POOL_SIZE);
+
+            Map<Long, LocalDateTime> lastActive = new HashMap<>();
+            for (Object[] row : userActivityRepository.findLastActivitySince(since, limit)) {
+                lastActive.merge((Long) row[0], (LocalDateTime) row[1], this::later);
+            }
+            for (Object[] row : userRepository.findRecentlySeen(since, limit)) {
+                // 在线用户视为此刻活跃
+                LocalDateTime seen = Boolean.TRUE.equals(row[2]) ? now : (LocalDateTime) row[1];
+                if (seen != null) {
+                    lastActive.merge((Long) row[0], seen, this::later);
+                }
+            }
+
+            List<Long> userIds = lastActive.entrySet().stream()
+                    .sorted(Map.Entry.<Long, LocalDateTime>comparingByValue().reversed())
+                    .limit(ACTIVE_POOL_SIZE)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            Map<Long, LocalDateTime> retained = new HashMap<>();
+            userIds.forEach(id -> retained.put(id, lastActive.get(id)));
+
+            activePool = new ActivePool(userIds, retained);
+            log.debug("活跃用户池已刷新: {} 人", userIds.size());
+        } catch (Exception e) {
+            log.error("刷新活跃用户池失败", e);
+        }
+    }
+
+    private LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private record ActivePool(List<Long> userIds, Map<Long, LocalDateTime> lastActive) {
+    }
+}
@@ -8,21 +8,21 @@ import com.nexus.chat.model.UserSocialLink;
 import com.nexus.chat.model.UserSecuritySettings;
 import com.nexus.chat.model.UserActivity;
 import com.nexus.chat.repository.*;
+import com.nexus.chat.search.UserSearchService;
+import com.nexus.chat.storage.BlobStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -41,9 +41,16 @@ public class UserService {
     private final UserActivityRepository activityRepository;
     private final UserFollowRepository userFollowRepository;
     private final PostRepository postRepository;
+    private final UserSearchService userSearchService;
+    private final UserRecommendationService userRecommendationService;
+    private final ActivityTimelineService activityTimelineService;
+    private final AvatarService avatarService;
+    private final BlobStore blobStore;
 
-    // Avatar upload directory (can be configured)
-    private static final String AVATAR_UPLOAD_DIR = "uploads/avatars/";
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    // Files from before content-addressed avatars: uploads/avatars/avatar_{userId}_{uuid}.ext
+    private static final String LEGACY_AVATAR_PREFIX = "/uploads/avatars/avatar_";
 
     public UserDTO getUserById(Long id) {
         User user = userRepository.findById(id)
@@ -72,7 +79,7 @@ public class UserService {
             user.setNickname(nickname);
         }
         if (avatarUrl != null) {
-            user.setAvatarUrl(avatarUrl);
+            user.setAvatarUrl(avatarService.normalize(avatarUrl));
         }
 
         User updated = userRepository.save(user);
@@ -224,28 +231,12 @@ public class UserService {
             throw new BusinessException("error.user.file.image.only");
         }
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".png";
-        String filename = "avatar_" + userId + "_" + UUID.randomUUID().toString() + extension;
-
-        // Create upload directory if not exists
-        Path uploadPath = Paths.get(AVATAR_UPLOAD_DIR);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        // Resized and stored by content hash; the URL changes whenever the image does
+        String avatarUrl;
+        try (InputStream input = file.getInputStream()) {
+            avatarUrl = avatarService.store(input);
         }
-
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        // Update user avatar URL
-        String avatarUrl = "/uploads/avatars/" + filename;
-        user.setAvatarUrl(avatarUrl);
-        userRepository.save(user);
-
+        replaceAvatar(user, avatarUrl);
         return avatarUrl;
     }
 
@@ -257,12 +248,10 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new BusinessException("error.user.not.found"));
 
-        // For simplicity, store Base64 directly (suitable for smaller images)
-        // In production, consider decoding and saving as file
-        user.setAvatarUrl(base64Image);
-        userRepository.save(user);
-
-        return base64Image;
+        // Decoded and stored as a file; only the short URL goes into the users row
+        String avatarUrl = avatarService.storeBase64(base64Image);
+        replaceAvatar(user, avatarUrl);
+        return avatarUrl;
     }
 
     /**
@@ -273,19 +262,25 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new BusinessException("error.user.not.found"));
 
-        // Delete old file if it's a path
+        replaceAvatar(user, null);
+    }
+
+    /**
+     * Set a new avatar URL and delete the previous file if it was a per-user legacy upload.
+     * Content-addressed avatars may be shared by several users and chats, so they are kept.
+     */
+    private void replaceAvatar(User user, String avatarUrl) {
         String oldAvatar = user.getAvatarUrl();
-        if (oldAvatar != null && oldAvatar.startsWith("/uploads/")) {
+        user.setAvatarUrl(avatarUrl);
+        userRepository.save(user);
+
+        if (oldAvatar != null && oldAvatar.startsWith(LEGACY_AVATAR_PREFIX) && !oldAvatar.equals(avatarUrl)) {
             try {
-                Path oldPath = Paths.get(oldAvatar.substring(1));
-                Files.deleteIfExists(oldPath);
+                blobStore.delete(oldAvatar.substring("/uploads/".length()));
             } catch (IOException e) {
                 // Ignore deletion errors
             }
         }
-
-        user.setAvatarUrl(null);
-        userRepository.save(user);
     }
 
     /**
@@ -347,16 +342,25 @@ public class UserService {
     }
 
     /**
-     * Search users by query
+     * Search users by query, top {@code limit} results.
+     * Online status and last seen follow each user's privacy settings.
      */
-    public List<UserDTO> searchUsers(String query) {
+    public List<UserDTO> searchUsers(String query, int limit) {
         if (query == null || query.trim().isEmpty()) {
             return List.of();
         }
 
-        List<User> users = userRepository.searchUsers(query.trim());
+        int size = Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS);
+        List<User> users = userSearchService.search(query.trim(), size);
+        if (users.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, UserPrivacySettings> privacyMap = privacySettingsRepository
+                .findByUserIdIn(users.stream().map(User::getId).toList()).stream()
+                .collect(Collectors.toMap(UserPrivacySettings::getUserId, p -> p));
         return users.stream()
-                .map(this::mapToDTO)
+                .map(user -> mapToDTOWithPrivacy(user, privacyMap.get(user.getId())))
                 .collect(Collectors.toList());
     }
 
@@ -364,8 +368,12 @@ public class UserService {
      * Get recommended users
      */
     public List<UserDTO> getRecommendedUsers(Long userId, int limit) {
-        List<User> users = userRepository.findRecommendedUsers(userId, limit);
-        return users.stream()
+        List<Long> ids = userRecommendationService.getRecommendedUserIds(userId, limit);
+        Map<Long, User> usersById = userRepository.findAllByIdIn(ids).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+        return ids.stream()
+                .map(usersById::get)
+                .filter(user -> user != null)
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
     }
@@ -397,6 +405,17 @@ public class UserService {
                 user.getLastSeen());
     }
 
+    private UserDTO mapToDTOWithPrivacy(User user, UserPrivacySettings privacy) {
+        UserDTO dto = mapToDTO(user);
+        if (privacy != null && !privacy.getShowOnlineStatus()) {
+            dto.setIsOnline(null);
+        }
+        if (privacy != null && !privacy.getShowLastSeen()) {
+            dto.setLastSeen(null);
+        }
+        return dto;
+    }
+
     /**
      * Get social links as a map
      */
@@ -491,20 +510,15 @@ public class UserService {
      */
     public List<ActivityDTO> getUserActivities(Long userId, int limit) {
         List<UserActivity> activities = activityRepository.findRecentByUserId(userId, limit);
-        return activities.stream()
-                .map(this::mapActivityToDTO)
-                .collect(Collectors.toList());
+        return mapActivitiesToDTOs(activities);
     }
 
     /**
      * Get friend activities (activity feed)
      */
     public List<ActivityDTO> getFriendActivities(Long userId, int limit) {
-        org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(0, limit);
-        List<UserActivity> activities = activityRepository.findFriendActivities(userId, pageable);
-        return activities.stream()
-                .map(this::mapActivityToDTO)
-                .collect(Collectors.toList());
+        List<UserActivity> activities = activityTimelineService.getTimeline(userId, Math.max(limit, 1));
+        return mapActivitiesToDTOs(activities);
     }
 
     /**
@@ -517,26 +531,47 @@ public class UserService {
         activity.setActivityType(activityType);
         activity.setDescription(description);
         activity.setRelatedId(relatedId);
-        activityRepository.save(activity);
+        UserActivity saved = activityRepository.save(activity);
+
+        // Push to friends' timelines once the activity is committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    activityTimelineService.fanOut(saved);
+                }
+            });
+        } else {
+            activityTimelineService.fanOut(saved);
+        }
+    }
+
+    /**
+     * Map activities to ActivityDTOs, loading all referenced users in one query
+     */
+    private List<ActivityDTO> mapActivitiesToDTOs(List<UserActivity> activities) {
+        if (activities.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UserDTO> usersById = userRepository.findAllByIdIn(
+                        activities.stream().map(UserActivity::getUserId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(User::getId, this::mapToDTO));
+        return activities.stream()
+                .map(activity -> mapActivityToDTO(activity, usersById.get(activity.getUserId())))
+                .collect(Collectors.toList());
     }
 
     /**
      * Map UserActivity to ActivityDTO
      */
-    private ActivityDTO mapActivityToDTO(UserActivity activity) {
+    private ActivityDTO mapActivityToDTO(UserActivity activity, UserDTO user) {
         ActivityDTO dto = new ActivityDTO();
         dto.setId(activity.getId());
         dto.setActivityType(activity.getActivityType().name());
         dto.setDescription(activity.getDescription());
         dto.setRelatedId(activity.getRelatedId());
         dto.setCreatedAt(activity.getCreatedAt());
-
-        // Get user info
-        userRepository.findById(activity.getUserId()).ifPresent(user -> {
-            UserDTO userDTO = mapToDTO(user);
-            dto.setUser(userDTO);
-        });
-
+        dto.setUser(user);
         return dto;
     }
 
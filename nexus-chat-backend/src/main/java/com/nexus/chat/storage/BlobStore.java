@@ -0,0 +1,68 @@
+package com.nexus.chat.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 文件存储后端
+ * key 为相对路径（如 blobs/ab/cd/{sha256}、variants/ab/{sha256}/w480.jpg、avatars/ab/{sha256}.jpg），
+ * 本地存储对应 uploads/ 下的文件，S3 存储对应存储桶中的对象。
+ * 支持预签名的后端由客户端直接上传和下载，文件内容不经过后端。
+ */
+public interface BlobStore {
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * 对象大小和 SHA-256（后端未记录校验和时为 null），不存在时为空
+     */
+    Optional<ObjectInfo> stat(String key) throws IOException;
+
+    /**
+     * 写入本地文件，完成后 source 不再保留（本地存储直接移动）；读取方不会看到写了一半的对象
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    /**
+     * 删除对象（不存在时为空操作）
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * 删除 prefix/ 下的所有对象
+     */
+    void deleteDirectory(String prefix) throws IOException;
+
+    void move(String sourceKey, String targetKey) throws IOException;
+
+    /**
+     * 对象在本地文件系统中的路径，只有本地存储可用（用于 sendfile 和硬链接）
+     */
+    Optional<Path> localPath(String key);
+
+    /**
+     * 预签名下载地址；不支持预签名时为空，由后端读取并返回
+     */
+    Optional<URI> presignDownload(String key, String contentType, String contentDisposition, Duration ttl);
+
+    /**
+     * 预签名上传地址，限定大小和 SHA-256，存储端校验不符时拒绝写入；不支持预签名时为空
+     */
+    Optional<PresignedUpload> presignUpload(String key, String contentType, long size, String sha256, Duration ttl);
+
+    record ObjectInfo(long size, String sha256) {
+    }
+
+    /**
+     * 客户端需用 PUT 请求上传，并原样携带 headers
+     */
+    record PresignedUpload(URI url, Map<String, String> headers) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.nexus.chat.storage;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * S3 兼容对象存储（AWS S3、MinIO 等）
+ * 下载和直传通过预签名 URL 完成，后端只签名不转发内容；上传时签入 x-amz-checksum-sha256，
+ * 存储端按该值校验内容，HEAD 时取回校验和即可得到内容哈希，无需后端重新读取。
+ */
+public class S3BlobStore implements BlobStore, Closeable {
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+
+    public S3BlobStore(S3Client client, S3Presigner presigner, String bucket) {
+        this.client = client;
+        this.presigner = presigner;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(builder -> builder
+                    .bucket(bucket).key(key).checksumMode(ChecksumMode.ENABLED));
+            String checksum = head.checksumSHA256();
+            // 分段上传的对象校验和带 "-N" 后缀，不是整体内容的哈希
+            String sha256 = checksum != null && !checksum.contains("-")
+                    ? HexFormat.of().formatHex(Base64.getDecoder().decode(checksum))
+                    : null;
+            return Optional.of(new ObjectInfo(head.contentLength(), sha256));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("S3 head failed: " + key, e);
+        } catch (SdkException e) {
+            throw new IOException("S3 head failed: " + key, e);
+        }
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        try {
+            client.putObject(builder -> builder.bucket(bucket).key(key).contentType(contentType)
+                            .checksumAlgorithm(ChecksumAlgorithm.SHA256),
+                    RequestBody.fromFile(source));
+        } catch (SdkException e) {
+            throw new IOException("S3 put failed: " + key, e);
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return client.getObject(builder -> builder.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("S3 get failed: " + key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(builder -> builder.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("S3 delete failed: " + key, e);
+        }
+    }
+
+    @Override
+    public void deleteDirectory(String prefix) throws IOException {
+        try {
+            List<ObjectIdentifier> batch = new ArrayList<>();
+            for (S3Object object : client.listObjectsV2Paginator(builder -> builder
+                    .bucket(bucket).prefix(prefix + "/")).contents()) {
+                batch.add(ObjectIdentifier.builder().key(object.key()).build());
+                if (batch.size() == DELETE_BATCH_SIZE) {
+                    deleteObjects(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleteObjects(batch);
+            }
+        } catch (SdkException e) {
+            throw new IOException("S3 delete failed: " + prefix + "/", e);
+        }
+    }
+
+    private void deleteObjects(List<ObjectIdentifier> objects) {
+        client.deleteObjects(builder -> builder.bucket(bucket)
+                .delete(delete -> delete.objects(objects).quiet(true)));
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        try {
+            // 服务端复制，内容不经过后端
+            client.copyObject(builder -> builder
+                    .sourceBucket(bucket).sourceKey(sourceKey)
+                    .destinationBucket(bucket).destinationKey(targetKey)
+                    .checksumAlgorithm(ChecksumAlgorithm.SHA256));
+            client.deleteObject(builder -> builder.bucket(bucket).key(sourceKey));
+        } catch (SdkException e) {
+            throw new IOException("S3 move failed: " + sourceKey + " -> " + targetKey, e);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URI> presignDownload(String key, String contentType, String contentDisposition, Duration ttl) {
+        URL url = presigner.presignGetObject(request -> request
+                .signatureDuration(ttl)
+                .getObjectRequest(get -> get.bucket(bucket).key(key)
+                        .responseContentType(contentType)
+                        .responseContentDisposition(contentDisposition)))
+                .url();
+        return Optional.of(URI.create(url.toString()));
+    }
+
+    @Override
+    public Optional<PresignedUpload> presignUpload(String key, String contentType, long size, String sha256,
+                                                   Duration ttl) {
+        String checksum = Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256));
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(request -> request
+                .signatureDuration(ttl)
+                .putObjectRequest(put -> put.bucket(bucket).key(key)
+                        .contentType(contentType)
+                        .contentLength(size)
+                        .checksumSHA256(checksum)));
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            // Host 和 Content-Length 由客户端自动设置（浏览器也不允许脚本设置）
+            if (!name.equalsIgnoreCase("host") && !name.equalsIgnoreCase("content-length") && !values.isEmpty()) {
+                headers.put(name, values.get(0));
+            }
+        });
+        return Optional.of(new PresignedUpload(URI.create(presigned.url().toString()), headers));
+    }
+
+    @Override
+    public void close() {
+        presigner.close();
+        client.close();
+    }
+}
@@ -0,0 +1,101 @@
+package com.nexus.chat.websocket;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Striped executor for chat sends: every chatId maps to one single-threaded lane.
+ *
+ * Sequence allocation, persistence and delivery for a chat run one after another on
+ * the same lane, so recipients on this instance see messages in sequence order without
+ * a global lock. Different chats spread across lanes and run in parallel.
+ *
+ * Each lane has a bounded queue; when it is full the send is rejected and the caller
+ * reports MESSAGE_DELIVERY_FAILED to the sender instead of queueing without limit.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatLaneExecutor {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${websocket.lanes.count:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}")
+    private int laneCount;
+
+    @Value("${websocket.lanes.queue-capacity:500}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor[] lanes;
+
+    @PostConstruct
+    public void init() {
+        lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String threadName = "chat-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+        Gauge.builder("websocket.lanes.queued", this, ChatLaneExecutor::queuedTasks)
+                .description("Sends waiting in chat lanes")
+                .register(meterRegistry);
+        log.info("聊天发送通道已初始化: {} 条, 每条队列容量 {}", laneCount, queueCapacity);
+    }
+
+    /**
+     * Run a task on the lane owning the chat.
+     *
+     * @return false if the lane is saturated and the task was not accepted
+     */
+    public boolean execute(Long chatId, Runnable task) {
+        ThreadPoolExecutor lane = lanes[Math.floorMod(Long.hashCode(chatId), laneCount)];
+        try {
+            lane.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("聊天发送通道已满: chatId={}, queued={}", chatId, lane.getQueue().size());
+            return false;
+        }
+    }
+
+    private double queuedTasks() {
+        return Arrays.stream(lanes).mapToInt(lane -> lane.getQueue().size()).sum();
+    }
+
+    /**
+     * Let queued sends finish so accepted messages are still persisted and delivered.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                if (!lane.awaitTermination(5, TimeUnit.SECONDS)) {
+                    log.warn("聊天发送通道关闭超时, 丢弃 {} 个任务", lane.shutdownNow().size());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
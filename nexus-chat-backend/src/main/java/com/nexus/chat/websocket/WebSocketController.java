@@ -2,6 +2,7 @@ package com.nexus.chat.websocket;
 
 import com.nexus.chat.config.MessageValidationInterceptor;
 import com.nexus.chat.dto.*;
+import com.nexus.chat.model.Chat;
 import com.nexus.chat.model.ChatMember;
 import com.nexus.chat.model.Message;
 import com.nexus.chat.repository.ChatMemberRepository;
@@ -15,6 +16,7 @@ import org.springframework.stereotype.Controller;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * WebSocket Controller for real-time messaging and events.
@@ -24,8 +26,15 @@ import java.util.Map;
  * - ACK mechanism: server sends MESSAGE_ACK back to sender
  * - Offline queue: messages queued in Redis when recipient is offline
  * - Sequence numbers: monotonic ordering per chat
+ * - Per-chat lanes: sends for one chat are processed in order on one ChatLaneExecutor lane
  * - Typing indicators via user channel (not chat topic)
  * - XSS sanitization on message content
+ *
+ * Group traffic (messages, typing, read receipts, member events) is published once to
+ * the shared /topic/group/{id}, which members may subscribe to after the membership
+ * check in WebSocketAuthChannelInterceptor. Only offline group members get a
+ * per-user copy in the offline queue. Channels (broadcast chats) use the same topic;
+ * offline members pull missed messages on reconnect instead of using the offline queue.
  */
 @Slf4j
 @Controller
@@ -34,13 +43,15 @@ public class WebSocketController {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final MessageService messageService;
-    private final UserService userService;
+    private final ChatService chatService;
     private final ContactService contactService;
     private final GroupService groupService;
     private final ChatMemberRepository chatMemberRepository;
     private final PresenceService presenceService;
     private final RedisCacheService redisCacheService;
     private final RedisMessageRelay redisMessageRelay;
+    private final GroupMessageDeliveryService groupMessageDeliveryService;
+    private final ChatLaneExecutor chatLaneExecutor;
 
     /**
      * Handle sending chat messages (direct and group).
@@ -49,6 +60,24 @@ public class WebSocketController {
      */
     @MessageMapping("/chat.sendMessage")
     public void sendMessage(@Payload Map<String, Object> payload) {
+        Long chatId;
+        try {
+            chatId = Long.valueOf(payload.get("chatId").toString());
+        } catch (Exception e) {
+            log.error("发送消息失败: 无效的 chatId={}", payload.get("chatId"));
+            return;
+        }
+        // Same chat -> same lane: sequence allocation, persistence and delivery stay in order
+        if (!chatLaneExecutor.execute(chatId, () -> processSendMessage(payload))) {
+            sendDeliveryFailed(chatId, payload.get("senderId"), clientMsgId(payload),
+                    "Chat is busy, please retry");
+        }
+    }
+
+    /**
+     * Persist and deliver one chat message. Runs on the chat's lane.
+     */
+    private void processSendMessage(Map<String, Object> payload) {
         Long chatId = null;
         Long senderId = null;
         String clientMsgId = null;
@@ -58,7 +87,7 @@ public class WebSocketController {
             String content = (String) payload.get("content");
             String messageTypeStr = (String) payload.get("messageType");
             String fileUrl = (String) payload.get("fileUrl");
-            clientMsgId = (String) payload.get("clientMsgId");
+            clientMsgId = clientMsgId(payload);
 
             // Sanitize content to prevent XSS
             if (content != null) {
@@ -91,6 +120,12 @@ public class WebSocketController {
             messagingTemplate.convertAndSend(
                     "/topic/user." + senderId + ".messages", ackMessage);
 
+            if (message.getChatType() != Chat.ChatType.direct) {
+                // Group/channel: one publish to the shared topic, no per-member fan-out
+                groupMessageDeliveryService.deliver(chatId, senderId, message.getChatType(), wsMessage);
+                return;
+            }
+
             // Deliver to each member (unified channel - no more /topic/chat/{id})
             List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
             for (ChatMember member : members) {
@@ -106,17 +141,33 @@ public class WebSocketController {
             }
         } catch (Exception e) {
             log.error("发送消息失败: chatId={}, senderId={}", chatId, senderId, e);
-            if (senderId != null) {
-                WebSocketMessage errorMsg = new WebSocketMessage(
-                        WebSocketMessage.MessageType.MESSAGE_DELIVERY_FAILED,
-                        Map.of("chatId", chatId != null ? chatId : 0,
-                               "clientMsgId", clientMsgId != null ? clientMsgId : "",
-                               "error", e.getMessage() != null ? e.getMessage() : "Unknown error"));
-                messagingTemplate.convertAndSend("/topic/user." + senderId + ".messages", errorMsg);
-            }
+            sendDeliveryFailed(chatId, senderId, clientMsgId,
+                    e.getMessage() != null ? e.getMessage() : "Unknown error");
         }
     }
 
+    /**
+     * Client message id as a string; clients may send it as a number.
+     */
+    private static String clientMsgId(Map<String, Object> payload) {
+        return Objects.toString(payload.get("clientMsgId"), null);
+    }
+
+    /**
+     * Tell the sender their message was not delivered (validation error, lane saturated, ...).
+     */
+    private void sendDeliveryFailed(Long chatId, Object senderId, String clientMsgId, String error) {
+        if (senderId == null) {
+            return;
+        }
+        WebSocketMessage errorMsg = new WebSocketMessage(
+                WebSocketMessage.MessageType.MESSAGE_DELIVERY_FAILED,
+                Map.of("chatId", chatId != null ? chatId : 0,
+                       "clientMsgId", clientMsgId != null ? clientMsgId : "",
+                       "error", error));
+        messagingTemplate.convertAndSend("/topic/user." + senderId + ".messages", errorMsg);
+    }
+
     /**
      * Handle user status updates (online/offline).
      * Uses Redis Presence instead of MySQL.
@@ -162,6 +213,12 @@ public class WebSocketController {
             Long userId = Long.valueOf(payload.get("userId").toString());
             Boolean isTyping = (Boolean) payload.get("isTyping");
 
+            // No typing indicators in broadcast channels
+            Chat.ChatType chatType = chatService.getChatType(chatId);
+            if (chatType == Chat.ChatType.channel) {
+                return;
+            }
+
             WebSocketMessage wsMessage = new WebSocketMessage(
                     WebSocketMessage.MessageType.TYPING,
                     Map.of("chatId", chatId, "userId", userId, "isTyping", isTyping));
@@ -171,6 +228,12 @@ public class WebSocketController {
                 redisCacheService.setTyping(chatId, userId);
             }
 
+            // Groups: shared topic, clients drop their own echo
+            if (chatType == Chat.ChatType.group) {
+                redisMessageRelay.sendToTopic("/topic/group/" + chatId, wsMessage);
+                return;
+            }
+
             // Broadcast to chat members via user channel (relay-aware)
             List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
             for (ChatMember member : members) {
@@ -196,10 +259,21 @@ public class WebSocketController {
                     ? Long.valueOf(payload.get("messageId").toString())
                     : null;
 
+            // Channel reads only move the reader's cursor; receipts are not broadcast
+            Chat.ChatType chatType = chatService.getChatType(chatId);
+            if (chatType == Chat.ChatType.channel) {
+                return;
+            }
+
             WebSocketMessage wsMessage = new WebSocketMessage(
                     WebSocketMessage.MessageType.MESSAGE_READ,
                     Map.of("chatId", chatId, "userId", userId, "messageId", messageId != null ? messageId : "all"));
 
+            if (chatType == Chat.ChatType.group) {
+                redisMessageRelay.sendToTopic("/topic/group/" + chatId, wsMessage);
+                return;
+            }
+
             // Deliver read receipt to chat members via user channel (relay-aware)
             List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
             for (ChatMember member : members) {
@@ -277,18 +351,8 @@ public class WebSocketController {
             Long userId = Long.valueOf(payload.get("userId").toString());
             Long adminUserId = Long.valueOf(payload.get("adminUserId").toString());
 
+            // GroupService broadcasts GROUP_MEMBER_JOINED on the group topic
             groupService.addMembers(groupId, adminUserId, List.of(userId));
-
-            UserDTO user = userService.getUserById(userId);
-            WebSocketMessage wsMessage = new WebSocketMessage(
-                    WebSocketMessage.MessageType.GROUP_MEMBER_JOINED,
-                    Map.of("groupId", groupId, "user", user));
-
-            // Broadcast to group members via user channel (relay-aware)
-            List<ChatMember> members = chatMemberRepository.findByChatId(groupId);
-            for (ChatMember member : members) {
-                sendToUserChannel(member.getUserId(), wsMessage);
-            }
         } catch (Exception e) {
             log.error("加入群组失败: groupId={}, userId={}", payload.get("groupId"), payload.get("userId"), e);
         }
@@ -303,19 +367,9 @@ public class WebSocketController {
             Long groupId = Long.valueOf(payload.get("groupId").toString());
             Long userId = Long.valueOf(payload.get("userId").toString());
 
-            // Get members before leaving
-            List<ChatMember> members = chatMemberRepository.findByChatId(groupId);
-
+            // GroupService broadcasts GROUP_MEMBER_LEFT on the group topic, then
+            // drops the leaver's subscription
             groupService.leaveGroup(groupId, userId);
-
-            WebSocketMessage wsMessage = new WebSocketMessage(
-                    WebSocketMessage.MessageType.GROUP_MEMBER_LEFT,
-                    Map.of("groupId", groupId, "userId", userId));
-
-            // Notify remaining members via user channel (relay-aware)
-            for (ChatMember member : members) {
-                sendToUserChannel(member.getUserId(), wsMessage);
-            }
         } catch (Exception e) {
             log.error("离开群组失败: groupId={}, userId={}", payload.get("groupId"), payload.get("userId"), e);
         }
@@ -326,12 +380,26 @@ public class WebSocketController {
      */
     @MessageMapping("/group.message")
     public void sendGroupMessage(@Payload Map<String, Object> payload) {
+        Long groupId;
+        try {
+            groupId = Long.valueOf(payload.get("groupId").toString());
+        } catch (Exception e) {
+            log.error("发送群组消息失败: 无效的 groupId={}", payload.get("groupId"));
+            return;
+        }
+        if (!chatLaneExecutor.execute(groupId, () -> processGroupMessage(payload))) {
+            sendDeliveryFailed(groupId, payload.get("senderId"), clientMsgId(payload),
+                    "Chat is busy, please retry");
+        }
+    }
+
+    private void processGroupMessage(Map<String, Object> payload) {
         try {
             Long groupId = Long.valueOf(payload.get("groupId").toString());
             Long senderId = Long.valueOf(payload.get("senderId").toString());
             String content = (String) payload.get("content");
             String messageTypeStr = (String) payload.get("messageType");
-            String clientMsgId = (String) payload.get("clientMsgId");
+            String clientMsgId = clientMsgId(payload);
 
             // Sanitize content
             if (content != null) {
@@ -349,15 +417,7 @@ public class WebSocketController {
                     WebSocketMessage.MessageType.CHAT_MESSAGE,
                     message);
 
-            // Deliver to all group members via user channel (relay-aware)
-            List<ChatMember> members = chatMemberRepository.findByChatId(groupId);
-            for (ChatMember member : members) {
-                if (presenceService.isUserOnline(member.getUserId())) {
-                    sendToUserChannel(member.getUserId(), wsMessage);
-                } else {
-                    redisCacheService.queueOfflineMessage(member.getUserId(), wsMessage);
-                }
-            }
+            groupMessageDeliveryService.deliver(groupId, senderId, message.getChatType(), wsMessage);
         } catch (Exception e) {
             log.error("发送群组消息失败: groupId={}, senderId={}", payload.get("groupId"), payload.get("senderId"), e);
         }
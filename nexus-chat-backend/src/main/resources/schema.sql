@@ -47,7 +47,7 @@ CREATE TABLE IF NOT EXISTS contacts (
 -- Chats Table (supports both direct and group chats)
 CREATE TABLE IF NOT EXISTS chats (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    type ENUM('direct', 'group') NOT NULL,
+    type ENUM('direct', 'group', 'channel') NOT NULL,
     name VARCHAR(100),
     description VARCHAR(200) DEFAULT NULL,
     avatar_url MEDIUMTEXT,
@@ -71,6 +71,7 @@ CREATE TABLE IF NOT EXISTS chat_members (
     is_admin BOOLEAN DEFAULT FALSE,
     joined_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     unread_count INT DEFAULT 0,
+    last_read_seq BIGINT DEFAULT 0,
     FOREIGN KEY (chat_id) REFERENCES chats(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     UNIQUE KEY unique_chat_member (chat_id, user_id),
@@ -92,6 +93,7 @@ CREATE TABLE IF NOT EXISTS messages (
     FOREIGN KEY (chat_id) REFERENCES chats(id) ON DELETE CASCADE,
     FOREIGN KEY (sender_id) REFERENCES users(id) ON DELETE CASCADE,
     INDEX idx_chat_id_created_at (chat_id, created_at),
+    INDEX idx_chat_id_seq (chat_id, sequence_number),
     INDEX idx_sender_id (sender_id),
     UNIQUE INDEX idx_messages_client_msg_id (client_message_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -288,3 +290,118 @@ CREATE TABLE IF NOT EXISTS file_uploads (
   -- ALTER TABLE messages ADD COLUMN sequence_number BIGINT DEFAULT NULL;
   -- ALTER TABLE messages ADD COLUMN client_message_id VARCHAR(36) DEFAULT NULL;
   -- CREATE UNIQUE INDEX idx_messages_client_msg_id ON messages(client_message_id);
+
+  -- ============================================
+  -- 12. Broadcast channels (read cursors instead of per-message read rows)
+  -- ============================================
+  -- Migration for existing databases:
+  -- ALTER TABLE chats MODIFY COLUMN type ENUM('direct', 'group', 'channel') NOT NULL;
+  -- ALTER TABLE chat_members ADD COLUMN last_read_seq BIGINT DEFAULT 0;
+  -- CREATE INDEX idx_chat_id_seq ON messages(chat_id, sequence_number);
+
+  -- ============================================
+  -- 13. Post full-text search (ngram parser for CJK)
+  -- ============================================
+  -- Created automatically on startup by PostSearchIndex when missing.
+  -- Manual equivalent:
+  -- CREATE FULLTEXT INDEX ft_posts_title_content ON posts (title, content) WITH PARSER ngram;
+
+  -- ============================================
+  -- 14. User name search (ngram parser, prefix/infix on username and nickname)
+  -- ============================================
+  -- Created automatically on startup by UserSearchIndex when missing.
+  -- idx_search above uses the default parser and is not used by search.
+  -- Manual equivalent:
+  -- CREATE FULLTEXT INDEX ft_users_name ON users (username, nickname) WITH PARSER ngram;
+
+  -- ============================================
+  -- 15. Resumable chunked uploads
+  -- ============================================
+  -- Created automatically by Hibernate (ddl-auto=update). Manual equivalent:
+  -- ALTER TABLE file_uploads ADD COLUMN chunk_size BIGINT DEFAULT NULL;
+  -- CREATE TABLE file_upload_chunks (
+  --     id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  --     file_id VARCHAR(36) NOT NULL,
+  --     chunk_index INT NOT NULL,
+  --     size BIGINT NOT NULL,
+  --     created_at DATETIME(6),
+  --     UNIQUE KEY uk_file_upload_chunk (file_id, chunk_index)
+  -- );
+
+  -- ============================================
+  -- 16. Content-addressed file storage
+  -- ============================================
+  -- Created automatically by Hibernate (ddl-auto=update). Manual equivalent:
+  -- ALTER TABLE file_uploads ADD COLUMN content_hash VARCHAR(64) DEFAULT NULL;
+  -- CREATE INDEX idx_file_uploads_content_hash ON file_uploads(content_hash);
+  -- CREATE TABLE file_blobs (
+  --     id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  --     sha256 VARCHAR(64) NOT NULL UNIQUE,
+  --     size BIGINT NOT NULL,
+  --     storage_path VARCHAR(200) NOT NULL,
+  --     ref_count INT NOT NULL,
+  --     created_at DATETIME(6),
+  --     INDEX idx_file_blobs_ref_count (ref_count)
+  -- );
+  -- Existing rows keep content_hash NULL and their own file; they are not reference counted.
+
+  -- ============================================
+  -- 17. Image thumbnails and dimensions
+  -- ============================================
+  -- Created automatically by Hibernate (ddl-auto=update). Manual equivalent:
+  -- ALTER TABLE file_uploads ADD COLUMN width INT DEFAULT NULL;
+  -- ALTER TABLE file_uploads ADD COLUMN height INT DEFAULT NULL;
+  -- ALTER TABLE file_uploads ADD COLUMN blurhash VARCHAR(64) DEFAULT NULL;
+
+  -- ============================================
+  -- 18. File-based avatars
+  -- ============================================
+  -- No schema change. Avatars are stored as uploads/avatars/ab/{sha256}.jpg (256px, plus a -64 variant)
+  -- and users.avatar_url / chats.avatar_url hold only the URL. Inline data: avatars are converted in the
+  -- background after startup (AvatarService.migrateInlineAvatars); rows that cannot be decoded keep their value.
+
+  -- ============================================
+  -- 19. Incremental file cleanup indexes
+  -- ============================================
+  -- Created automatically by Hibernate (ddl-auto=update). Manual equivalent:
+  -- CREATE INDEX idx_file_uploads_expires_at ON file_uploads(expires_at);
+  -- CREATE INDEX idx_file_uploads_incomplete ON file_uploads(upload_complete, created_at);
+
+  -- ============================================
+  -- 20. Message attachment summaries
+  -- ============================================
+  -- Created automatically by Hibernate (ddl-auto=update). Manual equivalent:
+  -- ALTER TABLE messages ADD COLUMN file_id VARCHAR(36) DEFAULT NULL;
+  -- ALTER TABLE messages ADD COLUMN file_name VARCHAR(255) DEFAULT NULL;
+  -- ALTER TABLE messages ADD COLUMN file_size BIGINT DEFAULT NULL;
+  -- ALTER TABLE messages ADD COLUMN file_mime_type VARCHAR(100) DEFAULT NULL;
+  -- ALTER TABLE messages ADD COLUMN file_thumbnail VARCHAR(500) DEFAULT NULL;
+  -- CREATE INDEX idx_messages_file_id ON messages(file_id);
+  -- file_id refers to file_uploads.file_id without a foreign key: uploads expire and are cleaned up
+  -- while the message stays. Older messages are filled in the background after startup
+  -- (MessageService.backfillAttachmentSummaries).
+
+  -- ============================================
+  -- 21. Chat media index (shared media gallery)
+  -- ============================================
+  -- Created automatically by Hibernate (ddl-auto=update). Manual equivalent:
+  -- CREATE TABLE IF NOT EXISTS chat_media (
+  --     id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  --     chat_id BIGINT NOT NULL,
+  --     sequence_number BIGINT NOT NULL,
+  --     message_id BIGINT NOT NULL,
+  --     sender_id BIGINT NOT NULL,
+  --     media_type VARCHAR(10) NOT NULL,
+  --     file_id VARCHAR(36) NOT NULL,
+  --     file_name VARCHAR(255),
+  --     file_size BIGINT,
+  --     mime_type VARCHAR(100),
+  --     thumbnail_path VARCHAR(500),
+  --     created_at DATETIME(6),
+  --     CONSTRAINT uk_chat_media_message UNIQUE (message_id),
+  --     INDEX idx_chat_media_gallery (chat_id, media_type, sequence_number),
+  --     INDEX idx_chat_media_file_id (file_id)
+  -- );
+  -- One row per attachment message whose upload has not expired; rows are removed by the expired-file
+  -- cleanup. Existing messages are indexed in the background after startup, after the attachment
+  -- summary backfill (section 20).
@@ -0,0 +1,171 @@
+package com.nexus.chat.config;
+
+import com.nexus.chat.service.RedisCacheService;
+import com.nexus.chat.service.RedisMessageRelay;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the relay broker mode against an embedded ActiveMQ Artemis STOMP acceptor.
+ * A topic message sent through RedisMessageRelay must reach a subscriber that is
+ * connected to the broker directly (i.e. another instance), without a Redis publish.
+ */
+@SpringJUnitWebConfig(BrokerRelayIntegrationTest.TestConfig.class)
+class BrokerRelayIntegrationTest {
+
+    @TempDir
+    static Path brokerDir;
+
+    private static EmbeddedActiveMQ broker;
+    private static int brokerPort;
+
+    @Configuration
+    @Import({WebSocketBrokerConfiguration.class, WebSocketConfig.class, RedisMessageRelay.class})
+    static class TestConfig {
+    }
+
+    @MockBean
+    private WebSocketAuthChannelInterceptor webSocketAuthChannelInterceptor;
+
+    @MockBean
+    private MessageValidationInterceptor messageValidationInterceptor;
+
+    @MockBean
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @MockBean
+    private RedisCacheService redisCacheService;
+
+    @Autowired
+    private RedisMessageRelay redisMessageRelay;
+
+    @Autowired
+    @Qualifier("stompBrokerRelayMessageHandler")
+    private AbstractBrokerMessageHandler brokerRelayHandler;
+
+    private ReactorNettyTcpStompClient stompClient;
+    private ThreadPoolTaskScheduler receiptScheduler;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            brokerPort = socket.getLocalPort();
+        }
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.setJournalDirectory(brokerDir.resolve("journal").toString());
+        configuration.setBindingsDirectory(brokerDir.resolve("bindings").toString());
+        configuration.setLargeMessagesDirectory(brokerDir.resolve("large-messages").toString());
+        configuration.setPagingDirectory(brokerDir.resolve("paging").toString());
+        configuration.addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + brokerPort + "?protocols=STOMP");
+        broker = new EmbeddedActiveMQ().setConfiguration(configuration);
+        broker.start();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        if (broker != null) {
+            broker.stop();
+        }
+    }
+
+    @DynamicPropertySource
+    static void relayProperties(DynamicPropertyRegistry registry) {
+        registry.add("websocket.broker.mode", () -> WebSocketConfig.BROKER_MODE_RELAY);
+        registry.add("websocket.broker.relay.host", () -> "127.0.0.1");
+        registry.add("websocket.broker.relay.port", () -> brokerPort);
+    }
+
+    @AfterEach
+    void stopClient() {
+        if (stompClient != null) {
+            stompClient.shutdown();
+        }
+        if (receiptScheduler != null) {
+            receiptScheduler.shutdown();
+        }
+    }
+
+    @Test
+    void topicMessageReachesSubscriberOnAnotherConnection() throws Exception {
+        awaitBrokerAvailable();
+
+        receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        stompClient = new ReactorNettyTcpStompClient("127.0.0.1", brokerPort);
+        stompClient.setTaskScheduler(receiptScheduler);
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.setLogin("guest");
+        connectHeaders.setPasscode("guest");
+        StompSession session = stompClient.connectAsync(connectHeaders, new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.setAutoReceipt(true);
+        session.subscribe("/topic/group/42", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add(new String((byte[]) payload, StandardCharsets.UTF_8));
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertThat(subscribed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        redisMessageRelay.sendToTopic("/topic/group/42", Map.of("content", "hello group"));
+
+        String payload = received.poll(10, TimeUnit.SECONDS);
+        assertThat(payload).contains("hello group");
+        verify(redisCacheService, never()).publishMessage(anyString(), anyString());
+        session.disconnect();
+    }
+
+    private void awaitBrokerAvailable() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(15);
+        while (!brokerRelayHandler.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(brokerRelayHandler.isBrokerAvailable()).isTrue();
+    }
+}
@@ -0,0 +1,51 @@
+package com.nexus.chat.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the STOMP broker configuration with the executor metrics bean
+ * (the metrics bean used to fail startup by asking for ThreadPoolTaskExecutor beans).
+ */
+@SpringJUnitWebConfig(WebSocketExecutorMetricsTest.TestConfig.class)
+class WebSocketExecutorMetricsTest {
+
+    @Configuration
+    @Import({WebSocketBrokerConfiguration.class, WebSocketConfig.class, WebSocketExecutorMetrics.class})
+    static class TestConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockBean
+    private WebSocketAuthChannelInterceptor webSocketAuthChannelInterceptor;
+
+    @MockBean
+    private MessageValidationInterceptor messageValidationInterceptor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TaskExecutor clientInboundChannelExecutor;
+
+    @Test
+    void bindsChannelPoolMetrics() {
+        assertThat(clientInboundChannelExecutor).isInstanceOf(ThreadPoolTaskExecutor.class);
+        assertThat(meterRegistry.find("executor.pool.size").tag("name", "ws.inbound").gauge()).isNotNull();
+        assertThat(meterRegistry.find("executor.pool.size").tag("name", "ws.outbound").gauge()).isNotNull();
+    }
+}
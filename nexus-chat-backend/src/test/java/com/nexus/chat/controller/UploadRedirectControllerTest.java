@@ -0,0 +1,102 @@
+package com.nexus.chat.controller;
+
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.storage.BlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadRedirectControllerTest {
+
+    private static final String FILE_ID = "0f8fad5b-d9cb-469f-a165-70867728950e";
+    private static final URI PRESIGNED = URI.create("https://bucket.example.com/signed");
+
+    private final FileUploadRepository fileUploadRepository = mock(FileUploadRepository.class);
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final UploadRedirectController controller = new UploadRedirectController(fileUploadRepository, blobStore);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "presignTtlSeconds", 900L);
+        when(blobStore.presignDownload(anyString(), any(), anyString(), any(Duration.class)))
+                .thenReturn(Optional.of(PRESIGNED));
+    }
+
+    @Test
+    void avatarAndVariantPathsAreRedirected() throws Exception {
+        assertThat(redirect("avatars/ab/abcdef.jpg").getHeader(HttpHeaders.LOCATION)).isEqualTo(PRESIGNED.toString());
+        assertThat(redirect("variants/ab/abcdef/480.jpg").getHeader(HttpHeaders.LOCATION)).isEqualTo(PRESIGNED.toString());
+    }
+
+    @Test
+    void rawContentPathsAreNotServed() throws Exception {
+        assertThat(redirect("blobs/ab/cd/abcdef").getStatus()).isEqualTo(404);
+        assertThat(redirect("incoming/" + FILE_ID).getStatus()).isEqualTo(404);
+        assertThat(redirect("chunks/" + FILE_ID + ".part").getStatus()).isEqualTo(404);
+        assertThat(redirect("avatars/../blobs/ab/cd/abcdef").getStatus()).isEqualTo(404);
+        verify(blobStore, never()).presignDownload(anyString(), any(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void uploadPathRedirectsToContent() throws Exception {
+        FileUpload file = upload(LocalDateTime.now().plusDays(1));
+        when(fileUploadRepository.findByFileId(FILE_ID)).thenReturn(Optional.of(file));
+
+        MockHttpServletResponse response = redirect("2026/01/02/" + FILE_ID + ".png");
+
+        assertThat(response.getHeader(HttpHeaders.LOCATION)).isEqualTo(PRESIGNED.toString());
+        verify(blobStore).presignDownload("2026/01/02/" + FILE_ID + ".png", "image/png", "inline", Duration.ofSeconds(900));
+    }
+
+    @Test
+    void expiredUploadIsGone() throws Exception {
+        FileUpload file = upload(LocalDateTime.now().minusMinutes(1));
+        when(fileUploadRepository.findByFileId(FILE_ID)).thenReturn(Optional.of(file));
+
+        assertThat(redirect("2026/01/02/" + FILE_ID + ".png").getStatus()).isEqualTo(410);
+        verify(blobStore, never()).presignDownload(anyString(), any(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void incompleteOrUnknownUploadIsNotFound() throws Exception {
+        FileUpload file = upload(null);
+        file.setUploadComplete(false);
+        when(fileUploadRepository.findByFileId(FILE_ID)).thenReturn(Optional.of(file));
+
+        assertThat(redirect("2026/01/02/" + FILE_ID + ".png").getStatus()).isEqualTo(404);
+        assertThat(redirect("2026/01/02/" + FILE_ID.replace('0', '1') + ".png").getStatus()).isEqualTo(404);
+    }
+
+    private MockHttpServletResponse redirect(String key) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.redirect(new MockHttpServletRequest("GET", "/uploads/" + key), response);
+        return response;
+    }
+
+    private static FileUpload upload(LocalDateTime expiresAt) {
+        FileUpload file = new FileUpload();
+        file.setFileId(FILE_ID);
+        file.setFilePath("2026/01/02/" + FILE_ID + ".png");
+        file.setMimeType("image/png");
+        file.setUploadComplete(true);
+        file.setExpiresAt(expiresAt);
+        return file;
+    }
+}
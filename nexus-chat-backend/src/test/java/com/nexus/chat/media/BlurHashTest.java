@@ -0,0 +1,45 @@
+package com.nexus.chat.media;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlurHashTest {
+
+    // 参考值由 blurha.sh 的 TypeScript 编码器算法逐步计算得出
+    @Test
+    void encodesGradientToReferenceHash() {
+        BufferedImage image = new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 6; y++) {
+            for (int x = 0; x < 8; x++) {
+                image.setRGB(x, y, (x * 32 << 16) | (y * 40 << 8) | (255 - (x + y) * 16));
+            }
+        }
+
+        assertThat(BlurHash.encode(image, 4, 3)).isEqualTo("LuF=a_7Qb2xdvIR=fTnnevfAfRf9");
+    }
+
+    @Test
+    void encodesSolidWhiteToReferenceHash() {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                image.setRGB(x, y, 0xFFFFFF);
+            }
+        }
+
+        assertThat(BlurHash.encode(image, 4, 3)).isEqualTo("L~TSUA~qfQ~q~q%MfQ%MfQfQfQfQ");
+    }
+
+    @Test
+    void hashLengthFollowsComponentCount() {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+
+        // 1 位尺寸 + 1 位最大值 + 4 位 DC + 每个 AC 分量 2 位
+        assertThat(BlurHash.encode(image, 1, 1)).hasSize(6);
+        assertThat(BlurHash.encode(image, 4, 3)).hasSize(6 + 11 * 2);
+        assertThat(BlurHash.encode(image, 9, 9)).hasSize(6 + 80 * 2);
+    }
+}
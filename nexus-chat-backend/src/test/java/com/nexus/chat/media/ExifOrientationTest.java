@@ -0,0 +1,121 @@
+package com.nexus.chat.media;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExifOrientationTest {
+
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final int IMAGE_WIDTH_TAG = 0x0100;
+
+    @TempDir
+    Path dir;
+
+    static Stream<Arguments> orientations() {
+        return Stream.of(ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN)
+                .flatMap(order -> IntStream.rangeClosed(1, 8).mapToObj(value -> Arguments.of(order, value)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orientations")
+    void readsOrientationInBothByteOrders(ByteOrder order, int orientation) throws IOException {
+        Path file = write(jpeg(exif(order, IMAGE_WIDTH_TAG, 640, ORIENTATION_TAG, orientation)));
+
+        assertThat(ExifOrientation.read(file)).isEqualTo(orientation);
+    }
+
+    @Test
+    void missingOrientationTagIsNormal() throws IOException {
+        Path file = write(jpeg(exif(ByteOrder.BIG_ENDIAN, IMAGE_WIDTH_TAG, 640)));
+
+        assertThat(ExifOrientation.read(file)).isEqualTo(ExifOrientation.NORMAL);
+    }
+
+    @Test
+    void outOfRangeOrientationIsNormal() throws IOException {
+        Path file = write(jpeg(exif(ByteOrder.LITTLE_ENDIAN, ORIENTATION_TAG, 9)));
+
+        assertThat(ExifOrientation.read(file)).isEqualTo(ExifOrientation.NORMAL);
+    }
+
+    @Test
+    void truncatedSegmentIsNormal() throws IOException {
+        byte[] jpeg = jpeg(exif(ByteOrder.BIG_ENDIAN, ORIENTATION_TAG, 6));
+        Path file = write(Arrays.copyOf(jpeg, jpeg.length - 20));
+
+        assertThat(ExifOrientation.read(file)).isEqualTo(ExifOrientation.NORMAL);
+    }
+
+    @Test
+    void nonJpegIsNormal() throws IOException {
+        Path file = write("\u0089PNG\r\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        assertThat(ExifOrientation.read(file)).isEqualTo(ExifOrientation.NORMAL);
+    }
+
+    /**
+     * APP1 段内容："Exif\0\0" + TIFF 头 + 单个 IFD，tagValues 为 (标签, SHORT 值) 对
+     */
+    private static byte[] exif(ByteOrder order, int... tagValues) {
+        int entries = tagValues.length / 2;
+        ByteBuffer tiff = ByteBuffer.allocate(8 + 2 + entries * 12 + 4).order(order);
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.putShort((short) 42);
+        tiff.putInt(8);
+        tiff.putShort((short) entries);
+        for (int i = 0; i < entries; i++) {
+            tiff.putShort((short) tagValues[i * 2]);
+            tiff.putShort((short) 3);
+            tiff.putInt(1);
+            tiff.putShort((short) tagValues[i * 2 + 1]);
+            tiff.putShort((short) 0);
+        }
+        tiff.putInt(0);
+
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        segment.writeBytes("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+        segment.writeBytes(tiff.array());
+        return segment.toByteArray();
+    }
+
+    /**
+     * SOI + APP0 + APP1 + SOS，方向应在跳过 APP0 后读出
+     */
+    private static byte[] jpeg(byte[] app1) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        writeSegment(out, 0xE0, "JFIF\0".getBytes(StandardCharsets.US_ASCII));
+        writeSegment(out, 0xE1, app1);
+        writeSegment(out, 0xDA, new byte[4]);
+        return out.toByteArray();
+    }
+
+    private static void writeSegment(ByteArrayOutputStream out, int marker, byte[] data) {
+        int length = data.length + 2;
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) marker, (byte) (length >> 8), (byte) length});
+        out.writeBytes(data);
+    }
+
+    private Path write(byte[] content) throws IOException {
+        Path file = Files.createTempFile(dir, "exif", ".jpg");
+        Files.write(file, content);
+        return file;
+    }
+}
@@ -0,0 +1,54 @@
+package com.nexus.chat.media;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageVariantsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decodeSubsamplesByWidth() throws IOException {
+        Path wide = png(2048, 512);
+
+        ImageVariants.Decoded decoded = ImageVariants.decode(wide, 256);
+
+        assertThat(decoded.image().getWidth()).isEqualTo(256);
+        assertThat(decoded.image().getHeight()).isEqualTo(64);
+    }
+
+    @Test
+    void decodeMinSideKeepsShortSideForSquareCrop() throws IOException {
+        Path wide = png(2048, 512);
+
+        BufferedImage square = ImageVariants.cropSquare(ImageVariants.decodeMinSide(wide, 256).image());
+
+        assertThat(square.getWidth()).isEqualTo(256);
+        assertThat(square.getHeight()).isEqualTo(256);
+    }
+
+    @Test
+    void decodeMinSideOnPortraitImage() throws IOException {
+        Path tall = png(300, 1200);
+
+        BufferedImage decoded = ImageVariants.decodeMinSide(tall, 256).image();
+
+        // 短边 300 不足两倍目标尺寸，不采样
+        assertThat(decoded.getWidth()).isEqualTo(300);
+        assertThat(decoded.getHeight()).isEqualTo(1200);
+    }
+
+    private Path png(int width, int height) throws IOException {
+        Path file = dir.resolve(width + "x" + height + ".png");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file;
+    }
+}
@@ -0,0 +1,62 @@
+package com.nexus.chat.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UniqueInsertsTest {
+
+    private static final String INSERT_SQL = "INSERT INTO t (a, b) VALUES (?, ?)";
+    private static final String EXISTS_SQL = "SELECT id FROM t WHERE a = ? AND b = ? FOR UPDATE";
+    private static final Object[] ARGS = {1L, 2L};
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void insertedRowReturnsOne() {
+        when(jdbcTemplate.update(INSERT_SQL, ARGS)).thenReturn(1);
+
+        assertThat(insert()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateOfExistingRowReturnsZero() {
+        when(jdbcTemplate.update(INSERT_SQL, ARGS)).thenThrow(new DuplicateKeyException("dup"));
+        when(jdbcTemplate.queryForList(eq(EXISTS_SQL), eq(Long.class), any(Object[].class))).thenReturn(List.of(7L));
+
+        assertThat(insert()).isZero();
+    }
+
+    @Test
+    void conflictOnAnotherKeyIsRetried() {
+        when(jdbcTemplate.update(INSERT_SQL, ARGS)).thenThrow(new DuplicateKeyException("dup")).thenReturn(1);
+        when(jdbcTemplate.queryForList(eq(EXISTS_SQL), eq(Long.class), any(Object[].class))).thenReturn(List.of());
+
+        assertThat(insert()).isEqualTo(1);
+        verify(jdbcTemplate, times(2)).update(INSERT_SQL, ARGS);
+    }
+
+    @Test
+    void persistentConflictIsRethrown() {
+        when(jdbcTemplate.update(INSERT_SQL, ARGS)).thenThrow(new DuplicateKeyException("dup"));
+        when(jdbcTemplate.queryForList(eq(EXISTS_SQL), eq(Long.class), any(Object[].class))).thenReturn(List.of());
+
+        assertThatThrownBy(this::insert).isInstanceOf(DuplicateKeyException.class);
+        verify(jdbcTemplate, times(3)).update(INSERT_SQL, ARGS);
+    }
+
+    private int insert() {
+        return UniqueInserts.insertIfAbsent(jdbcTemplate, INSERT_SQL, ARGS, EXISTS_SQL, ARGS);
+    }
+}
@@ -0,0 +1,64 @@
+package com.nexus.chat.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FullTextIndexTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FullTextIndex index = new FullTextIndex(jdbcTemplate, "posts", "ft_posts", "title, content");
+
+    @Test
+    void createdByAnotherInstanceStaysAvailable() {
+        // 检查时不存在，CREATE 因重名失败，再次检查已存在
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any())).thenReturn(0, 1);
+        doThrow(new DataAccessResourceFailureException("Duplicate key name 'ft_posts'"))
+                .when(jdbcTemplate).execute(startsWith("CREATE FULLTEXT INDEX"));
+
+        index.ensure();
+
+        assertThat(index.isAvailable()).isTrue();
+    }
+
+    @Test
+    void createFailureWithoutIndexFallsBack() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any())).thenReturn(0);
+        doThrow(new DataAccessResourceFailureException("ngram parser not found"))
+                .when(jdbcTemplate).execute(startsWith("CREATE FULLTEXT INDEX"));
+
+        index.ensure();
+
+        assertThat(index.isAvailable()).isFalse();
+    }
+
+    @Test
+    void rebuildMarksUnavailableBeforeDrop() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any())).thenReturn(1);
+        index.ensure();
+        assertThat(index.isAvailable()).isTrue();
+
+        AtomicBoolean availableDuringDrop = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            availableDuringDrop.set(index.isAvailable());
+            return null;
+        }).when(jdbcTemplate).execute(startsWith("ALTER TABLE posts DROP INDEX"));
+
+        index.rebuild();
+
+        assertThat(availableDuringDrop).isFalse();
+        assertThat(index.isAvailable()).isTrue();
+    }
+}
@@ -0,0 +1,51 @@
+package com.nexus.chat.search;
+
+import com.nexus.chat.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostSearchServiceTest {
+
+    private final PostSearchIndex postSearchIndex = mock(PostSearchIndex.class);
+    private final PostRepository postRepository = mock(PostRepository.class);
+    private final PostSearchService service = new PostSearchService(postSearchIndex, postRepository);
+
+    @Test
+    void returnsFullTextHits() {
+        when(postSearchIndex.isAvailable()).thenReturn(true);
+        when(postRepository.searchPostIds(anyString(), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(3L, 1L)));
+
+        assertThat(service.searchIds(List.of("hello"), PageRequest.of(0, 10))).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void unavailableIndexFallsBack() {
+        when(postSearchIndex.isAvailable()).thenReturn(false);
+
+        assertThat(service.searchIds(List.of("hello"), PageRequest.of(0, 10))).isNull();
+        verify(postRepository, never()).searchPostIds(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    void indexDroppedByAnotherInstanceFallsBack() {
+        // 本实例认为索引可用，但另一实例正在重建
+        when(postSearchIndex.isAvailable()).thenReturn(true);
+        when(postRepository.searchPostIds(anyString(), any(Pageable.class)))
+                .thenThrow(new InvalidDataAccessResourceUsageException("Can't find FULLTEXT index matching the column list"));
+
+        assertThat(service.searchIds(List.of("hello"), PageRequest.of(0, 10))).isNull();
+    }
+}
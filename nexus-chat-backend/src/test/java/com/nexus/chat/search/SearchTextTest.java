@@ -0,0 +1,57 @@
+package com.nexus.chat.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTextTest {
+
+    @Test
+    void termsStripBooleanOperatorsAndDuplicates() {
+        assertThat(SearchText.terms("  +hello -world \"hello\" (x) ~ *  "))
+                .containsExactly("hello", "world", "x");
+    }
+
+    @Test
+    void termsKeepAtMostEight() {
+        assertThat(SearchText.terms("a b c d e f g h i j")).containsExactly("a", "b", "c", "d", "e", "f", "g", "h");
+        assertThat(SearchText.terms(null)).isEmpty();
+    }
+
+    @Test
+    void booleanQueryUsesPrefixForSingleCharacters() {
+        assertThat(SearchText.booleanQuery(List.of("你好", "a", "世", "😀")))
+                .isEqualTo("+\"你好\" +a* +世* +😀*");
+    }
+
+    @Test
+    void highlightEscapesHtmlAndMergesAdjacentHits() {
+        assertThat(SearchText.highlight("<b>Hello</b> & helloworld", List.of("hello", "world")))
+                .isEqualTo("&lt;b&gt;<em>Hello</em>&lt;/b&gt; &amp; <em>helloworld</em>");
+    }
+
+    @Test
+    void snippetCentresOnFirstHit() {
+        String text = "x".repeat(50) + "target" + "y".repeat(50);
+
+        String snippet = SearchText.snippet(text, List.of("target"), 20);
+
+        assertThat(snippet).isEqualTo("…xxxxx<em>target</em>yyyyyyyyy…");
+    }
+
+    @Test
+    void snippetWithoutHitTakesBeginning() {
+        assertThat(SearchText.snippet("abcdefghij", List.of("zzz"), 4)).isEqualTo("abcd…");
+    }
+
+    @Test
+    void snippetDoesNotSplitSurrogatePairs() {
+        String text = "😀".repeat(10);
+
+        String snippet = SearchText.snippet(text, List.of(), 5);
+
+        assertThat(snippet).isEqualTo("😀😀😀…");
+    }
+}
@@ -0,0 +1,55 @@
+package com.nexus.chat.search;
+
+import com.nexus.chat.model.User;
+import com.nexus.chat.repository.UserPrivacySettingsRepository;
+import com.nexus.chat.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSearchServiceTest {
+
+    private final UserSearchIndex userSearchIndex = mock(UserSearchIndex.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserSearchService service = new UserSearchService(userSearchIndex, userRepository,
+            mock(UserPrivacySettingsRepository.class));
+
+    @Test
+    void keepsFullTextRankingOrder() {
+        User alice = user(1L);
+        User bob = user(2L);
+        when(userSearchIndex.isAvailable()).thenReturn(true);
+        when(userRepository.searchUserIds(anyString(), eq("al"), anyInt())).thenReturn(List.of(2L, 1L));
+        when(userRepository.findAllByIdIn(List.of(2L, 1L))).thenReturn(List.of(alice, bob));
+
+        assertThat(service.search("al", 10)).containsExactly(bob, alice);
+    }
+
+    @Test
+    void indexDroppedByAnotherInstanceFallsBackToLike() {
+        User alice = user(1L);
+        when(userSearchIndex.isAvailable()).thenReturn(true);
+        when(userRepository.searchUserIds(anyString(), anyString(), anyInt()))
+                .thenThrow(new InvalidDataAccessResourceUsageException("Can't find FULLTEXT index matching the column list"));
+        when(userRepository.searchUsers(eq("al"), any(Pageable.class))).thenReturn(List.of(alice));
+
+        assertThat(service.search("al", 10)).containsExactly(alice);
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+}
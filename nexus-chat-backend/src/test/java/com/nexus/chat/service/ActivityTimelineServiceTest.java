@@ -0,0 +1,80 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.UserActivity;
+import com.nexus.chat.repository.ContactRepository;
+import com.nexus.chat.repository.UserActivityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActivityTimelineServiceTest {
+
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    private final ContactRepository contactRepository = mock(ContactRepository.class);
+    @SuppressWarnings("unchecked")
+    private final SetOperations<String, String> setOperations = mock(SetOperations.class);
+    private final ActivityTimelineService service =
+            new ActivityTimelineService(stringRedisTemplate, mock(UserActivityRepository.class), contactRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        ReflectionTestUtils.setField(service, "fanoutThreshold", 1000);
+        ReflectionTestUtils.setField(service, "maxSize", 500);
+    }
+
+    @Test
+    void highDegreeActorIsMarkedWithoutLoadingReaders() {
+        when(contactRepository.countByContactUserId(7L)).thenReturn(1001L);
+
+        service.fanOut(activity(7L));
+
+        verify(setOperations).add("timeline:high-degree", "7");
+        verify(contactRepository, never()).findUserIdsByContactUserId(anyLong());
+        verify(stringRedisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void actorWithoutReadersSkipsFanOut() {
+        when(contactRepository.countByContactUserId(7L)).thenReturn(0L);
+
+        service.fanOut(activity(7L));
+
+        verify(setOperations).remove("timeline:high-degree", "7");
+        verify(contactRepository, never()).findUserIdsByContactUserId(anyLong());
+        verify(stringRedisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void readersAreLoadedOnlyWhenFanningOut() {
+        when(contactRepository.countByContactUserId(7L)).thenReturn(2L);
+        when(contactRepository.findUserIdsByContactUserId(7L)).thenReturn(List.of(1L, 2L));
+
+        service.fanOut(activity(7L));
+
+        verify(setOperations).remove("timeline:high-degree", "7");
+        verify(contactRepository).findUserIdsByContactUserId(7L);
+        verify(stringRedisTemplate).executePipelined(any(RedisCallback.class));
+    }
+
+    private static UserActivity activity(Long userId) {
+        UserActivity activity = new UserActivity();
+        activity.setId(100L);
+        activity.setUserId(userId);
+        activity.setCreatedAt(LocalDateTime.now());
+        return activity;
+    }
+}
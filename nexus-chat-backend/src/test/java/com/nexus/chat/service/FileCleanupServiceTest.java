@@ -0,0 +1,123 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.repository.FileBlobRepository;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.storage.BlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileCleanupServiceTest {
+
+    private final FileUploadRepository fileUploadRepository = mock(FileUploadRepository.class);
+    private final FileBlobService fileBlobService = mock(FileBlobService.class);
+    private final FileBlobRepository fileBlobRepository = mock(FileBlobRepository.class);
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    private FileCleanupService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        service = new FileCleanupService(fileUploadRepository, mock(ChunkedUploadService.class),
+                mock(DirectUploadService.class), fileBlobService, mock(ChatMediaService.class), fileBlobRepository,
+                mock(BlobStore.class), stringRedisTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxBatchesPerRun", 10);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 120L);
+        ReflectionTestUtils.setField(service, "ioPoolSize", 1);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void releasesOnlyRowsDeletedByThisRun() {
+        FileUpload stillExpired = upload(1L, "hash-a");
+        FileUpload alreadyDeleted = upload(2L, "hash-b");
+        when(fileUploadRepository.countByExpiresAtBefore(any())).thenReturn(2L);
+        when(fileUploadRepository.findExpiredAfter(any(), any(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(stillExpired, alreadyDeleted), List.of());
+        // 另一实例已删除 2 号记录，加锁后只读到 1 号
+        when(fileUploadRepository.findExpiredByIdInForUpdate(eq(List.of(1L, 2L)), any()))
+                .thenReturn(List.of(stillExpired));
+
+        service.cleanupExpiredFiles();
+
+        verify(fileUploadRepository).deleteByIdIn(List.of(1L));
+        verify(fileBlobService).release("hash-a");
+        verify(fileBlobService, never()).release("hash-b");
+    }
+
+    @Test
+    void batchAlreadyDeletedElsewhereReleasesNothing() {
+        when(fileUploadRepository.countByExpiresAtBefore(any())).thenReturn(1L);
+        when(fileUploadRepository.findExpiredAfter(any(), any(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(upload(1L, "hash-a")), List.of());
+        when(fileUploadRepository.findExpiredByIdInForUpdate(anyList(), any())).thenReturn(List.of());
+
+        service.cleanupExpiredFiles();
+
+        verify(fileUploadRepository, never()).deleteByIdIn(anyList());
+        verify(fileBlobService, never()).release(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lostLeaseStopsTheRun() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+        FileUpload first = upload(1L, "hash-a");
+        when(fileUploadRepository.countByExpiresAtBefore(any())).thenReturn(4L);
+        when(fileUploadRepository.findExpiredAfter(any(), any(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(first), List.of(upload(2L, "hash-b")), List.of());
+        when(fileUploadRepository.findExpiredByIdInForUpdate(anyList(), any())).thenReturn(List.of(first));
+
+        service.cleanupExpiredFiles();
+
+        verify(fileUploadRepository, times(1)).findExpiredAfter(any(), any(), anyLong(), any(Pageable.class));
+        verify(fileBlobService, times(1)).release(anyString());
+        verify(fileUploadRepository, never()).countByUploadCompleteFalseAndCreatedAtBefore(any());
+        verify(fileBlobRepository, never()).findUnreferencedIds(anyLong(), any(Pageable.class));
+    }
+
+    private static FileUpload upload(Long id, String contentHash) {
+        FileUpload upload = new FileUpload();
+        upload.setId(id);
+        upload.setFileId("file-" + id);
+        upload.setContentHash(contentHash);
+        upload.setExpiresAt(LocalDateTime.now().minusDays(1));
+        return upload;
+    }
+}
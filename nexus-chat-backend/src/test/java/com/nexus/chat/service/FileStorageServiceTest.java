@@ -0,0 +1,143 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.storage.BlobStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class FileStorageServiceTest {
+
+    private final FileStorageService service =
+            new FileStorageService(mock(FileBlobService.class), mock(BlobStore.class));
+
+    @Test
+    void writeTempHashesAndCountsAcrossBuffers() throws Exception {
+        // 超过 3 个 64KB 缓冲区，且每次读取长度不规则
+        byte[] content = new byte[200_000 + 17];
+        new Random(41).nextBytes(content);
+
+        FileStorageService.TempFile temp = service.writeTemp(new ChunkedInputStream(content, 7_001));
+        try {
+            assertThat(temp.size()).isEqualTo(content.length);
+            assertThat(temp.hash()).isEqualTo(sha256(content));
+            assertThat(Files.readAllBytes(temp.path())).isEqualTo(content);
+        } finally {
+            service.discard(temp);
+        }
+    }
+
+    @Test
+    void writeTempOfEmptyStream() throws Exception {
+        FileStorageService.TempFile temp = service.writeTemp(new ByteArrayInputStream(new byte[0]));
+        try {
+            assertThat(temp.size()).isZero();
+            assertThat(temp.hash()).isEqualTo(sha256(new byte[0]));
+        } finally {
+            service.discard(temp);
+        }
+    }
+
+    @Test
+    void writeTempDeletesPartialFileOnIOException() throws Exception {
+        byte[] content = new byte[150_000];
+        Set<Path> before = tempFiles();
+
+        assertThatThrownBy(() -> service.writeTemp(new FailingInputStream(content, 100_000)))
+                .isInstanceOf(IOException.class)
+                .hasMessage("connection reset");
+
+        assertThat(tempFiles()).isEqualTo(before);
+    }
+
+    @Test
+    void discardDeletesTempFileAndIgnoresMissingFile() throws Exception {
+        FileStorageService.TempFile temp = service.writeTemp(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        assertThat(temp.path()).exists();
+
+        service.discard(temp);
+        assertThat(temp.path()).doesNotExist();
+
+        // 已移动或已删除时为空操作
+        service.discard(temp);
+        assertThat(temp.path()).doesNotExist();
+    }
+
+    private static Set<Path> tempFiles() throws IOException {
+        Path dir = Paths.get(FileStorageService.UPLOAD_DIR, "tmp");
+        if (!Files.isDirectory(dir)) {
+            return Set.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toSet());
+        }
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    /**
+     * 每次最多返回 maxChunk 字节，模拟网络流的短读
+     */
+    private static class ChunkedInputStream extends FilterInputStream {
+
+        private final int maxChunk;
+
+        ChunkedInputStream(byte[] content, int maxChunk) {
+            super(new ByteArrayInputStream(content));
+            this.maxChunk = maxChunk;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, maxChunk));
+        }
+    }
+
+    /**
+     * 读到 failAfter 字节后抛出 IOException，模拟上传中断
+     */
+    private static class FailingInputStream extends InputStream {
+
+        private final InputStream delegate;
+        private final int failAfter;
+        private int read;
+
+        FailingInputStream(byte[] content, int failAfter) {
+            this.delegate = new ByteArrayInputStream(content);
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (read >= failAfter) {
+                throw new IOException("connection reset");
+            }
+            int n = delegate.read(b, off, Math.min(len, failAfter - read));
+            read += Math.max(n, 0);
+            return n;
+        }
+    }
+}
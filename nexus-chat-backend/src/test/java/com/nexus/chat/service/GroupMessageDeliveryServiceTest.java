@@ -0,0 +1,58 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.dto.WebSocketMessage;
+import com.nexus.chat.model.Chat;
+import com.nexus.chat.model.ChatMember;
+import com.nexus.chat.repository.ChatMemberRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GroupMessageDeliveryServiceTest {
+
+    private final ChatMemberRepository chatMemberRepository = mock(ChatMemberRepository.class);
+    private final RedisMessageRelay redisMessageRelay = mock(RedisMessageRelay.class);
+    private final RedisCacheService redisCacheService = mock(RedisCacheService.class);
+    private final PresenceService presenceService = mock(PresenceService.class);
+    private final GroupMessageDeliveryService service = new GroupMessageDeliveryService(
+            chatMemberRepository, redisMessageRelay, redisCacheService, presenceService);
+
+    private final WebSocketMessage wsMessage = new WebSocketMessage(WebSocketMessage.MessageType.CHAT_MESSAGE, "hi");
+
+    @Test
+    void groupMessageIsPublishedOnceWithOtherMembersAndQueuedForOffline() {
+        when(chatMemberRepository.findByChatId(5L)).thenReturn(members(1L, 2L, 3L));
+        when(presenceService.getOfflineUserIds(List.of(2L, 3L))).thenReturn(List.of(3L));
+
+        service.deliver(5L, 1L, Chat.ChatType.group, wsMessage);
+
+        verify(redisMessageRelay).sendToTopic("/topic/group/5", wsMessage, List.of(2L, 3L));
+        verify(redisCacheService).queueOfflineMessage(List.of(3L), wsMessage);
+    }
+
+    @Test
+    void channelMessageIsOnlyPublishedToTopic() {
+        service.deliver(5L, 1L, Chat.ChatType.channel, wsMessage);
+
+        verify(redisMessageRelay).sendToTopic("/topic/group/5", wsMessage);
+        verify(chatMemberRepository, never()).findByChatId(anyLong());
+        verify(redisCacheService, never()).queueOfflineMessage(anyCollection(), any());
+    }
+
+    private static List<ChatMember> members(Long... userIds) {
+        return Stream.of(userIds).map(userId -> {
+            ChatMember member = new ChatMember();
+            member.setUserId(userId);
+            return member;
+        }).toList();
+    }
+}
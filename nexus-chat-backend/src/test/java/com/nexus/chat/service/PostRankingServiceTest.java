@@ -0,0 +1,76 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PostRankingServiceTest {
+
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    private final PostRepository postRepository = mock(PostRepository.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOperations = mock(ZSetOperations.class);
+    private final PostRankingService service = new PostRankingService(stringRedisTemplate, postRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+    }
+
+    @Test
+    void pageIsReadFromRanking() {
+        when(zSetOperations.zCard("post:rank:hot")).thenReturn(25L);
+        when(zSetOperations.reverseRange("post:rank:hot", 20, 29)).thenReturn(new LinkedHashSet<>(List.of("7", "3")));
+
+        PostRankingService.RankedPage page = service.getHotPage(2, 10);
+
+        assertThat(page.postIds()).containsExactly(7L, 3L);
+        assertThat(page.total()).isEqualTo(25);
+    }
+
+    @Test
+    void emptyRankingFallsBackToDatabase() {
+        when(zSetOperations.zCard("post:rank:recommended")).thenReturn(0L);
+
+        assertThat(service.getRecommendedPage(0, 10)).isNull();
+    }
+
+    @Test
+    void redisFailureFallsBackToDatabase() {
+        when(zSetOperations.zCard(anyString())).thenThrow(new RedisConnectionFailureException("redis down"));
+
+        assertThat(service.getHotPage(0, 10)).isNull();
+        assertThat(service.getRecommendedPage(0, 10)).isNull();
+    }
+
+    @Test
+    void pagePastRankedPostsFallsBackToDatabase() {
+        assertThat(service.getHotPage(1000, 10)).isNull();
+        assertThat(service.getHotPage(499, 21)).isNull();
+        verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    void truncatedRankingReportsDatabaseTotal() {
+        when(zSetOperations.zCard("post:rank:hot")).thenReturn(10000L);
+        when(zSetOperations.reverseRange("post:rank:hot", 9990, 9999)).thenReturn(new LinkedHashSet<>(List.of("1")));
+        when(postRepository.count()).thenReturn(12345L);
+
+        PostRankingService.RankedPage page = service.getHotPage(999, 10);
+
+        assertThat(page.postIds()).containsExactly(1L);
+        assertThat(page.total()).isEqualTo(12345);
+    }
+}
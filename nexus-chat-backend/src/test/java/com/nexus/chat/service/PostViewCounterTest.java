@@ -0,0 +1,114 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostViewCounterTest {
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+    private PostViewCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        counter = new PostViewCounter(postRepository, stringRedisTemplate);
+        ReflectionTestUtils.setField(counter, "dedupWindowMinutes", 30L);
+    }
+
+    @Test
+    void flushMergesViewsIntoOneUpdatePerPost() {
+        counter.recordView(1L, null);
+        counter.recordView(1L, null);
+        counter.recordView(2L, null);
+        assertThat(counter.pendingViews(1L)).isEqualTo(2);
+
+        counter.flush();
+
+        verify(postRepository).incrementViewCount(1L, 2);
+        verify(postRepository).incrementViewCount(2L, 1);
+        assertThat(counter.pendingViews(1L)).isZero();
+
+        clearInvocations(postRepository);
+        counter.flush();
+        verify(postRepository, never()).incrementViewCount(anyLong(), anyInt());
+    }
+
+    @Test
+    void lateWriteToSwappedOutCounterIsFlushedNextRound() {
+        counter.recordView(1L, null);
+        counter.flush();
+        verify(postRepository).incrementViewCount(1L, 1);
+
+        // 刷新换出前已拿到旧计数器引用的并发写入
+        retired().get(1L).increment();
+        counter.flush();
+
+        verify(postRepository, times(2)).incrementViewCount(1L, 1);
+    }
+
+    @Test
+    void failedWriteIsRetriedNextRound() {
+        when(postRepository.incrementViewCount(1L, 3)).thenThrow(new RuntimeException("db down")).thenReturn(1);
+        counter.recordView(1L, null);
+        counter.recordView(1L, null);
+        counter.recordView(1L, null);
+
+        counter.flush();
+        assertThat(counter.pendingViews(1L)).isEqualTo(3);
+        counter.flush();
+
+        verify(postRepository, times(2)).incrementViewCount(1L, 3);
+        assertThat(counter.pendingViews(1L)).isZero();
+    }
+
+    @Test
+    void repeatedViewInWindowIsCountedOnce() {
+        when(valueOperations.setIfAbsent(eq("post:viewed:1:9"), eq("1"), any(Duration.class)))
+                .thenReturn(true, false);
+
+        counter.recordView(1L, 9L);
+        counter.recordView(1L, 9L);
+
+        assertThat(counter.pendingViews(1L)).isEqualTo(1);
+    }
+
+    @Test
+    void viewsAreCountedWhenRedisIsUnavailable() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new RuntimeException("redis down"));
+
+        counter.recordView(1L, 9L);
+        counter.recordView(1L, 9L);
+
+        assertThat(counter.pendingViews(1L)).isEqualTo(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, LongAdder> retired() {
+        return (Map<Long, LongAdder>) ReflectionTestUtils.getField(counter, "retired");
+    }
+}
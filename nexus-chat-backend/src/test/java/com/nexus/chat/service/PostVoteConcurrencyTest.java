@@ -0,0 +1,190 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.Post;
+import com.nexus.chat.model.PostComment;
+import com.nexus.chat.model.User;
+import com.nexus.chat.repository.CommentLikeRepository;
+import com.nexus.chat.repository.PostCommentRepository;
+import com.nexus.chat.repository.PostRepository;
+import com.nexus.chat.repository.PostVoteRepository;
+import com.nexus.chat.repository.UserRepository;
+import com.nexus.chat.search.PostSearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 1000 个用户并发投票/点赞同一帖子（评论），计数不能丢失或重复
+ * 使用 H2 的 MySQL 兼容模式执行唯一键插入和 x = x + delta 语句。
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:votes;MODE=MySQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=30000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostVoteConcurrencyTest {
+
+    private static final int VOTERS = 1000;
+    private static final int THREADS = 32;
+
+    @MockBean
+    private PostRankingService postRankingService;
+
+    @MockBean
+    private PostViewCounter postViewCounter;
+
+    @MockBean
+    private PostSearchService postSearchService;
+
+    @MockBean
+    private PostImageService postImageService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PostVoteRepository postVoteRepository;
+
+    @Autowired
+    private PostCommentRepository postCommentRepository;
+
+    @Autowired
+    private CommentLikeRepository commentLikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Long> voterIds = new ArrayList<>();
+    private Long postId;
+    private Long commentId;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < VOTERS; i++) {
+            User user = new User();
+            user.setUsername("voter" + i);
+            user.setEmail("voter" + i + "@example.com");
+            user.setPasswordHash("x");
+            user.setNickname("voter" + i);
+            users.add(user);
+        }
+        userRepository.saveAll(users).forEach(user -> voterIds.add(user.getId()));
+
+        Post post = new Post();
+        post.setAuthor(userRepository.getReferenceById(voterIds.get(0)));
+        post.setTitle("title");
+        post.setContent("content");
+        postId = postRepository.save(post).getId();
+
+        PostComment comment = new PostComment();
+        comment.setPost(postRepository.getReferenceById(postId));
+        comment.setAuthor(userRepository.getReferenceById(voterIds.get(0)));
+        comment.setContent("comment");
+        commentId = postCommentRepository.save(comment).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentLikeRepository.deleteAllInBatch();
+        postCommentRepository.deleteAllInBatch();
+        postVoteRepository.deleteAllInBatch();
+        postRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        voterIds.clear();
+    }
+
+    @Test
+    void parallelVotesAreNotLost() throws Exception {
+        runConcurrently(voterIds, userId -> postService.vote(postId, userId, 1));
+        assertCounts(VOTERS, 0);
+        assertThat(postVoteRepository.countByPostIdAndVoteType(postId, 1)).isEqualTo(VOTERS);
+
+        // 全部改为踩
+        runConcurrently(voterIds, userId -> postService.vote(postId, userId, -1));
+        assertCounts(0, VOTERS);
+
+        // 一半取消
+        runConcurrently(voterIds.subList(0, VOTERS / 2), userId -> postService.vote(postId, userId, -1));
+        assertCounts(0, VOTERS / 2);
+        assertThat(postVoteRepository.count()).isEqualTo(VOTERS / 2);
+    }
+
+    @Test
+    void duplicateVotesCountOnce() throws Exception {
+        // 同一用户并发提交两次新投票：最多一条记录，计数与记录数一致
+        List<Long> doubled = new ArrayList<>(voterIds);
+        doubled.addAll(voterIds);
+        runConcurrently(doubled, userId -> postService.vote(postId, userId, 1));
+
+        long votes = postVoteRepository.countByPostIdAndVoteType(postId, 1);
+        assertThat(votes).isLessThanOrEqualTo(VOTERS);
+        assertCounts((int) votes, 0);
+    }
+
+    @Test
+    void parallelCommentLikesAreNotLost() throws Exception {
+        runConcurrently(voterIds, userId -> postService.toggleCommentLike(commentId, userId));
+        assertThat(postCommentRepository.findById(commentId).orElseThrow().getLikeCount()).isEqualTo(VOTERS);
+        assertThat(commentLikeRepository.count()).isEqualTo(VOTERS);
+
+        runConcurrently(voterIds, userId -> postService.toggleCommentLike(commentId, userId));
+        assertThat(postCommentRepository.findById(commentId).orElseThrow().getLikeCount()).isZero();
+    }
+
+    private void assertCounts(int up, int down) {
+        Post post = postRepository.findById(postId).orElseThrow();
+        assertThat(post.getUpvoteCount()).isEqualTo(up);
+        assertThat(post.getDownvoteCount()).isEqualTo(down);
+    }
+
+    private static void runConcurrently(List<Long> userIds, Consumer<Long> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long userId : userIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    action.accept(userId);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
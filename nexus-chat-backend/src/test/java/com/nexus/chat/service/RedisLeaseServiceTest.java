@@ -0,0 +1,89 @@
+package com.nexus.chat.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisLeaseServiceTest {
+
+    private static final Duration TTL = Duration.ofMinutes(30);
+
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+    private final RedisLeaseService service = new RedisLeaseService(stringRedisTemplate);
+
+    @BeforeEach
+    void setUp() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void acquireStoresUniqueTokenInsteadOfConstant() {
+        when(valueOperations.setIfAbsent(eq("job"), anyString(), eq(TTL))).thenReturn(true);
+
+        assertThat(service.tryAcquire("job", TTL)).isNotNull();
+        assertThat(service.tryAcquire("job", TTL)).isNotNull();
+
+        ArgumentCaptor<String> tokens = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations, times(2)).setIfAbsent(eq("job"), tokens.capture(), eq(TTL));
+        assertThat(tokens.getAllValues().get(0)).isNotEqualTo("1").isNotEqualTo(tokens.getAllValues().get(1));
+    }
+
+    @Test
+    void heldOrUnavailableLeaseIsNotAcquired() {
+        when(valueOperations.setIfAbsent(eq("held"), anyString(), eq(TTL))).thenReturn(false);
+        when(valueOperations.setIfAbsent(eq("down"), anyString(), eq(TTL)))
+                .thenThrow(new RedisConnectionFailureException("redis down"));
+
+        assertThat(service.tryAcquire("held", TTL)).isNull();
+        assertThat(service.tryAcquire("down", TTL)).isNull();
+    }
+
+    @Test
+    void renewAndReleaseCompareTheAcquiredToken() {
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        when(valueOperations.setIfAbsent(eq("job"), token.capture(), eq(TTL))).thenReturn(true);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        RedisLeaseService.Lease lease = service.tryAcquire("job", TTL);
+        assertThat(lease.renew()).isTrue();
+        lease.release();
+
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of("job")),
+                eq(token.getValue()), eq(String.valueOf(TTL.toMillis())));
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of("job")), eq(token.getValue()));
+        verify(stringRedisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    void renewFailsWhenLeaseWasTakenOverOrRedisFails() {
+        when(valueOperations.setIfAbsent(eq("job"), anyString(), eq(TTL))).thenReturn(true);
+        RedisLeaseService.Lease lease = service.tryAcquire("job", TTL);
+
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+        assertThat(lease.renew()).isFalse();
+
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("redis down"));
+        assertThat(lease.renew()).isFalse();
+    }
+}
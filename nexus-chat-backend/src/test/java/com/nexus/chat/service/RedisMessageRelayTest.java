@@ -0,0 +1,116 @@
+package com.nexus.chat.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisMessageRelayTest {
+
+    private static final String TOPIC = "/topic/group/7";
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final SimpUserRegistry userRegistry = mock(SimpUserRegistry.class);
+    private final RedisCacheService redisCacheService = mock(RedisCacheService.class);
+    private RedisMessageRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new RedisMessageRelay(mock(RedisMessageListenerContainer.class), redisCacheService,
+                messagingTemplate, userRegistry);
+        relay.init();
+    }
+
+    @Test
+    void connectedMemberWithoutTopicSubscriptionGetsUserChannelCopy() {
+        Object payload = Map.of("content", "hi");
+        SimpUser subscribed = user(session(TOPIC, "/topic/user.1.messages"));
+        SimpUser notYetSubscribed = user(session("/topic/user.2.messages"));
+        when(userRegistry.getUser("1")).thenReturn(subscribed);
+        when(userRegistry.getUser("2")).thenReturn(notYetSubscribed);
+        // 3: offline, handled by the offline queue
+
+        relay.sendToTopic(TOPIC, payload, List.of(1L, 2L, 3L));
+
+        verify(messagingTemplate).convertAndSend(TOPIC, payload);
+        verify(messagingTemplate).convertAndSend("/topic/user.2.messages", payload);
+        verify(messagingTemplate, never()).convertAndSend(eq("/topic/user.1.messages"), any(Object.class));
+        verify(messagingTemplate, never()).convertAndSend(eq("/topic/user.3.messages"), any(Object.class));
+        verify(redisCacheService).publishMessage(eq("ws:broadcast"), anyString());
+    }
+
+    @Test
+    void secondDeviceWithoutSubscriptionStillGetsCopy() {
+        Object payload = Map.of("content", "hi");
+        SimpUser twoDevices = user(session(TOPIC), session());
+        when(userRegistry.getUser("1")).thenReturn(twoDevices);
+
+        relay.sendToTopic(TOPIC, payload, List.of(1L));
+
+        verify(messagingTemplate).convertAndSend("/topic/user.1.messages", payload);
+    }
+
+    @Test
+    void unsubscribeAllDropsEverySubscriptionWithOneRelayRequest() {
+        MessageChannel channel = mock(MessageChannel.class);
+        when(messagingTemplate.getMessageChannel()).thenReturn(channel);
+        SimpSession first = session(TOPIC);
+        SimpSession second = session(TOPIC);
+        Set<SimpSubscription> subscriptions = new HashSet<>();
+        for (SimpSession session : List.of(first, second)) {
+            SimpSubscription subscription = session.getSubscriptions().iterator().next();
+            when(subscription.getSession()).thenReturn(session);
+            subscriptions.add(subscription);
+        }
+        when(userRegistry.findSubscriptions(any())).thenReturn(subscriptions);
+
+        relay.unsubscribeAll(TOPIC);
+
+        verify(channel, times(2)).send(argThat(message ->
+                SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.UNSUBSCRIBE));
+        verify(redisCacheService, times(1)).publishMessage(eq("ws:broadcast"), anyString());
+    }
+
+    private static SimpUser user(SimpSession... sessions) {
+        SimpUser user = mock(SimpUser.class);
+        when(user.getSessions()).thenReturn(Set.of(sessions));
+        return user;
+    }
+
+    private static SimpSession session(String... destinations) {
+        SimpSession session = mock(SimpSession.class);
+        SimpUser owner = mock(SimpUser.class);
+        when(owner.getName()).thenReturn("1");
+        when(session.getUser()).thenReturn(owner);
+        Set<SimpSubscription> subscriptions = new HashSet<>();
+        for (String destination : destinations) {
+            SimpSubscription subscription = mock(SimpSubscription.class);
+            when(subscription.getDestination()).thenReturn(destination);
+            subscriptions.add(subscription);
+        }
+        when(session.getSubscriptions()).thenReturn(subscriptions);
+        return session;
+    }
+}
@@ -0,0 +1,108 @@
+package com.nexus.chat.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatLaneExecutorTest {
+
+    private static final int LANES = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ChatLaneExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void sameChatRunsOnOneLaneInOrder() throws InterruptedException {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        start(10);
+
+        for (int i = 0; i < 3; i++) {
+            int index = i;
+            assertThat(executor.execute(42L, () -> {
+                threads.add(Thread.currentThread().getName());
+                order.add(index);
+                done.countDown();
+            })).isTrue();
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly(0, 1, 2);
+        assertThat(threads).containsOnly("chat-lane-" + Math.floorMod(Long.hashCode(42L), LANES));
+    }
+
+    @Test
+    void negativeChatIdMapsToValidLane() throws InterruptedException {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        start(10);
+
+        assertThat(executor.execute(-7L, () -> {
+            threads.add(Thread.currentThread().getName());
+            done.countDown();
+        })).isTrue();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(threads).containsExactly("chat-lane-" + Math.floorMod(Long.hashCode(-7L), LANES));
+    }
+
+    @Test
+    void saturatedLaneRejectsWhileOtherLanesAccept() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        long busyChat = 1L;
+        long otherChat = 2L;
+        start(1);
+        assertThat(Math.floorMod(Long.hashCode(busyChat), LANES))
+                .isNotEqualTo(Math.floorMod(Long.hashCode(otherChat), LANES));
+
+        assertThat(executor.execute(busyChat, () -> {
+            started.countDown();
+            awaitQuietly(release);
+        })).isTrue();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        // 队列容量 1：第二个排队，第三个被拒绝
+        assertThat(executor.execute(busyChat, () -> { })).isTrue();
+        assertThat(executor.execute(busyChat, () -> { })).isFalse();
+        // 同一通道编号的其他会话共享队列，也被拒绝
+        assertThat(executor.execute(busyChat + LANES, () -> { })).isFalse();
+
+        CountDownLatch otherDone = new CountDownLatch(1);
+        assertThat(executor.execute(otherChat, otherDone::countDown)).isTrue();
+        assertThat(otherDone.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("websocket.lanes.queued").gauge().value()).isEqualTo(1.0);
+
+        release.countDown();
+    }
+
+    private void start(int queueCapacity) {
+        executor = new ChatLaneExecutor(meterRegistry);
+        ReflectionTestUtils.setField(executor, "laneCount", LANES);
+        ReflectionTestUtils.setField(executor, "queueCapacity", queueCapacity);
+        executor.init();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -114,6 +114,9 @@ export const messageAPI = {
     getChatMessages: (chatId, userId, page = 0, size = 50) =>
         apiClient.get(`/messages/chat/${chatId}`, { params: { userId, page, size } }),
 
+    getMessagesAfter: (chatId, userId, afterSeq, limit = 100) =>
+        apiClient.get(`/messages/chat/${chatId}/after`, { params: { userId, afterSeq, limit } }),
+
     markMessageAsRead: (messageId, userId) =>
         apiClient.put(`/messages/${messageId}/read`, null, { params: { userId } }),
 
@@ -237,6 +240,8 @@ export const fileAPI = {
         })
     },
 
+    getChunkStatus: (fileId) => apiClient.get(`/files/upload/chunk/${fileId}`),
+
     getFileInfo: (fileId) => apiClient.get(`/files/${fileId}/info`),
 
     getDownloadUrl: (fileId) => `${API_BASE_URL}/files/download/${fileId}`,
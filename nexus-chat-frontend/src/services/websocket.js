@@ -4,6 +4,7 @@ import { useMessageStore } from '@/stores/message'
 import { useChatStore } from '@/stores/chat'
 import { useContactStore } from '@/stores/contact'
 import { useUserStore } from '@/stores/user'
+import { messageAPI } from './api'
 
 /**
  * Call signaling message types
@@ -36,6 +37,11 @@ function generateClientMsgId() {
     })
 }
 
+/**
+ * Page size for catching up on group messages after a reconnect (backend caps at 200).
+ */
+const SYNC_PAGE_SIZE = 100
+
 class WebSocketService {
     constructor() {
         this.client = null
@@ -54,6 +60,10 @@ class WebSocketService {
         this.pendingAcks = new Map()
         // Call signaling callback
         this.onCallSignal = null
+        // Shared group topic subscriptions: chatId -> STOMP subscription
+        this.groupSubscriptions = new Map()
+        // Set after the first successful connect; later connects are reconnects
+        this.hasConnected = false
     }
 
     connect(userId, onConnectCallback = null) {
@@ -86,8 +96,16 @@ class WebSocketService {
                 this.reconnectAttempts = 0
                 this.lastHeartbeatResponse = Date.now()
 
-                // Subscribe to unified user channel (no more per-chat subscriptions)
+                // Subscribe to unified user channel plus the group topics we already know
+                this.groupSubscriptions.clear()
                 this.subscribeToTopics(userId)
+                this.subscribeToGroups(useChatStore().chats)
+
+                // Shared topics don't queue messages for us, so pull what we missed while offline
+                if (this.hasConnected) {
+                    this.syncMissedGroupMessages(userId)
+                }
+                this.hasConnected = true
 
                 // Send online status
                 this.updateUserStatus(userId, true)
@@ -129,56 +147,7 @@ class WebSocketService {
         // Primary unified channel - receives ALL real-time events
         this.client.subscribe(`/topic/user.${userId}.messages`, (message) => {
             this.updateHeartbeat()
-            const data = JSON.parse(message.body)
-
-            switch (data.type) {
-                case 'CHAT_MESSAGE':
-                    this.handleChatMessage(data)
-                    break
-                case 'MESSAGE_ACK':
-                    this.handleMessageAck(data)
-                    break
-                case 'MESSAGE_DELIVERED':
-                    this.handleMessageDelivered(data)
-                    break
-                case 'MESSAGE_DELIVERY_FAILED':
-                    this.handleMessageDeliveryFailed(data)
-                    break
-                case 'TYPING':
-                    this.handleTypingIndicator(data)
-                    break
-                case 'MESSAGE_READ':
-                    this.handleReadReceipt(data)
-                    break
-                case 'GROUP_MEMBER_JOINED':
-                case 'GROUP_MEMBER_LEFT':
-                case 'GROUP_UPDATED':
-                case 'GROUP_DELETED':
-                case 'GROUP_ADMIN_CHANGED':
-                case 'GROUP_OWNERSHIP_TRANSFERRED':
-                    this.handleChatEvent({ body: JSON.stringify(data) })
-                    break
-                // Call signaling
-                case 'CALL_INVITE':
-                case 'CALL_ACCEPT':
-                case 'CALL_REJECT':
-                case 'CALL_CANCEL':
-                case 'CALL_BUSY':
-                case 'CALL_TIMEOUT':
-                case 'CALL_END':
-                case 'CALL_OFFER':
-                case 'CALL_ANSWER':
-                case 'CALL_ICE_CANDIDATE':
-                case 'CALL_MUTE':
-                case 'CALL_VIDEO_TOGGLE':
-                    this.handleCallSignal(data)
-                    break
-                case 'ERROR':
-                    this.handleError(data)
-                    break
-                default:
-                    console.log('Unhandled message type via user channel:', data.type)
-            }
+            this.dispatchEvent(JSON.parse(message.body))
         })
 
         // Contact events channel
@@ -194,6 +163,123 @@ class WebSocketService {
         })
     }
 
+    /**
+     * Route an event from the user channel or a group topic to its handler.
+     */
+    dispatchEvent(data) {
+        switch (data.type) {
+            case 'CHAT_MESSAGE':
+                this.handleChatMessage(data)
+                break
+            case 'MESSAGE_ACK':
+                this.handleMessageAck(data)
+                break
+            case 'MESSAGE_DELIVERED':
+                this.handleMessageDelivered(data)
+                break
+            case 'MESSAGE_DELIVERY_FAILED':
+                this.handleMessageDeliveryFailed(data)
+                break
+            case 'TYPING':
+                this.handleTypingIndicator(data)
+                break
+            case 'MESSAGE_READ':
+                this.handleReadReceipt(data)
+                break
+            case 'GROUP_MEMBER_JOINED':
+            case 'GROUP_MEMBER_LEFT':
+            case 'GROUP_UPDATED':
+            case 'GROUP_DELETED':
+            case 'GROUP_ADMIN_CHANGED':
+            case 'GROUP_OWNERSHIP_TRANSFERRED':
+                this.handleChatEvent({ body: JSON.stringify(data) })
+                break
+            // Call signaling
+            case 'CALL_INVITE':
+            case 'CALL_ACCEPT':
+            case 'CALL_REJECT':
+            case 'CALL_CANCEL':
+            case 'CALL_BUSY':
+            case 'CALL_TIMEOUT':
+            case 'CALL_END':
+            case 'CALL_OFFER':
+            case 'CALL_ANSWER':
+            case 'CALL_ICE_CANDIDATE':
+            case 'CALL_MUTE':
+            case 'CALL_VIDEO_TOGGLE':
+                this.handleCallSignal(data)
+                break
+            case 'ERROR':
+                this.handleError(data)
+                break
+            default:
+                console.log('Unhandled message type via user channel:', data.type)
+        }
+    }
+
+    /**
+     * Subscribe to the shared topic of a group or channel.
+     * Group messages, typing, read receipts and group events are published once
+     * to /topic/group/{chatId} instead of being copied into every member's channel.
+     */
+    subscribeToGroup(chatId) {
+        if (!this.connected || this.groupSubscriptions.has(chatId)) return
+
+        const subscription = this.client.subscribe(`/topic/group/${chatId}`, (message) => {
+            this.updateHeartbeat()
+            const data = JSON.parse(message.body)
+            // Our own typing and read receipts are echoed back on the shared topic
+            if ((data.type === 'TYPING' || data.type === 'MESSAGE_READ')
+                && data.payload?.userId === this.currentUserId) {
+                return
+            }
+            this.dispatchEvent(data)
+        })
+        this.groupSubscriptions.set(chatId, subscription)
+    }
+
+    /**
+     * Subscribe to every group/channel topic in the chat list.
+     */
+    subscribeToGroups(chats) {
+        chats.filter(c => c.type === 'GROUP').forEach(c => this.subscribeToGroup(c.id))
+    }
+
+    /**
+     * Pull messages sent to group/channel topics while disconnected,
+     * starting after the last sequence number we hold for each chat.
+     * Chats without loaded messages are skipped; they load in full when opened.
+     */
+    async syncMissedGroupMessages(userId) {
+        const messageStore = useMessageStore()
+        const groups = useChatStore().chats.filter(c => c.type === 'GROUP')
+
+        for (const chat of groups) {
+            let afterSeq = messageStore.getLastSequence(chat.id)
+            if (!afterSeq) continue
+
+            try {
+                while (true) {
+                    const response = await messageAPI.getMessagesAfter(chat.id, userId, afterSeq, SYNC_PAGE_SIZE)
+                    const missed = response.data || []
+                    missed.forEach(payload => this.handleChatMessage({ payload }))
+                    if (missed.length < SYNC_PAGE_SIZE) break
+                    afterSeq = missed[missed.length - 1].sequenceNumber
+                }
+            } catch (error) {
+                console.error(`Failed to sync missed messages for chat ${chat.id}:`, error)
+            }
+        }
+    }
+
+    unsubscribeFromGroup(chatId) {
+        const subscription = this.groupSubscriptions.get(chatId)
+        if (subscription) {
+            subscription.unsubscribe()
+            this.groupSubscriptions.delete(chatId)
+        }
+    }
+
     handleChatMessage(data) {
         const messageStore = useMessageStore()
         const chatStore = useChatStore()
@@ -593,7 +679,8 @@ class WebSocketService {
 
         if (data.type === 'CHAT_CREATED') {
             const chatData = data.payload
-            const isGroup = chatData.type === 'group'
+            // Channels are delivered over the shared group topic like groups
+            const isGroup = chatData.type === 'group' || chatData.type === 'channel'
             const memberOnline = chatData.members?.find(m => m.id !== chatData.createdBy)?.isOnline || false
 
             const newChat = {
@@ -617,6 +704,9 @@ class WebSocketService {
             if (!exists) {
                 chatStore.chats.unshift(newChat)
             }
+            if (isGroup) {
+                this.subscribeToGroup(newChat.id)
+            }
         } else if (data.type === 'GROUP_UPDATED') {
             const groupData = data.payload
             chatStore.updateChat(groupData.id, {
@@ -633,12 +723,16 @@ class WebSocketService {
             }
         } else if (data.type === 'GROUP_MEMBER_LEFT') {
             const { groupId, memberId, memberCount } = data.payload
+            if (memberId === this.currentUserId) {
+                this.unsubscribeFromGroup(groupId)
+            }
             chatStore.removeGroupMember(groupId, memberId)
             if (memberCount !== undefined) {
                 chatStore.updateChat(groupId, { memberCount })
             }
         } else if (data.type === 'GROUP_DELETED') {
             const { groupId } = data.payload
+            this.unsubscribeFromGroup(groupId)
             chatStore.removeChat(groupId)
         } else if (data.type === 'GROUP_ADMIN_CHANGED') {
             const { groupId, memberId, isAdmin } = data.payload
@@ -814,6 +908,8 @@ class WebSocketService {
             pending.reject(new Error('Disconnected'))
         }
         this.pendingAcks.clear()
+        this.groupSubscriptions.clear()
+        this.hasConnected = false
 
         if (this.client) {
             this.client.deactivate()
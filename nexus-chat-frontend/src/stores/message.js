@@ -10,6 +10,13 @@ export const useMessageStore = defineStore('message', () => {
         return messages.value[chatId] || []
     }
 
+    /**
+     * Highest server sequence number held for a chat (0 when none is known).
+     */
+    function getLastSequence(chatId) {
+        return getMessages(chatId).reduce((max, m) => Math.max(max, m.sequenceNumber || 0), 0)
+    }
+
     function setMessages(chatId, messageList) {
         messages.value[chatId] = messageList
     }
@@ -205,6 +212,7 @@ export const useMessageStore = defineStore('message', () => {
     return {
         messages,
         getMessages,
+        getLastSequence,
         setMessages,
         addMessage,
         replaceByClientMsgId,